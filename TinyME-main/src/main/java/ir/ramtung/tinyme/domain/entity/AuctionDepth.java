@@ -0,0 +1,146 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import static ir.ramtung.tinyme.domain.entity.OrderBook.INVALID_PRICE;
+
+class AuctionDepth {
+    private static final int MAX_PRICE = Integer.MAX_VALUE;
+    private final Node root = new Node();
+
+    private static final class Node {
+        long buy;
+        long sell;
+        Node lower;
+        Node upper;
+
+        long quantity(Side side) {
+            return side == Side.BUY ? buy : sell;
+        }
+    }
+
+    void add(Side side, int price, long quantity) {
+        add(root, 0, MAX_PRICE, side, price, quantity);
+    }
+
+    AuctionEquilibrium equilibrium(int lowestBuyPrice, int highestSellPrice, int lastTradedPrice) {
+        long totalBuy = root.buy;
+        int crossPrice = firstPriceReaching(totalBuy);
+        if (quantityUpTo(Side.SELL, crossPrice) + quantityUpTo(Side.BUY, crossPrice - 1) < totalBuy)
+            crossPrice++;
+
+        long supplyBelowCross = quantityUpTo(Side.SELL, crossPrice - 1);
+        long demandAtCross = totalBuy - quantityUpTo(Side.BUY, crossPrice - 1);
+        long tradableQuantity = Math.max(supplyBelowCross, demandAtCross);
+        if (tradableQuantity < 1)
+            return AuctionEquilibrium.NONE;
+
+        int from = supplyBelowCross == tradableQuantity ? highestPriceUpTo(root, 0, MAX_PRICE, Side.SELL, crossPrice - 1)
+                : crossPrice;
+        int to = demandAtCross == tradableQuantity ? lowestPriceFrom(root, 0, MAX_PRICE, Side.BUY, crossPrice)
+                : crossPrice - 1;
+        from = Math.max(from, lowestBuyPrice);
+        to = Math.min(to, highestSellPrice);
+        if (from > to)
+            return AuctionEquilibrium.NONE;
+        int openingPrice = Math.max(from, Math.min(to, lastTradedPrice));
+        return new AuctionEquilibrium(openingPrice, (int) tradableQuantity);
+    }
+
+    private void add(Node node, int low, int high, Side side, int price, long quantity) {
+        if (side == Side.BUY)
+            node.buy += quantity;
+        else
+            node.sell += quantity;
+        if (low == high)
+            return;
+        int middle = middle(low, high);
+        if (price <= middle) {
+            if (node.lower == null)
+                node.lower = new Node();
+            add(node.lower, low, middle, side, price, quantity);
+            if (isEmpty(node.lower))
+                node.lower = null;
+        } else {
+            if (node.upper == null)
+                node.upper = new Node();
+            add(node.upper, middle + 1, high, side, price, quantity);
+            if (isEmpty(node.upper))
+                node.upper = null;
+        }
+    }
+
+    private long quantityUpTo(Side side, int price) {
+        long total = 0;
+        Node node = root;
+        int low = 0;
+        int high = MAX_PRICE;
+        while (node != null && price >= low) {
+            if (high <= price)
+                return total + node.quantity(side);
+            int middle = middle(low, high);
+            if (price <= middle) {
+                node = node.lower;
+                high = middle;
+            } else {
+                total += quantityOf(node.lower, side);
+                node = node.upper;
+                low = middle + 1;
+            }
+        }
+        return total;
+    }
+
+    private int firstPriceReaching(long target) {
+        Node node = root;
+        int low = 0;
+        int high = MAX_PRICE;
+        while (low < high) {
+            int middle = middle(low, high);
+            long lowerQuantity = quantityOf(node.lower, Side.BUY) + quantityOf(node.lower, Side.SELL);
+            if (lowerQuantity >= target) {
+                node = node.lower;
+                high = middle;
+            } else {
+                target -= lowerQuantity;
+                node = node.upper;
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private int highestPriceUpTo(Node node, int low, int high, Side side, int price) {
+        if (node == null || node.quantity(side) == 0 || low > price)
+            return INVALID_PRICE;
+        if (low == high)
+            return low;
+        int middle = middle(low, high);
+        int found = highestPriceUpTo(node.upper, middle + 1, high, side, price);
+        if (found != INVALID_PRICE)
+            return found;
+        return highestPriceUpTo(node.lower, low, middle, side, price);
+    }
+
+    private int lowestPriceFrom(Node node, int low, int high, Side side, int price) {
+        if (node == null || node.quantity(side) == 0 || high < price)
+            return INVALID_PRICE;
+        if (low == high)
+            return low;
+        int middle = middle(low, high);
+        int found = lowestPriceFrom(node.lower, low, middle, side, price);
+        if (found != INVALID_PRICE)
+            return found;
+        return lowestPriceFrom(node.upper, middle + 1, high, side, price);
+    }
+
+    private static long quantityOf(Node node, Side side) {
+        return node == null ? 0 : node.quantity(side);
+    }
+
+    private static boolean isEmpty(Node node) {
+        return node.buy == 0 && node.sell == 0;
+    }
+
+    private static int middle(int low, int high) {
+        return (int) (((long) low + high) / 2);
+    }
+}
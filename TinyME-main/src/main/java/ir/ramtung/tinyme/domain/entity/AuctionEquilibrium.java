@@ -0,0 +1,5 @@
+package ir.ramtung.tinyme.domain.entity;
+
+public record AuctionEquilibrium(int openingPrice, int tradableQuantity) {
+    public static final AuctionEquilibrium NONE = new AuctionEquilibrium(OrderBook.INVALID_PRICE, 0);
+}
@@ -7,7 +7,6 @@ import lombok.ToString;
 
 @ToString
 @EqualsAndHashCode(onlyExplicitlyIncluded = true)
-@Builder
 public class Broker {
     @Getter
     @EqualsAndHashCode.Include
@@ -15,19 +14,48 @@ public class Broker {
     @Getter
     private String name;
     @Getter
-    private long credit;
+    private volatile long credit;
+    @ToString.Exclude
+    private CreditCut cut;
+    @ToString.Exclude
+    private long changeSinceCut;
 
-    public void increaseCreditBy(long amount) {
+    @Builder
+    public Broker(long brokerId, String name, long credit) {
+        this.brokerId = brokerId;
+        this.name = name;
+        this.credit = credit;
+    }
+
+    public synchronized void increaseCreditBy(long amount) {
         assert amount >= 0;
         credit += amount;
+        recordSinceCut(amount);
     }
 
-    public void decreaseCreditBy(long amount) {
+    public synchronized void decreaseCreditBy(long amount) {
         assert amount >= 0;
         credit -= amount;
+        recordSinceCut(-amount);
     }
 
     public boolean hasEnoughCredit(long amount) {
-        return credit >= amount;
+        return CreditDecisions.decide(credit >= amount);
+    }
+
+    // Changes made by threads that have passed the cut are left out of the credit returned by closeCut
+    public synchronized void openCut(CreditCut cut) {
+        this.cut = cut;
+        changeSinceCut = 0;
+    }
+
+    public synchronized long closeCut() {
+        cut = null;
+        return credit - changeSinceCut;
+    }
+
+    private void recordSinceCut(long change) {
+        if (cut != null && cut.isPassed())
+            changeSinceCut += change;
     }
 }
@@ -0,0 +1,16 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class CreditCut {
+    private final Set<Thread> passed = ConcurrentHashMap.newKeySet();
+
+    public void pass() {
+        passed.add(Thread.currentThread());
+    }
+
+    boolean isPassed() {
+        return passed.contains(Thread.currentThread());
+    }
+}
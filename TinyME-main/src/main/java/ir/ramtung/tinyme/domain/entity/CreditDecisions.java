@@ -0,0 +1,64 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.BitSet;
+
+// A credit check can see the changes made by other shards in any order, so the outcomes of the checks made while
+// handling a request are recorded, and imposed on the same checks when the request is replayed
+public class CreditDecisions {
+    private static final ThreadLocal<CreditDecisions> current = new ThreadLocal<>();
+    private final BitSet outcomes;
+    private final boolean replaying;
+    private int count;
+    private int next;
+
+    private CreditDecisions(BitSet outcomes, int count, boolean replaying) {
+        this.outcomes = outcomes;
+        this.count = count;
+        this.replaying = replaying;
+    }
+
+    public static CreditDecisions recording() {
+        return new CreditDecisions(new BitSet(), 0, false);
+    }
+
+    public static CreditDecisions replaying(BitSet outcomes, int count) {
+        return new CreditDecisions(outcomes, count, true);
+    }
+
+    public void during(Runnable handling) {
+        CreditDecisions previous = current.get();
+        current.set(this);
+        try {
+            handling.run();
+        } finally {
+            current.set(previous);
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public BitSet getOutcomes() {
+        return outcomes;
+    }
+
+    public void clear() {
+        outcomes.clear();
+        count = 0;
+        next = 0;
+    }
+
+    static boolean decide(boolean actual) {
+        CreditDecisions decisions = current.get();
+        return decisions == null ? actual : decisions.take(actual);
+    }
+
+    private boolean take(boolean actual) {
+        if (!replaying) {
+            outcomes.set(count++, actual);
+            return actual;
+        }
+        return next < count ? outcomes.get(next++) : actual;
+    }
+}
@@ -1,70 +1,124 @@
 package ir.ramtung.tinyme.domain.entity;
 
-import lombok.Getter;
-
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.ListIterator;
 
-@Getter
 public class OrderBook {
     public static final int INVALID_PRICE = -1;
-    protected final LinkedList<Order> buyQueue;
-    protected final LinkedList<Order> sellQueue;
+    protected final OrderBookSide buySide;
+    protected final OrderBookSide sellSide;
+    private final int priceLadderTicks;
+    private AuctionDepth auctionDepth;
 
     public OrderBook() {
-        buyQueue = new LinkedList<>();
-        sellQueue = new LinkedList<>();
+        this(Comparator.reverseOrder(), Comparator.naturalOrder());
+        trackAuctionDepth();
+    }
+
+    protected OrderBook(Comparator<Integer> buyPriority, Comparator<Integer> sellPriority) {
+        buySide = new OrderBookSide(Side.BUY, buyPriority, false);
+        sellSide = new OrderBookSide(Side.SELL, sellPriority, true);
+        priceLadderTicks = 0;
+    }
+
+    private OrderBook(int tickSize, int priceLadderTicks) {
+        buySide = new OrderBookSide(Side.BUY, Comparator.reverseOrder(),
+                new TickLadderPriceLevels(tickSize, priceLadderTicks, true), false);
+        sellSide = new OrderBookSide(Side.SELL, Comparator.naturalOrder(),
+                new TickLadderPriceLevels(tickSize, priceLadderTicks, false), true);
+        this.priceLadderTicks = priceLadderTicks;
+        trackAuctionDepth();
+    }
+
+    private void trackAuctionDepth() {
+        auctionDepth = new AuctionDepth();
+        buySide.trackDepthIn(auctionDepth);
+        sellSide.trackDepthIn(auctionDepth);
+    }
+
+    public static OrderBook withPriceLadder(int tickSize, int priceLadderTicks) {
+        return new OrderBook(tickSize, priceLadderTicks);
+    }
+
+    public int getPriceLadderTicks() {
+        return priceLadderTicks;
+    }
+
+    public boolean isUsingPriceLadder(Side side) {
+        return getSide(side).usesPriceLadder();
+    }
+
+    protected int levelPriceOf(Order order) {
+        return order.getPrice();
     }
 
     public void enqueue(Order order) {
-        List<Order> queue = getQueue(order.getSide());
-        ListIterator<Order> it = queue.listIterator();
-        while (it.hasNext()) {
-            if (order.queuesBefore(it.next())) {
-                it.previous();
-                break;
-            }
-        }
         order.queue();
-        it.add(order);
+        getSide(order.getSide()).addLast(levelPriceOf(order), order);
+    }
+
+    public void bulkLoad(Side side, List<? extends Order> orders) {
+        for (Order order : orders) {
+            if (order.getStatus() != OrderStatus.QUEUED)
+                order.queue();
+        }
+        getSide(side).appendAll(orders, this::levelPriceOf);
+        getSide(side).releaseOrders();
+    }
+
+    // Ends a request on this book: the orders it touched go back into the slot columns and are not to be used again
+    public void releaseOrders() {
+        buySide.releaseOrders();
+        sellSide.releaseOrders();
+    }
+
+    protected OrderBookSide getSide(Side side) {
+        return side == Side.BUY ? buySide : sellSide;
+    }
+
+    public Iterable<Order> getOrders(Side side) {
+        return getSide(side).orders();
+    }
+
+    // Copies the whole side; kept for tests, production code walks getOrders or getPriceLevels
+    public LinkedList<Order> getBuyQueue() {
+        return buySide.toList();
     }
-    private LinkedList<Order> getQueue(Side side) {
-        return side == Side.BUY ? buyQueue : sellQueue;
+
+    public LinkedList<Order> getSellQueue() {
+        return sellSide.toList();
+    }
+
+    public Iterable<PriceLevel> getPriceLevels(Side side) {
+        return getSide(side).levels();
     }
 
     public Order findByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        for (Order order : queue) {
-            if (order.getOrderId() == orderId)
-                return order;
-        }
-        return null;
+        return getSide(side).find(orderId);
     }
 
-    public void removeByOrderId(Side side, long orderId) {
-        var queue = getQueue(side);
-        var it = queue.listIterator();
-        while (it.hasNext()) {
-            if (it.next().getOrderId() == orderId) {
-                it.remove();
-                return;
-            }
-        }
+    public Order removeByOrderId(Side side, long orderId) {
+        return getSide(side).remove(orderId);
+    }
+
+    public Order getFirstOrder(Side side) {
+        return getSide(side).first();
     }
 
     public Order matchWithFirst(Order newOrder) {
-        var queue = getQueue(newOrder.getSide().opposite());
-        if (newOrder.matches(queue.getFirst()))
-            return queue.getFirst();
+        Order first = getFirstOrder(newOrder.getSide().opposite());
+        if (first != null && newOrder.matches(first))
+            return first;
         else
             return null;
     }
 
     public void putBack(Order order) {
-        LinkedList<Order> queue = getQueue(order.getSide());
         order.queue();
-        queue.addFirst(order);
+        getSide(order.getSide()).addFirst(levelPriceOf(order), order);
     }
 
     public void restoreSellOrder(Order sellOrder) {
@@ -78,31 +132,100 @@ public class OrderBook {
 
 
     public boolean hasOrderOfType(Side side) {
-        return !getQueue(side).isEmpty();
+        return !getSide(side).isEmpty();
     }
 
     public void removeFirst(Side side) {
-        getQueue(side).removeFirst();
+        getSide(side).removeFirst();
+    }
+
+    public void syncQuantity(Order order) {
+        getSide(order.getSide()).syncReservedQuantity(order);
     }
 
     public int totalSellQuantityByShareholder(Shareholder shareholder) {
-        return sellQueue.stream()
-                .filter(order -> order.getShareholder().equals(shareholder))
-                .mapToInt(Order::getTotalQuantity)
-                .sum();
+        int total = sellSide.reservedQuantityOf(shareholder);
+        assert total == scanSellQuantityByShareholder(shareholder)
+                : "Reserved sell quantity of " + shareholder + " is out of sync with the order book";
+        return total;
     }
+
+    public int scanSellQuantityByShareholder(Shareholder shareholder) {
+        return sellSide.scanQuantityOf(shareholder);
+    }
+    public AuctionEquilibrium getAuctionEquilibrium(int lastTradedPrice) {
+        int lowestBuyPrice = getLowestPriorityOrderPrice(Side.BUY);
+        int highestSellPrice = getLowestPriorityOrderPrice(Side.SELL);
+        if (lowestBuyPrice == INVALID_PRICE || highestSellPrice == INVALID_PRICE || lowestBuyPrice > highestSellPrice)
+            return AuctionEquilibrium.NONE;
+        AuctionEquilibrium equilibrium = auctionDepth.equilibrium(lowestBuyPrice, highestSellPrice, lastTradedPrice);
+        assert equilibrium.equals(sweepAuctionEquilibrium(lastTradedPrice))
+                : "Auction depth is out of sync with the order book";
+        return equilibrium;
+    }
+
+    public AuctionEquilibrium sweepAuctionEquilibrium(int lastTradedPrice) {
+        int lowestPrice = getLowestPriorityOrderPrice(Side.BUY);
+        int highestPrice = getLowestPriorityOrderPrice(Side.SELL);
+        if (lowestPrice == INVALID_PRICE || highestPrice == INVALID_PRICE || lowestPrice > highestPrice)
+            return AuctionEquilibrium.NONE;
+
+        ArrayList<PriceLevel> buyLevels = new ArrayList<>();
+        buySide.levels().forEach(buyLevels::add);
+        Collections.reverse(buyLevels);
+        ArrayList<PriceLevel> sellLevels = new ArrayList<>();
+        sellSide.levels().forEach(sellLevels::add);
+
+        long demand = buyLevels.stream().mapToLong(PriceLevel::getTotalQuantity).sum();
+        long supply = 0;
+        int buyIndex = 0;
+        int sellIndex = 0;
+        int maxTradableQuantity = 1;
+        int openingPrice = INVALID_PRICE;
+        int minDifference = Integer.MAX_VALUE;
+        int price = lowestPrice;
+        while (price <= highestPrice) {
+            while (sellIndex < sellLevels.size() && sellLevels.get(sellIndex).getPrice() <= price)
+                supply += sellLevels.get(sellIndex++).getTotalQuantity();
+            while (buyIndex < buyLevels.size() && buyLevels.get(buyIndex).getPrice() < price)
+                demand -= buyLevels.get(buyIndex++).getTotalQuantity();
+
+            int segmentEnd = highestPrice;
+            if (sellIndex < sellLevels.size())
+                segmentEnd = Math.min(segmentEnd, sellLevels.get(sellIndex).getPrice() - 1);
+            if (buyIndex < buyLevels.size())
+                segmentEnd = Math.min(segmentEnd, buyLevels.get(buyIndex).getPrice());
+
+            int tradableQuantity = (int) Math.min(demand, supply);
+            if (tradableQuantity >= maxTradableQuantity) {
+                int closestPrice = Math.max(price, Math.min(segmentEnd, lastTradedPrice));
+                int difference = Math.abs(closestPrice - lastTradedPrice);
+                if (tradableQuantity > maxTradableQuantity || difference < minDifference) {
+                    maxTradableQuantity = tradableQuantity;
+                    openingPrice = closestPrice;
+                    minDifference = difference;
+                }
+            }
+            price = segmentEnd + 1;
+        }
+        if (openingPrice == INVALID_PRICE)
+            return AuctionEquilibrium.NONE;
+        return new AuctionEquilibrium(openingPrice, maxTradableQuantity);
+    }
+
     public int getLowestPriorityOrderPrice(Side side){
-        if(getQueue(side).isEmpty())
+        Order last = getSide(side).last();
+        if (last == null)
             return INVALID_PRICE;
-        return getQueue(side).getLast().getPrice();
+        return last.getPrice();
     }
 
     public LinkedList<Order> findAllMatchingOrdersWithPrice(int price, Side side) {
         LinkedList<Order> matchingOrders = new LinkedList<>();
-        var queue = getQueue(side);
-        for (Order order : queue) {
-            if (order.matchesWithPrice(price))
-                matchingOrders.add(order);
+        for (PriceLevel level : getSide(side).levels()) {
+            if (!level.getFirstOrder().matchesWithPrice(price))
+                break;
+            level.forEach(matchingOrders::add);
         }
         return matchingOrders;
     }
@@ -0,0 +1,216 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.ToIntFunction;
+
+import static ir.ramtung.tinyme.domain.entity.OrderSlots.NIL;
+
+class OrderBookSide {
+    private static final int INITIAL_CAPACITY = 64;
+    private final Side side;
+    private final Comparator<Integer> priority;
+    private final OrderSlots slots;
+    private final OrderIdIndex slotByOrderId;
+    private final HashMap<Shareholder, Integer> reservedByShareholder;
+    private PriceLevels levels;
+    private AuctionDepth depth;
+
+    OrderBookSide(Side side, Comparator<Integer> priority, boolean tracksReservedQuantity) {
+        this(side, priority, new SortedPriceLevels(priority), tracksReservedQuantity);
+    }
+
+    OrderBookSide(Side side, Comparator<Integer> priority, PriceLevels levels, boolean tracksReservedQuantity) {
+        this.side = side;
+        this.priority = priority;
+        this.levels = levels;
+        slots = new OrderSlots(side, INITIAL_CAPACITY);
+        slotByOrderId = new OrderIdIndex(INITIAL_CAPACITY);
+        reservedByShareholder = tracksReservedQuantity ? new HashMap<>() : null;
+    }
+
+    void trackDepthIn(AuctionDepth depth) {
+        this.depth = depth;
+    }
+
+    boolean isEmpty() {
+        return levels.isEmpty();
+    }
+
+    boolean usesPriceLadder() {
+        return levels instanceof TickLadderPriceLevels;
+    }
+
+    Order first() {
+        PriceLevel bestLevel = levels.best();
+        if (bestLevel == null)
+            return null;
+        return bestLevel.getFirstOrder();
+    }
+
+    Order last() {
+        PriceLevel worstLevel = levels.worst();
+        if (worstLevel == null)
+            return null;
+        return worstLevel.getLastOrder();
+    }
+
+    void addLast(int levelPrice, Order order) {
+        append(levelAt(levelPrice), order);
+    }
+
+    void appendAll(List<? extends Order> orders, ToIntFunction<Order> levelPriceOf) {
+        if (!isEmpty())
+            throw new IllegalStateException("Bulk load needs an empty order book side");
+        List<Order> ordered = new ArrayList<>(orders);
+        ordered.sort(Comparator.comparing(levelPriceOf::applyAsInt, priority));
+        PriceLevel tail = null;
+        for (Order order : ordered) {
+            int levelPrice = levelPriceOf.applyAsInt(order);
+            if (tail == null || tail.getPrice() != levelPrice)
+                tail = levelAt(levelPrice);
+            append(tail, order);
+        }
+    }
+
+    void addFirst(int levelPrice, Order order) {
+        int slot = slots.allocate(order);
+        levelAt(levelPrice).addFirst(slot);
+        slotByOrderId.put(order.getOrderId(), slot);
+        reserve(slot, slots.reservedQuantity(slot));
+    }
+
+    Order removeFirst() {
+        int slot = levels.best().firstSlot();
+        Order order = slots.order(slot);
+        slotByOrderId.removeIfMapsTo(order.getOrderId(), slot);
+        unlinkAndRelease(slot);
+        return order;
+    }
+
+    void drainWhile(IntPredicate levelPriceMatches, Consumer<Order> drained) {
+        for (PriceLevel level = levels.best(); level != null && levelPriceMatches.test(level.getPrice());
+             level = levels.best())
+            drained.accept(removeFirst());
+    }
+
+    Order find(long orderId) {
+        int slot = slotByOrderId.get(orderId);
+        return slot == NIL ? null : slots.order(slot);
+    }
+
+    Order remove(long orderId) {
+        int slot = slotByOrderId.remove(orderId);
+        if (slot == NIL)
+            return null;
+        Order order = slots.order(slot);
+        unlinkAndRelease(slot);
+        return order;
+    }
+
+    void syncReservedQuantity(Order order) {
+        int slot = slotByOrderId.get(order.getOrderId());
+        if (slot == NIL || !slots.isCheckedOut(slot, order))
+            return;
+        int change = order.getTotalQuantity() - slots.reservedQuantity(slot);
+        reserve(slot, change);
+        slots.setReservedQuantity(slot, order.getTotalQuantity());
+    }
+
+    int reservedQuantityOf(Shareholder shareholder) {
+        return reservedByShareholder.getOrDefault(shareholder, 0);
+    }
+
+    int scanQuantityOf(Shareholder shareholder) {
+        int total = 0;
+        for (PriceLevel level : levels) {
+            for (int slot = level.firstSlot(); slot != NIL; slot = slots.next(slot)) {
+                if (slots.shareholder(slot).equals(shareholder))
+                    total += slots.totalQuantity(slot);
+            }
+        }
+        return total;
+    }
+
+    void releaseOrders() {
+        slots.checkIn();
+    }
+
+    Iterable<PriceLevel> levels() {
+        return levels;
+    }
+
+    Iterable<Order> orders() {
+        return () -> new Iterator<>() {
+            private final Iterator<PriceLevel> remainingLevels = levels.iterator();
+            private Iterator<Order> level = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!level.hasNext() && remainingLevels.hasNext())
+                    level = remainingLevels.next().iterator();
+                return level.hasNext();
+            }
+
+            @Override
+            public Order next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return level.next();
+            }
+        };
+    }
+
+    LinkedList<Order> toList() {
+        LinkedList<Order> orders = new LinkedList<>();
+        for (PriceLevel level : levels)
+            level.forEach(orders::add);
+        return orders;
+    }
+
+    private void append(PriceLevel level, Order order) {
+        int slot = slots.allocate(order);
+        level.addLast(slot);
+        slotByOrderId.put(order.getOrderId(), slot);
+        reserve(slot, slots.reservedQuantity(slot));
+    }
+
+    private void reserve(int slot, int quantity) {
+        if (quantity == 0)
+            return;
+        if (reservedByShareholder != null)
+            reservedByShareholder.merge(slots.shareholder(slot), quantity, (current, change) ->
+                    current + change == 0 ? null : current + change);
+        if (depth != null)
+            depth.add(side, slots.levelPrice(slot), quantity);
+    }
+
+    private void unlinkAndRelease(int slot) {
+        reserve(slot, -slots.reservedQuantity(slot));
+        PriceLevel level = levels.get(slots.levelPrice(slot));
+        level.unlink(slot);
+        slots.release(slot);
+        if (level.isEmpty())
+            levels.remove(level);
+    }
+
+    private PriceLevel levelAt(int levelPrice) {
+        PriceLevel level = levels.get(levelPrice);
+        if (level != null)
+            return level;
+        level = new PriceLevel(levelPrice, slots);
+        if (!levels.add(level)) {
+            levels = SortedPriceLevels.copyOf(levels, priority);
+            levels.add(level);
+        }
+        return level;
+    }
+}
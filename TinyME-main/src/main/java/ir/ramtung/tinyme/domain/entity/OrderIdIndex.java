@@ -0,0 +1,102 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Arrays;
+
+class OrderIdIndex {
+    static final int NONE = -1;
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    OrderIdIndex(int initialCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(initialCapacity, 8) - 1) << 1;
+        allocate(capacity);
+    }
+
+    int get(long key) {
+        for (int i = home(key); values[i] != NONE; i = (i + 1) & mask) {
+            if (keys[i] == key)
+                return values[i];
+        }
+        return NONE;
+    }
+
+    void put(long key, int value) {
+        if ((size + 1) * 2 > values.length)
+            rehash(values.length * 2);
+        int i = home(key);
+        while (values[i] != NONE) {
+            if (keys[i] == key) {
+                values[i] = value;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+        size++;
+    }
+
+    int remove(long key) {
+        for (int i = home(key); values[i] != NONE; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                int value = values[i];
+                deleteAt(i);
+                return value;
+            }
+        }
+        return NONE;
+    }
+
+    void removeIfMapsTo(long key, int value) {
+        for (int i = home(key); values[i] != NONE; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                if (values[i] == value)
+                    deleteAt(i);
+                return;
+            }
+        }
+    }
+
+    private void deleteAt(int gap) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == NONE)
+                break;
+            int home = home(keys[i]);
+            boolean staysPut = gap <= i ? (gap < home && home <= i) : (gap < home || home <= i);
+            if (!staysPut) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = NONE;
+        size--;
+    }
+
+    private int home(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != NONE)
+                put(oldKeys[i], oldValues[i]);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, NONE);
+        mask = capacity - 1;
+        size = 0;
+    }
+}
@@ -0,0 +1,285 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Resting orders live in primitive columns, so the collector traces nothing per order however deep the book is.
+// Matching works on Order objects: a slot is materialised when it is asked for and stays checked out as the same
+// object until checkIn, at the end of the request, writes its fields back and drops it.
+class OrderSlots {
+    static final int NIL = -1;
+    private static final byte PLAIN = 0;
+    private static final byte ICEBERG = 1;
+    private static final byte STOP_LIMIT = 2;
+    private static final long NO_ENTRY_TIME = Long.MIN_VALUE;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+    private final Side side;
+    private final int initialCapacity;
+    private final References<Security> securities = new References<>();
+    private final References<Broker> brokers = new References<>();
+    private final References<Shareholder> shareholders = new References<>();
+    private long[] orderIds;
+    private byte[] kinds;
+    private byte[] statuses;
+    private int[] securityRefs;
+    private int[] brokerRefs;
+    private int[] shareholderRefs;
+    private int[] quantities;
+    private int[] prices;
+    private long[] entrySeconds;
+    private int[] entryNanos;
+    private int[] minimumExecutionQuantities;
+    private int[] peakSizesOrStopPrices;
+    private int[] displayedQuantities;
+    private long[] stopLimitRequestIds;
+    private int[] levelPrices;
+    private int[] previous;
+    private int[] next;
+    private int[] reservedQuantities;
+    private int[] checkedOutAt;
+    private Order[] checkedOut;
+    private int[] checkedOutSlots;
+    private int checkedOutCount;
+    private int freeHead = NIL;
+    private int highWater;
+
+    OrderSlots(Side side, int initialCapacity) {
+        this.side = side;
+        this.initialCapacity = initialCapacity;
+        orderIds = new long[initialCapacity];
+        kinds = new byte[initialCapacity];
+        statuses = new byte[initialCapacity];
+        securityRefs = new int[initialCapacity];
+        brokerRefs = new int[initialCapacity];
+        shareholderRefs = new int[initialCapacity];
+        quantities = new int[initialCapacity];
+        prices = new int[initialCapacity];
+        entrySeconds = new long[initialCapacity];
+        entryNanos = new int[initialCapacity];
+        minimumExecutionQuantities = new int[initialCapacity];
+        peakSizesOrStopPrices = new int[initialCapacity];
+        displayedQuantities = new int[initialCapacity];
+        stopLimitRequestIds = new long[initialCapacity];
+        levelPrices = new int[initialCapacity];
+        previous = new int[initialCapacity];
+        next = new int[initialCapacity];
+        reservedQuantities = new int[initialCapacity];
+        checkedOutAt = new int[initialCapacity];
+        Arrays.fill(checkedOutAt, NIL);
+        checkedOut = new Order[initialCapacity];
+        checkedOutSlots = new int[initialCapacity];
+    }
+
+    int allocate(Order order) {
+        int slot;
+        if (freeHead != NIL) {
+            slot = freeHead;
+            freeHead = next[slot];
+        } else {
+            if (highWater == orderIds.length)
+                grow();
+            slot = highWater++;
+        }
+        orderIds[slot] = order.getOrderId();
+        kinds[slot] = order instanceof IcebergOrder ? ICEBERG : order instanceof StopLimitOrder ? STOP_LIMIT : PLAIN;
+        securityRefs[slot] = securities.indexOf(order.getSecurity());
+        brokerRefs[slot] = brokers.indexOf(order.getBroker());
+        shareholderRefs[slot] = shareholders.indexOf(order.getShareholder());
+        LocalDateTime entryTime = order.getEntryTime();
+        entrySeconds[slot] = entryTime == null ? NO_ENTRY_TIME : entryTime.toEpochSecond(ZoneOffset.UTC);
+        entryNanos[slot] = entryTime == null ? 0 : entryTime.getNano();
+        store(slot, order);
+        previous[slot] = NIL;
+        next[slot] = NIL;
+        reservedQuantities[slot] = order.getTotalQuantity();
+        checkOut(slot, order);
+        return slot;
+    }
+
+    void release(int slot) {
+        int at = checkedOutAt[slot];
+        if (at != NIL) {
+            checkedOut[at] = null;
+            checkedOutSlots[at] = NIL;
+            checkedOutAt[slot] = NIL;
+        }
+        previous[slot] = NIL;
+        next[slot] = freeHead;
+        freeHead = slot;
+    }
+
+    Order order(int slot) {
+        int at = checkedOutAt[slot];
+        if (at != NIL)
+            return checkedOut[at];
+        Order order = materialize(slot);
+        checkOut(slot, order);
+        return order;
+    }
+
+    boolean isCheckedOut(int slot, Order order) {
+        int at = checkedOutAt[slot];
+        return at != NIL && checkedOut[at] == order;
+    }
+
+    void checkIn() {
+        for (int i = 0; i < checkedOutCount; i++) {
+            int slot = checkedOutSlots[i];
+            if (slot != NIL) {
+                store(slot, checkedOut[i]);
+                checkedOutAt[slot] = NIL;
+            }
+        }
+        if (checkedOut.length > initialCapacity) {
+            checkedOut = new Order[initialCapacity];
+            checkedOutSlots = new int[initialCapacity];
+        } else {
+            Arrays.fill(checkedOut, 0, checkedOutCount, null);
+        }
+        checkedOutCount = 0;
+    }
+
+    long orderId(int slot) {
+        return orderIds[slot];
+    }
+
+    Shareholder shareholder(int slot) {
+        return shareholders.get(shareholderRefs[slot]);
+    }
+
+    int totalQuantity(int slot) {
+        int at = checkedOutAt[slot];
+        return at != NIL ? checkedOut[at].getTotalQuantity() : quantities[slot];
+    }
+
+    int levelPrice(int slot) {
+        return levelPrices[slot];
+    }
+
+    int previous(int slot) {
+        return previous[slot];
+    }
+
+    int next(int slot) {
+        return next[slot];
+    }
+
+    int reservedQuantity(int slot) {
+        return reservedQuantities[slot];
+    }
+
+    void setReservedQuantity(int slot, int quantity) {
+        reservedQuantities[slot] = quantity;
+    }
+
+    void link(int slot, int levelPrice, int previousSlot, int nextSlot) {
+        levelPrices[slot] = levelPrice;
+        previous[slot] = previousSlot;
+        next[slot] = nextSlot;
+    }
+
+    void setPrevious(int slot, int previousSlot) {
+        previous[slot] = previousSlot;
+    }
+
+    void setNext(int slot, int nextSlot) {
+        next[slot] = nextSlot;
+    }
+
+    private void store(int slot, Order order) {
+        statuses[slot] = (byte) order.getStatus().ordinal();
+        quantities[slot] = order.getTotalQuantity();
+        prices[slot] = order.getPrice();
+        minimumExecutionQuantities[slot] = order.getMinimumExecutionQuantity();
+        if (order instanceof IcebergOrder icebergOrder) {
+            peakSizesOrStopPrices[slot] = icebergOrder.getPeakSize();
+            displayedQuantities[slot] = icebergOrder.getDisplayedQuantity();
+        } else if (order instanceof StopLimitOrder stopLimitOrder) {
+            peakSizesOrStopPrices[slot] = stopLimitOrder.getStopPrice();
+            stopLimitRequestIds[slot] = stopLimitOrder.getStopLimitRequestID();
+        }
+    }
+
+    private Order materialize(int slot) {
+        Security security = securities.get(securityRefs[slot]);
+        Broker broker = brokers.get(brokerRefs[slot]);
+        Shareholder shareholder = shareholders.get(shareholderRefs[slot]);
+        LocalDateTime entryTime = entrySeconds[slot] == NO_ENTRY_TIME ? null
+                : LocalDateTime.ofEpochSecond(entrySeconds[slot], entryNanos[slot], ZoneOffset.UTC);
+        OrderStatus status = STATUSES[statuses[slot]];
+        Order order;
+        if (kinds[slot] == ICEBERG) {
+            order = new IcebergOrder(orderIds[slot], security, side, quantities[slot], prices[slot], broker, shareholder,
+                    entryTime, peakSizesOrStopPrices[slot], displayedQuantities[slot], status,
+                    minimumExecutionQuantities[slot]);
+        } else if (kinds[slot] == STOP_LIMIT) {
+            order = new StopLimitOrder(orderIds[slot], security, side, quantities[slot], prices[slot], broker,
+                    shareholder, entryTime, status, peakSizesOrStopPrices[slot], stopLimitRequestIds[slot]);
+            order.returnToOriginalMinimumExecutionQuantity(minimumExecutionQuantities[slot]);
+        } else {
+            order = new Order(orderIds[slot], security, side, quantities[slot], prices[slot], broker, shareholder,
+                    entryTime, status, minimumExecutionQuantities[slot]);
+        }
+        return order;
+    }
+
+    private void checkOut(int slot, Order order) {
+        if (checkedOutCount == checkedOut.length) {
+            checkedOut = Arrays.copyOf(checkedOut, checkedOutCount * 2);
+            checkedOutSlots = Arrays.copyOf(checkedOutSlots, checkedOutCount * 2);
+        }
+        checkedOut[checkedOutCount] = order;
+        checkedOutSlots[checkedOutCount] = slot;
+        checkedOutAt[slot] = checkedOutCount++;
+    }
+
+    private void grow() {
+        int capacity = orderIds.length * 2;
+        orderIds = Arrays.copyOf(orderIds, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        securityRefs = Arrays.copyOf(securityRefs, capacity);
+        brokerRefs = Arrays.copyOf(brokerRefs, capacity);
+        shareholderRefs = Arrays.copyOf(shareholderRefs, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        entrySeconds = Arrays.copyOf(entrySeconds, capacity);
+        entryNanos = Arrays.copyOf(entryNanos, capacity);
+        minimumExecutionQuantities = Arrays.copyOf(minimumExecutionQuantities, capacity);
+        peakSizesOrStopPrices = Arrays.copyOf(peakSizesOrStopPrices, capacity);
+        displayedQuantities = Arrays.copyOf(displayedQuantities, capacity);
+        stopLimitRequestIds = Arrays.copyOf(stopLimitRequestIds, capacity);
+        levelPrices = Arrays.copyOf(levelPrices, capacity);
+        previous = Arrays.copyOf(previous, capacity);
+        next = Arrays.copyOf(next, capacity);
+        reservedQuantities = Arrays.copyOf(reservedQuantities, capacity);
+        int grownFrom = checkedOutAt.length;
+        checkedOutAt = Arrays.copyOf(checkedOutAt, capacity);
+        Arrays.fill(checkedOutAt, grownFrom, capacity, NIL);
+    }
+
+    // Brokers, shareholders and securities are few next to orders, so each distinct one is kept once per side
+    private static final class References<T> {
+        private final Map<T, Integer> indexOf = new IdentityHashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+        int indexOf(T value) {
+            Integer index = indexOf.get(value);
+            if (index == null) {
+                index = values.size();
+                indexOf.put(value, index);
+                values.add(value);
+            }
+            return index;
+        }
+
+        T get(int index) {
+            return values.get(index);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static ir.ramtung.tinyme.domain.entity.OrderSlots.NIL;
+
+public class PriceLevel implements Iterable<Order> {
+    @Getter
+    private final int price;
+    private final OrderSlots slots;
+    private int head = NIL;
+    private int tail = NIL;
+    @Getter
+    private int size;
+
+    PriceLevel(int price, OrderSlots slots) {
+        this.price = price;
+        this.slots = slots;
+    }
+
+    public boolean isEmpty() {
+        return head == NIL;
+    }
+
+    public Order getFirstOrder() {
+        return head == NIL ? null : slots.order(head);
+    }
+
+    public Order getLastOrder() {
+        return tail == NIL ? null : slots.order(tail);
+    }
+
+    public int getTotalQuantity() {
+        int total = 0;
+        for (int slot = head; slot != NIL; slot = slots.next(slot))
+            total += slots.totalQuantity(slot);
+        return total;
+    }
+
+    int firstSlot() {
+        return head;
+    }
+
+    void addLast(int slot) {
+        slots.link(slot, price, tail, NIL);
+        if (tail == NIL)
+            head = slot;
+        else
+            slots.setNext(tail, slot);
+        tail = slot;
+        size++;
+    }
+
+    void addFirst(int slot) {
+        slots.link(slot, price, NIL, head);
+        if (head == NIL)
+            tail = slot;
+        else
+            slots.setPrevious(head, slot);
+        head = slot;
+        size++;
+    }
+
+    void unlink(int slot) {
+        int previous = slots.previous(slot);
+        int next = slots.next(slot);
+        if (previous == NIL)
+            head = next;
+        else
+            slots.setNext(previous, next);
+        if (next == NIL)
+            tail = previous;
+        else
+            slots.setPrevious(next, previous);
+        slots.link(slot, price, NIL, NIL);
+        size--;
+    }
+
+    @Override
+    public Iterator<Order> iterator() {
+        return new Iterator<>() {
+            private int current = head;
+
+            @Override
+            public boolean hasNext() {
+                return current != NIL;
+            }
+
+            @Override
+            public Order next() {
+                if (current == NIL)
+                    throw new NoSuchElementException();
+                Order order = slots.order(current);
+                current = slots.next(current);
+                return order;
+            }
+        };
+    }
+}
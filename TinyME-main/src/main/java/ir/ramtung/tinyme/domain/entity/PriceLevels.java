@@ -0,0 +1,17 @@
+package ir.ramtung.tinyme.domain.entity;
+
+interface PriceLevels extends Iterable<PriceLevel> {
+    PriceLevel get(int price);
+
+    boolean add(PriceLevel level);
+
+    void remove(PriceLevel level);
+
+    PriceLevel best();
+
+    PriceLevel worst();
+
+    default boolean isEmpty() {
+        return best() == null;
+    }
+}
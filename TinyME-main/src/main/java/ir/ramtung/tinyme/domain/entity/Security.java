@@ -9,8 +9,9 @@ import lombok.Builder;
 import lombok.Getter;
 import lombok.Setter;
 
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Getter
 @Builder
@@ -32,6 +33,8 @@ public class Security {
     @Setter
     @Builder.Default
     private int openingPrice = -1;
+    @Builder.Default
+    private Set<Shareholder> holders = ConcurrentHashMap.newKeySet();
 
     public MatchResult newOrder(EnterOrderRq enterOrderRq, Broker broker, Shareholder shareholder, Matcher matcher) {
         Order order = createNewOrder(enterOrderRq, broker, shareholder);
@@ -58,13 +61,11 @@ public class Security {
     }
 
     public void deleteOrder(DeleteOrderRq deleteOrderRq) {
-        Order order = orderBook.findByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
-        StopLimitOrder stopLimitOrder = (StopLimitOrder) stopLimitOrderBook.findByOrderId
-                (deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
-        if (order != null)
-            deleteNormalOrder(order);
-        else
-            deleteStopLimitOrder(stopLimitOrder);
+        Order order = orderBook.removeByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
+        if (order == null)
+            order = stopLimitOrderBook.removeByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
+        if (order.getSide() == Side.BUY)
+            order.getBroker().increaseCreditBy(order.getValue());
     }
     public MatchResult activateOrder(StopLimitOrder originalOrder, StopLimitOrder order, Matcher matcher){
         preprocessStopLimitOrder(order, originalOrder);
@@ -77,7 +78,7 @@ public class Security {
         return matchResult;
     }
     public MatchResult updateOrder(EnterOrderRq updateOrderRq, Matcher matcher) {
-        Order order = getOrderByID(updateOrderRq);
+        Order order = findOrderById(updateOrderRq.getSide(), updateOrderRq.getOrderId());
         boolean losesPriority = LosesPriority(updateOrderRq, order);
 
         Order originalOrder = order.snapshot();
@@ -91,6 +92,7 @@ public class Security {
         }
         increaseBuyBrokerCredit(updateOrderRq, order, originalOrder);
         if (!losesPriority) {
+            orderBook.syncQuantity(order);
             decreaseBuyBrokerCredit(updateOrderRq, order);
             return MatchResult.executedContinuous(null, List.of(), lastTradedPrice, false);
         }
@@ -153,34 +155,20 @@ public class Security {
 
     }
 
-    private Order getOrderByID(EnterOrderRq updateOrderRq) {
-        Order order = orderBook.findByOrderId(updateOrderRq.getSide(), updateOrderRq.getOrderId());
+    public Order findOrderById(Side side, long orderId) {
+        Order order = orderBook.findByOrderId(side, orderId);
         if (order == null)
-            order = stopLimitOrderBook.findByOrderId(updateOrderRq.getSide(), updateOrderRq.getOrderId());
+            order = stopLimitOrderBook.findByOrderId(side, orderId);
         return order;
     }
 
-    public List<StopLimitOrder> findActivatedOrders() {
-        List<StopLimitOrder> ordersToActivate = new LinkedList<>();
-        StopLimitOrder activatedOrder = stopLimitOrderBook.findFirstActivatedOrder(lastTradedPrice);
-        while (activatedOrder != null) {
-            ordersToActivate.add(activatedOrder);
-            stopLimitOrderBook.removeFirst(activatedOrder.getSide());
-            activatedOrder = stopLimitOrderBook.findFirstActivatedOrder(lastTradedPrice);
-        }
-        return ordersToActivate;
-    }
-    private void deleteNormalOrder(Order order)
-    {
-        if (order.getSide() == Side.BUY)
-            order.getBroker().increaseCreditBy(order.getValue());
-        orderBook.removeByOrderId(order.getSide(), order.getOrderId());
+    public void releaseOrders() {
+        orderBook.releaseOrders();
+        stopLimitOrderBook.releaseOrders();
     }
-    private void deleteStopLimitOrder(StopLimitOrder stopLimitOrder)
-    {
-        if (stopLimitOrder.getSide() == Side.BUY)
-            stopLimitOrder.getBroker().increaseCreditBy(stopLimitOrder.getValue());
-        stopLimitOrderBook.removeByOrderId(stopLimitOrder.getSide(), stopLimitOrder.getOrderId());
+
+    public List<StopLimitOrder> findActivatedOrders() {
+        return stopLimitOrderBook.drainActivatedOrders(lastTradedPrice);
     }
 
     private void rollbackStopLimitOrder(StopLimitOrder originalOrder) {
@@ -0,0 +1,66 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.TreeMap;
+
+class SortedPriceLevels implements PriceLevels {
+    private final TreeMap<Integer, PriceLevel> levels;
+    private PriceLevel bestLevel;
+    private PriceLevel worstLevel;
+
+    SortedPriceLevels(Comparator<Integer> priority) {
+        levels = new TreeMap<>(priority);
+    }
+
+    static SortedPriceLevels copyOf(PriceLevels other, Comparator<Integer> priority) {
+        SortedPriceLevels copy = new SortedPriceLevels(priority);
+        for (PriceLevel level : other)
+            copy.add(level);
+        return copy;
+    }
+
+    @Override
+    public PriceLevel get(int price) {
+        return levels.get(price);
+    }
+
+    @Override
+    public boolean add(PriceLevel level) {
+        levels.put(level.getPrice(), level);
+        if (bestLevel == null || levels.comparator().compare(level.getPrice(), bestLevel.getPrice()) < 0)
+            bestLevel = level;
+        if (worstLevel == null || levels.comparator().compare(level.getPrice(), worstLevel.getPrice()) > 0)
+            worstLevel = level;
+        return true;
+    }
+
+    @Override
+    public void remove(PriceLevel level) {
+        levels.remove(level.getPrice());
+        if (levels.isEmpty()) {
+            bestLevel = null;
+            worstLevel = null;
+            return;
+        }
+        if (level == bestLevel)
+            bestLevel = levels.firstEntry().getValue();
+        if (level == worstLevel)
+            worstLevel = levels.lastEntry().getValue();
+    }
+
+    @Override
+    public PriceLevel best() {
+        return bestLevel;
+    }
+
+    @Override
+    public PriceLevel worst() {
+        return worstLevel;
+    }
+
+    @Override
+    public Iterator<PriceLevel> iterator() {
+        return levels.values().iterator();
+    }
+}
@@ -39,7 +39,7 @@ public class StopLimitOrder extends Order{
     public Order convertToOrder()
     {
         return new Order(orderId, security, side, quantity, price, broker, shareholder,
-                LocalDateTime.now(), OrderStatus.NEW, 0);
+                entryTime, OrderStatus.NEW, 0);
     }
 
     @Override
@@ -1,65 +1,38 @@
 package ir.ramtung.tinyme.domain.entity;
 
-import lombok.Getter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
 
-@Getter
 public class StopLimitOrderbook extends OrderBook {
-    private int maxSellStopPrice;
-    private int minBuyStopPrice;
     public StopLimitOrderbook() {
-        super();
-        maxSellStopPrice = 0;
-        minBuyStopPrice = Integer.MAX_VALUE;
+        super(Comparator.naturalOrder(), Comparator.reverseOrder());
     }
     @Override
-    public void enqueue(Order order) {
-        super.enqueue(order);
-        updateMinMaxStopPrice(order.getSide());
+    protected int levelPriceOf(Order order) {
+        return ((StopLimitOrder) order).getStopPrice();
     }
-    @Override
-    public void removeFirst(Side side){
-        super.removeFirst(side);
-        updateMinMaxStopPrice(side);
+    public int getMaxSellStopPrice() {
+        Order first = getFirstOrder(Side.SELL);
+        return first == null ? 0 : levelPriceOf(first);
     }
-    @Override
-    public void removeByOrderId(Side side, long orderId){
-        super.removeByOrderId(side, orderId);
-        updateMinMaxStopPrice(side);
+    public int getMinBuyStopPrice() {
+        Order first = getFirstOrder(Side.BUY);
+        return first == null ? Integer.MAX_VALUE : levelPriceOf(first);
     }
     public StopLimitOrder findFirstActivatedOrder(int lastTradedPrice) {
-        if (!getSellQueue().isEmpty() && maxSellStopPriceIsHigherThan(lastTradedPrice)) {
-            StopLimitOrder sellOrder = (StopLimitOrder) getSellQueue().getFirst();
-            if (sellOrder.hasReachedStopPrice(lastTradedPrice)) {
-                return sellOrder;
-            }
-        }
-        else if (!getBuyQueue().isEmpty() && minBuyStopPriceIsLowerThan(lastTradedPrice)) {
-            StopLimitOrder buyOrder = (StopLimitOrder) getBuyQueue().getFirst();
-            if (buyOrder.hasReachedStopPrice(lastTradedPrice)) {
-                return buyOrder;
-            }
-        }
+        if (getMaxSellStopPrice() >= lastTradedPrice)
+            return (StopLimitOrder) getFirstOrder(Side.SELL);
+        if (getMinBuyStopPrice() <= lastTradedPrice)
+            return (StopLimitOrder) getFirstOrder(Side.BUY);
         return null;
     }
-
-    private void updateMinMaxStopPrice(Side side)  {
-        if (side == Side.BUY)
-            updateMinBuyStopPrice();
-        else
-            updateMaxSellStopPrice();
-    }
-    private void updateMaxSellStopPrice() {
-        if (!getSellQueue().isEmpty())
-            maxSellStopPrice = ((StopLimitOrder) getSellQueue().getFirst()).getStopPrice();
-        else
-            maxSellStopPrice = 0;
-    }
-    private void updateMinBuyStopPrice() {
-        if (!getBuyQueue().isEmpty())
-            minBuyStopPrice = ((StopLimitOrder) getBuyQueue().getFirst()).getStopPrice();
-        else
-            minBuyStopPrice = Integer.MAX_VALUE;
+    public List<StopLimitOrder> drainActivatedOrders(int lastTradedPrice) {
+        List<StopLimitOrder> activatedOrders = new ArrayList<>();
+        sellSide.drainWhile(stopPrice -> stopPrice >= lastTradedPrice,
+                order -> activatedOrders.add((StopLimitOrder) order));
+        buySide.drainWhile(stopPrice -> stopPrice <= lastTradedPrice,
+                order -> activatedOrders.add((StopLimitOrder) order));
+        return activatedOrders;
     }
-    private boolean maxSellStopPriceIsHigherThan(int lastTradedPrice) {return maxSellStopPrice >= lastTradedPrice;}
-    private boolean minBuyStopPriceIsLowerThan(int lastTradedPrice) {return minBuyStopPrice <= lastTradedPrice;}
 }
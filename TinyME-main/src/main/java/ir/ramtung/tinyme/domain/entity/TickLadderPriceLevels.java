@@ -0,0 +1,156 @@
+package ir.ramtung.tinyme.domain.entity;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+class TickLadderPriceLevels implements PriceLevels {
+    private static final int NONE = -1;
+    private final int tickSize;
+    private final boolean highestFirst;
+    private PriceLevel[] ladder;
+    private int basePrice;
+    private boolean anchored;
+    private int bestIndex = NONE;
+    private int worstIndex = NONE;
+
+    TickLadderPriceLevels(int tickSize, int ladderTicks, boolean highestFirst) {
+        if (tickSize <= 0 || ladderTicks <= 0)
+            throw new IllegalArgumentException("Tick size and ladder size must be positive");
+        this.tickSize = tickSize;
+        this.highestFirst = highestFirst;
+        this.ladder = new PriceLevel[ladderTicks];
+    }
+
+    @Override
+    public PriceLevel get(int price) {
+        int index = indexOf(price);
+        return index == NONE ? null : ladder[index];
+    }
+
+    @Override
+    public boolean add(PriceLevel level) {
+        int price = level.getPrice();
+        if (!anchored)
+            anchorAround(price);
+        int index = indexOf(price);
+        if (index == NONE) {
+            if (!recenterToInclude(price))
+                return false;
+            index = indexOf(price);
+        }
+        ladder[index] = level;
+        if (bestIndex == NONE || isBetter(index, bestIndex))
+            bestIndex = index;
+        if (worstIndex == NONE || isBetter(worstIndex, index))
+            worstIndex = index;
+        return true;
+    }
+
+    @Override
+    public void remove(PriceLevel level) {
+        int index = indexOf(level.getPrice());
+        ladder[index] = null;
+        if (index == bestIndex && index == worstIndex) {
+            bestIndex = NONE;
+            worstIndex = NONE;
+        } else if (index == bestIndex) {
+            bestIndex = nextOccupied(index, worseStep());
+        } else if (index == worstIndex) {
+            worstIndex = nextOccupied(index, -worseStep());
+        }
+    }
+
+    @Override
+    public PriceLevel best() {
+        return bestIndex == NONE ? null : ladder[bestIndex];
+    }
+
+    @Override
+    public PriceLevel worst() {
+        return worstIndex == NONE ? null : ladder[worstIndex];
+    }
+
+    @Override
+    public Iterator<PriceLevel> iterator() {
+        return new Iterator<>() {
+            private int current = bestIndex;
+
+            @Override
+            public boolean hasNext() {
+                return current != NONE;
+            }
+
+            @Override
+            public PriceLevel next() {
+                if (current == NONE)
+                    throw new NoSuchElementException();
+                PriceLevel level = ladder[current];
+                current = current == worstIndex ? NONE : nextOccupied(current, worseStep());
+                return level;
+            }
+        };
+    }
+
+    private int indexOf(int price) {
+        if (!anchored)
+            return NONE;
+        long offset = (long) price - basePrice;
+        if (offset < 0 || offset % tickSize != 0)
+            return NONE;
+        long index = offset / tickSize;
+        return index < ladder.length ? (int) index : NONE;
+    }
+
+    private void anchorAround(int price) {
+        basePrice = price - (ladder.length / 2) * tickSize;
+        anchored = true;
+    }
+
+    private boolean recenterToInclude(int price) {
+        if (bestIndex == NONE) {
+            anchorAround(price);
+            return true;
+        }
+        if (((long) price - basePrice) % tickSize != 0)
+            return false;
+        int lowestPrice = Math.min(price, priceAt(Math.min(bestIndex, worstIndex)));
+        int highestPrice = Math.max(price, priceAt(Math.max(bestIndex, worstIndex)));
+        long spanTicks = ((long) highestPrice - lowestPrice) / tickSize + 1;
+        if (spanTicks > ladder.length)
+            return false;
+
+        int newBasePrice = lowestPrice - (int) ((ladder.length - spanTicks) / 2) * tickSize;
+        PriceLevel[] moved = new PriceLevel[ladder.length];
+        for (int index = Math.min(bestIndex, worstIndex); index <= Math.max(bestIndex, worstIndex); index++) {
+            if (ladder[index] != null)
+                moved[(ladder[index].getPrice() - newBasePrice) / tickSize] = ladder[index];
+        }
+        int bestPrice = priceAt(bestIndex);
+        int worstPrice = priceAt(worstIndex);
+        ladder = moved;
+        basePrice = newBasePrice;
+        bestIndex = indexOf(bestPrice);
+        worstIndex = indexOf(worstPrice);
+        return true;
+    }
+
+    private int priceAt(int index) {
+        return basePrice + index * tickSize;
+    }
+
+    private int worseStep() {
+        return highestFirst ? -1 : 1;
+    }
+
+    private boolean isBetter(int index, int otherIndex) {
+        return highestFirst ? index > otherIndex : index < otherIndex;
+    }
+
+    private int nextOccupied(int from, int step) {
+        for (int index = from + step; index >= 0 && index < ladder.length; index += step) {
+            if (ladder[index] != null)
+                return index;
+        }
+        return NONE;
+    }
+}
@@ -4,7 +4,6 @@ import ir.ramtung.tinyme.domain.entity.*;
 import ir.ramtung.tinyme.messaging.request.MatchingState;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.LinkedList;
 
 @Service
@@ -20,11 +19,11 @@ public class AuctionMatcher extends Matcher{
         LinkedList<Trade> trades = new LinkedList<>();
 
         while (!isAuctionOver(isMatchingOver, security)) {
-            Order sellOrder = security.getOrderBook().getSellQueue().getFirst();
+            Order sellOrder = security.getOrderBook().getFirstOrder(Side.SELL);
             if(!sellOrder.matchesWithPrice(security.getOpeningPrice()))
                 break;
             while (security.getOrderBook().hasOrderOfType(sellOrder.getSide().opposite()) && sellOrder.getQuantity() > 0) {
-                Order buyOrder = security.getOrderBook().getBuyQueue().getFirst();
+                Order buyOrder = security.getOrderBook().getFirstOrder(Side.BUY);
                 if (!buyOrder.matchesWithPrice(security.getOpeningPrice())) {
                     isMatchingOver = true;
                     break;
@@ -53,17 +52,17 @@ public class AuctionMatcher extends Matcher{
 
         decreaseBuyBrokerCredit(order);
         order.getSecurity().getOrderBook().enqueue(order);
-        int newOpeningPrice = calculateOpeningPrice(order.getSecurity().getOrderBook(), order.getSecurity().getLastTradedPrice());
+        AuctionEquilibrium equilibrium = order.getSecurity().getOrderBook()
+                .getAuctionEquilibrium(order.getSecurity().getLastTradedPrice());
         return MatchResult.queuedInAuction(order, order.getSecurity().getLastTradedPrice(),
-                calculateTradableQuantity(order.getSecurity().getOrderBook(),newOpeningPrice),
-                newOpeningPrice);
+                equilibrium.tradableQuantity(), equilibrium.openingPrice());
     }
 
     @Override
     protected void matchTheTwoOrders(int openingPrice, OrderBook orderBook, LinkedList<Trade> trades, Order sellOrder, Order buyOrder, int tradeQuantity) {
         addNewTrade(openingPrice, trades, sellOrder, buyOrder, tradeQuantity);
         adjustBrokerCredit(buyOrder, trades.getLast(), Math.abs(tradeQuantity * (openingPrice - buyOrder.getPrice())));
-        decreaseOrderQuantity(sellOrder, buyOrder);
+        decreaseOrderQuantity(orderBook, sellOrder, buyOrder);
         removeZeroQuantityOrder(orderBook, sellOrder, buyOrder);
         replenishIcebergOrder(orderBook, sellOrder, buyOrder);
     }
@@ -73,59 +72,10 @@ public class AuctionMatcher extends Matcher{
                 || !security.getOrderBook().hasOrderOfType(Side.SELL);
     }
 
-    private int calculateOpeningPrice(OrderBook orderBook, int lastTradedPrice) {
-        int maxTradeableQuantity = 1;
-        ArrayList<Integer> potentialPrices = new ArrayList<>();
-        int lowestPrice = orderBook.getLowestPriorityOrderPrice(Side.BUY);
-        int highestPrice = orderBook.getLowestPriorityOrderPrice(Side.SELL);
-        if (lowestPrice == INVALID_PRICE || highestPrice == INVALID_PRICE)
-            return INVALID_PRICE;
-
-        for (int openingPrice = lowestPrice; openingPrice <= highestPrice; openingPrice++) {
-            int tradeableQuantity = calculateTradableQuantity(orderBook, openingPrice);
-            if (tradeableQuantity >= maxTradeableQuantity) {
-                if (tradeableQuantity > maxTradeableQuantity) {
-                    maxTradeableQuantity = tradeableQuantity;
-                    potentialPrices.clear();
-                }
-                potentialPrices.add(openingPrice);
-            }
-        }
-        if (potentialPrices.isEmpty())
-            return INVALID_PRICE;
-        return openingPriceClosestToLastTradedPrice(lastTradedPrice, potentialPrices);
-    }
-
-    private int openingPriceClosestToLastTradedPrice(int lastTradedPrice, ArrayList<Integer> potentialPrices) {
-        int closestPrice = lastTradedPrice;
-        int minDifference = Integer.MAX_VALUE;
-        for (int price : potentialPrices) {
-            int difference = Math.abs(price - lastTradedPrice);
-            if (difference < minDifference) {
-                minDifference = difference;
-                closestPrice = price;
-            }
-        }
-        return closestPrice;
-    }
-
-    private int calculateTradableQuantity(OrderBook orderBook, int newOpeningPrice) {
-        LinkedList<Order> matchingBuyOrders = orderBook.findAllMatchingOrdersWithPrice(newOpeningPrice, Side.BUY);
-        LinkedList<Order> matchingSellOrders = orderBook.findAllMatchingOrdersWithPrice(newOpeningPrice, Side.SELL);
-
-        int totalBuyQuantity = matchingBuyOrders.stream()
-                .mapToInt(Order::getTotalQuantity)
-                .sum();
-        int totalSellQuantity = matchingSellOrders.stream()
-                .mapToInt(Order::getTotalQuantity)
-                .sum();
-
-        return Math.min(totalBuyQuantity, totalSellQuantity);
-    }
     public MatchResult updateOpeningPrice(Security security) {
-        int newOpeningPrice = calculateOpeningPrice(security.getOrderBook(), security.getLastTradedPrice());
+        AuctionEquilibrium equilibrium = security.getOrderBook().getAuctionEquilibrium(security.getLastTradedPrice());
         return MatchResult.updateOpeningPrice(security.getLastTradedPrice(),
-                calculateTradableQuantity(security.getOrderBook(), newOpeningPrice), newOpeningPrice);
+                equilibrium.tradableQuantity(), equilibrium.openingPrice());
     }
     private int getLastTradedPriceAfterMatch(Security security) {
         if(security.getOpeningPrice() != INVALID_PRICE)
@@ -83,7 +83,7 @@ public class ContinuousMatcher extends Matcher {
     protected void matchTheTwoOrders(int price, OrderBook orderBook, LinkedList<Trade> trades,
                                      Order matchingOrder, Order newOrder, int tradeQuantity) {
         controls.tradeAccepted(newOrder, trades.getLast());
-        decreaseOrderQuantity(newOrder, matchingOrder);
+        decreaseOrderQuantity(orderBook, newOrder, matchingOrder);
         removeZeroQuantityOrder(orderBook, matchingOrder);
         replenishIcebergOrder(orderBook, matchingOrder);
     }
@@ -0,0 +1,79 @@
+package ir.ramtung.tinyme.domain.service;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+public class IsinShardedExecutor {
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final ExecutorService[] shards;
+
+    public IsinShardedExecutor(@Value("${matchingShards:0}") int shardCount) {
+        if (shardCount <= 0)
+            shardCount = Runtime.getRuntime().availableProcessors();
+        shards = new ExecutorService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            String threadName = "matching-shard-" + i;
+            shards[i] = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, threadName));
+        }
+        log.info("Matching runs on " + shardCount + " shards");
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    public int shardOf(String isin) {
+        if (isin == null)
+            return 0;
+        int hash = isin.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    public void execute(String isin, Runnable task) {
+        shards[shardOf(isin)].execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException ex) {
+                log.log(Level.SEVERE, "Request on " + isin + " failed", ex);
+            }
+        });
+    }
+
+    public void flush() throws InterruptedException {
+        CountDownLatch drained = new CountDownLatch(shards.length);
+        for (ExecutorService shard : shards)
+            shard.execute(drained::countDown);
+        drained.await();
+    }
+
+    public CompletableFuture<Void> runOnEachShard(IntConsumer task) {
+        CompletableFuture<?>[] done = new CompletableFuture<?>[shards.length];
+        for (int i = 0; i < shards.length; i++) {
+            int shard = i;
+            done[i] = CompletableFuture.runAsync(() -> task.accept(shard), shards[i]);
+        }
+        return CompletableFuture.allOf(done);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        for (ExecutorService shard : shards)
+            shard.shutdown();
+        for (ExecutorService shard : shards) {
+            if (!shard.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                log.warning("Matching shard did not drain in time");
+        }
+    }
+}
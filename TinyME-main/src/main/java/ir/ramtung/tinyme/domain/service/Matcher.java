@@ -19,10 +19,12 @@ public abstract class Matcher {
         trades.add(trade);
     }
 
-    protected void decreaseOrderQuantity(Order order1, Order order2) {
+    protected void decreaseOrderQuantity(OrderBook orderBook, Order order1, Order order2) {
         int minQuantity = Math.min(order1.getQuantity(), order2.getQuantity());
         order1.decreaseQuantity(minQuantity);
         order2.decreaseQuantity(minQuantity);
+        orderBook.syncQuantity(order1);
+        orderBook.syncQuantity(order2);
     }
     protected void removeZeroQuantityOrder(OrderBook orderBook, Order order) {
         if(order.getQuantity() == 0)
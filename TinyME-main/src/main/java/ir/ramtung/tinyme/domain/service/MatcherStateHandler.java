@@ -41,13 +41,17 @@ public class MatcherStateHandler {
 
         Security security = securityRepository.findSecurityByIsin(matchingStateRq.getSecurityIsin());
         MatchResult matchResult = null;
-        if(shouldOpenAuction(security.getMatchingState())) {
-            matchResult = security.openAuction(auctionMatcher);
+        try {
+            if(shouldOpenAuction(security.getMatchingState())) {
+                matchResult = security.openAuction(auctionMatcher);
+            }
+            publishChangingMatchingStateRqEvents(matchingStateRq.getTargetState(), security, matchResult);
+            activateStopLimitOrders(matchingStateRq.getTargetState(), security, security.getMatchingState());
+            updateOpeningPrice(matchingStateRq.getTargetState(), security);
+            security.setMatchingState(matchingStateRq.getTargetState());
+        } finally {
+            security.releaseOrders();
         }
-        publishChangingMatchingStateRqEvents(matchingStateRq.getTargetState(), security, matchResult);
-        activateStopLimitOrders(matchingStateRq.getTargetState(), security, security.getMatchingState());
-        updateOpeningPrice(matchingStateRq.getTargetState(), security);
-        security.setMatchingState(matchingStateRq.getTargetState());
     }
 
     private void activateStopLimitOrders(MatchingState targetState, Security security, MatchingState currentState) {
@@ -48,23 +48,37 @@ public class OrderHandler {
     }
 
     public void handleEnterOrder(EnterOrderRq enterOrderRq) {
+        handleEnterOrder(enterOrderRq, validation.validateEnterOrderFields(enterOrderRq));
+    }
+
+    public void handleEnterOrder(EnterOrderRq enterOrderRq, List<String> fieldErrors) {
         Security security = securityRepository.findSecurityByIsin(enterOrderRq.getSecurityIsin());
         Broker broker = brokerRepository.findBrokerById(enterOrderRq.getBrokerId());
         Shareholder shareholder = shareholderRepository.findShareholderById(enterOrderRq.getShareholderId());
         try {
-            validation.validateEnterOrderRq(enterOrderRq, security, broker, shareholder);
+            validation.validateEnterOrderRq(enterOrderRq, security, broker, shareholder, fieldErrors);
         } catch (InvalidRequestException ex) {
             orderEventPublisher.publishErrors(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), ex.getReasons());
+            releaseOrders(security);
             return;
         }
-        MatchResult matchResult;
-        matchResult = getMatchResult(enterOrderRq, security, broker, shareholder);
-        orderEventPublisher.publishEvents(enterOrderRq, security, matchResult);
-        if (!matchResult.trades().isEmpty()) {
-            activateStopLimitOrders(security);
+        try {
+            MatchResult matchResult;
+            matchResult = getMatchResult(enterOrderRq, security, broker, shareholder);
+            orderEventPublisher.publishEvents(enterOrderRq, security, matchResult);
+            if (!matchResult.trades().isEmpty()) {
+                activateStopLimitOrders(security);
+            }
+        } finally {
+            releaseOrders(security);
         }
     }
 
+    private void releaseOrders(Security security) {
+        if (security != null)
+            security.releaseOrders();
+    }
+
     private void activateStopLimitOrders(Security security) {
         if (security.getMatchingState() == MatchingState.AUCTION)
             stopLimitOrderActivator.handleStopLimitOrderActivation(security, auctionMatcher, eventPublisher);
@@ -113,6 +127,8 @@ public class OrderHandler {
 
         } catch (InvalidRequestException ex) {
             orderEventPublisher.publishErrors(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), ex.getReasons());
+        } finally {
+            releaseOrders(securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin()));
         }
     }
 
@@ -120,16 +136,14 @@ public class OrderHandler {
         List<String> errors = new LinkedList<>();
         if (deleteOrderRq.getOrderId() <= 0)
             errors.add(Message.INVALID_ORDER_ID);
-        if (securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin()) == null)
+        Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
+        if (security == null)
             errors.add(Message.UNKNOWN_SECURITY_ISIN);
         else {
-            Security security = securityRepository.findSecurityByIsin(deleteOrderRq.getSecurityIsin());
-            Order deleteOrder = security.getOrderBook().findByOrderId(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
-            StopLimitOrder stopLimitDeleteOrder = (StopLimitOrder) security.getStopLimitOrderBook().findByOrderId(deleteOrderRq.getSide(),
-                    deleteOrderRq.getOrderId());
-            if (deleteOrder == null && stopLimitDeleteOrder == null)
+            Order deleteOrder = security.findOrderById(deleteOrderRq.getSide(), deleteOrderRq.getOrderId());
+            if (deleteOrder == null)
                 errors.add(Message.ORDER_ID_NOT_FOUND);
-            if (security.getMatchingState() == MatchingState.AUCTION && stopLimitDeleteOrder != null)
+            if (security.getMatchingState() == MatchingState.AUCTION && deleteOrder instanceof StopLimitOrder)
                 errors.add(Message.STOP_LIMIT_ORDERS_CANNOT_INTERACT_WITH_AUCTIONS);
         }
         if (!errors.isEmpty())
@@ -12,24 +12,25 @@ import ir.ramtung.tinyme.messaging.event.OrderExecutedEvent;
 import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
 public class StopLimitOrderActivator {
     public void handleStopLimitOrderActivation(Security security, Matcher matcher, EventPublisher eventPublisher) {
-        List<StopLimitOrder> ordersToActivate = security.findActivatedOrders();
+        Deque<StopLimitOrder> ordersToActivate = new ArrayDeque<>(security.findActivatedOrders());
         while (!ordersToActivate.isEmpty()) {
-            StopLimitOrder stopLimitOrder = ordersToActivate.get(0);
+            StopLimitOrder stopLimitOrder = ordersToActivate.pollFirst();
             StopLimitOrder originalOrder = (StopLimitOrder) stopLimitOrder.snapshot();
             MatchResult matchResult = security.activateOrder(originalOrder, stopLimitOrder, matcher);
             publishRelevantEvents(stopLimitOrder.getStopLimitRequestID(), stopLimitOrder, matchResult, eventPublisher);
             findNewActivatedOrders(security, ordersToActivate, matchResult);
-            ordersToActivate.remove(0);
         }
     }
 
-    private void findNewActivatedOrders(Security security, List<StopLimitOrder> ordersToActivate,
+    private void findNewActivatedOrders(Security security, Deque<StopLimitOrder> ordersToActivate,
                                         MatchResult matchResult) {
         if (!matchResult.trades().isEmpty()) {
             List<StopLimitOrder> newOrdersToActivate = security.findActivatedOrders();
@@ -15,8 +15,8 @@ public class UpdateOrderValidator extends BaseValidator {
     }
     @Override
     protected void validate(ValidationContext context, List<String> errors) {
-        Order order = getOrderByID(context.security().getOrderBook(),
-                context.security().getStopLimitOrderBook(), context.enterOrderRq());
+        Order order = context.security().findOrderById(context.enterOrderRq().getSide(),
+                context.enterOrderRq().getOrderId());
         if (order != null) {
             validateExecutionQuantity(order, context.enterOrderRq(), errors);
             validateOrderType(order, context.enterOrderRq(), errors);
@@ -48,11 +48,5 @@ public class UpdateOrderValidator extends BaseValidator {
             errors.add(Message.CANNOT_CHANGE_STOP_PRICE);
         }
     }
-    private Order getOrderByID(OrderBook orderBook, StopLimitOrderbook stopLimitOrderBook, EnterOrderRq updateOrderRq) {
-        Order order = orderBook.findByOrderId(updateOrderRq.getSide(), updateOrderRq.getOrderId());
-        if (order == null)
-            order = stopLimitOrderBook.findByOrderId(updateOrderRq.getSide(), updateOrderRq.getOrderId());
-        return order;
-    }
 
 }
@@ -10,43 +10,61 @@ import java.util.List;
 
 @Service
 public class Validation {
-    private final BaseValidator validationChain;
+    private final BaseValidator requestValidationChain;
+    private final BaseValidator stateValidationChain;
 
     public Validation() {
-        validationChain = createValidationChain();
+        requestValidationChain = createRequestValidationChain();
+        stateValidationChain = createStateValidationChain();
     }
 
-    private BaseValidator createValidationChain() {
+    private BaseValidator createRequestValidationChain() {
         BaseValidator orderValidator = new GeneralOrderValidator();
         BaseValidator icebergOrderValidator = new IcebergOrderValidator();
         BaseValidator minimumExecutionQuantityValidator= new MinimumExecutionQuantityValidator();
         BaseValidator stopLimitOrderValidator= new StopLimitOrderValidator();
         BaseValidator orderTypeConsistencyValidator = new OrderTypeConsistencyValidator();
+
+        orderValidator.setNextValidator(icebergOrderValidator);
+        icebergOrderValidator.setNextValidator(minimumExecutionQuantityValidator);
+        minimumExecutionQuantityValidator.setNextValidator(stopLimitOrderValidator);
+        stopLimitOrderValidator.setNextValidator(orderTypeConsistencyValidator);
+
+        return orderValidator;
+    }
+
+    private BaseValidator createStateValidationChain() {
         BaseValidator brokerValidator = new BrokerValidator();
         BaseValidator shareholderValidator = new ShareholderValidator();
         BaseValidator securityValidator = new SecurityValidator();
         BaseValidator auctionValidator = new AuctionValidator();
         BaseValidator updateOrderValidator = new UpdateOrderValidator();
 
-        orderValidator.setNextValidator(icebergOrderValidator);
-        icebergOrderValidator.setNextValidator(minimumExecutionQuantityValidator);
-        minimumExecutionQuantityValidator.setNextValidator(stopLimitOrderValidator);
-        stopLimitOrderValidator.setNextValidator(orderTypeConsistencyValidator);
-        orderTypeConsistencyValidator.setNextValidator(brokerValidator);
         brokerValidator.setNextValidator(shareholderValidator);
         shareholderValidator.setNextValidator(securityValidator);
         securityValidator.setNextValidator(auctionValidator);
         auctionValidator.setNextValidator(updateOrderValidator);
 
-        return orderValidator;
+        return brokerValidator;
+    }
+
+    public List<String> validateEnterOrderFields(EnterOrderRq enterOrderRq) {
+        List<String> errors = new LinkedList<>();
+        requestValidationChain.validateWithCondition(new ValidationContext(enterOrderRq, null, null, null), errors);
+        return errors;
     }
 
     public void validateEnterOrderRq(EnterOrderRq enterOrderRq, Security security,
                                      Broker broker, Shareholder shareholder) throws InvalidRequestException {
-        List<String> errors = new LinkedList<>();
+        validateEnterOrderRq(enterOrderRq, security, broker, shareholder, validateEnterOrderFields(enterOrderRq));
+    }
+
+    public void validateEnterOrderRq(EnterOrderRq enterOrderRq, Security security, Broker broker,
+                                     Shareholder shareholder, List<String> fieldErrors) throws InvalidRequestException {
+        List<String> errors = new LinkedList<>(fieldErrors);
         ValidationContext context = new ValidationContext(enterOrderRq, security, broker, shareholder);
 
-        validationChain.validateWithCondition(context, errors);
+        stateValidationChain.validateWithCondition(context, errors);
 
         if (!errors.isEmpty())
             throw new InvalidRequestException(errors);
@@ -0,0 +1,29 @@
+package ir.ramtung.tinyme.messaging;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jms.artemis.ArtemisConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.logging.Logger;
+
+@Configuration
+@Profile("embedded")
+public class EmbeddedBrokerConfig {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+
+    @Bean
+    public ArtemisConfigurationCustomizer tcpAcceptorForRemoteGateways(@Value("${embeddedBrokerTcpUrl:}") String tcpUrl) {
+        return configuration -> {
+            if (tcpUrl.isBlank())
+                return;
+            try {
+                configuration.addAcceptorConfiguration("remote-gateways", tcpUrl);
+            } catch (Exception ex) {
+                throw new IllegalArgumentException("Invalid embedded broker TCP URL " + tcpUrl, ex);
+            }
+            log.info("Embedded broker also accepts gateways on " + tcpUrl);
+        };
+    }
+}
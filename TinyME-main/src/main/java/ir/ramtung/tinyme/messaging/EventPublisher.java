@@ -1,25 +1,254 @@
 package ir.ramtung.tinyme.messaging;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.repository.EventJournal;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.jms.JMSException;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.jms.core.JmsTemplate;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 @Component
 public class EventPublisher {
+    public enum Overflow { BLOCK, SPILL }
+
+    private static final long POLL_MILLIS = 100;
+    private static final long RETRY_BACKOFF_MILLIS = 100;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
     private final Logger log = Logger.getLogger(this.getClass().getName());
-    private final JmsTemplate jmsTemplate;
-    @Value("${responseQueue}")
-    private String responseQueue;
+    private final PublishingChannel channel;
+    private final EventJournal eventJournal;
+    private final String responseQueue;
+    private final BlockingQueue<Event> queue;
+    private final int batchSize;
+    private final long[] sequences;
+    private int journaled;
+    private final Overflow overflow;
+    private final long statisticsNanos;
+    private final Path spillFile;
+    private final ObjectMapper spillMapper = new ObjectMapper().findAndRegisterModules();
+    private final ThreadLocal<List<Event>> capturedEvents = new ThreadLocal<>();
+    private final Object spillLock = new Object();
+    private volatile boolean spilling;
+    private long replayedBytes;
+    private volatile boolean running;
+    private Thread drainer;
+
+    public EventPublisher(PublishingChannel channel, EventJournal eventJournal,
+                          @Value("${responseQueue}") String responseQueue,
+                          @Value("${eventQueueCapacity:4096}") int queueCapacity,
+                          @Value("${eventBatchSize:64}") int batchSize,
+                          @Value("${eventOverflow:BLOCK}") Overflow overflow,
+                          @Value("${eventSpillFile:event-spill.log}") String spillFile,
+                          @Value("${eventStatisticsSeconds:60}") long statisticsSeconds) {
+        this.channel = channel;
+        this.eventJournal = eventJournal;
+        this.responseQueue = responseQueue;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.sequences = new long[batchSize];
+        this.overflow = overflow;
+        this.spillFile = Path.of(spillFile);
+        this.statisticsNanos = TimeUnit.SECONDS.toNanos(statisticsSeconds);
+    }
 
-    public EventPublisher(JmsTemplate jmsTemplate) {
-        this.jmsTemplate = jmsTemplate;
+    @PostConstruct
+    public void start() throws IOException {
+        if (Files.exists(spillFile) && Files.size(spillFile) > 0) {
+            log.warning("Replaying events spilled before the last shutdown from " + spillFile);
+            spilling = true;
+        }
+        running = true;
+        drainer = new Thread(this::drainLoop, "event-publisher");
+        drainer.setDaemon(true);
+        drainer.start();
     }
 
     public void publish(Event event) {
-        log.info("Published : " + event);
-        jmsTemplate.convertAndSend(responseQueue, event);
+        List<Event> captured = capturedEvents.get();
+        if (captured != null) {
+            captured.add(event);
+            return;
+        }
+        send(event);
+    }
+
+    public void captureInto(List<Event> events, Runnable work) {
+        capturedEvents.set(events);
+        try {
+            work.run();
+        } finally {
+            capturedEvents.remove();
+        }
+    }
+
+    public boolean isSpilling() {
+        return spilling;
+    }
+
+    public int getQueuedEvents() {
+        return queue.size();
+    }
+
+    public PublishingStatistics getStatistics() {
+        return channel.getStatistics();
+    }
+
+    protected synchronized void send(Event event) {
+        if (!spilling && queue.offer(event))
+            return;
+        if (spilling || overflow == Overflow.SPILL) {
+            spill(event);
+            return;
+        }
+        try {
+            queue.put(event);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing " + event, ex);
+        }
+    }
+
+    protected void deliver(List<Event> batch, long[] sequences) throws JMSException {
+        channel.send(responseQueue, batch, sequences);
+        if (log.isLoggable(Level.FINE))
+            for (Event event : batch)
+                log.fine("Published : " + event);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!running)
+            return;
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MILLIS;
+        while ((!queue.isEmpty() || spilling) && System.currentTimeMillis() < deadline)
+            Thread.sleep(POLL_MILLIS / 10);
+        if (!queue.isEmpty())
+            log.warning(queue.size() + " events were not published before shutdown");
+        running = false;
+        drainer.join(SHUTDOWN_TIMEOUT_MILLIS);
+        if (channel != null)
+            channel.close();
+    }
+
+    private void drainLoop() {
+        List<Event> batch = new ArrayList<>(batchSize);
+        long nextStatisticsAt = System.nanoTime() + statisticsNanos;
+        while (running) {
+            if (statisticsNanos > 0 && System.nanoTime() - nextStatisticsAt >= 0) {
+                log.info("Event publisher: " + getStatistics() + ", queued " + queue.size());
+                nextStatisticsAt += statisticsNanos;
+            }
+            try {
+                if (batch.isEmpty()) {
+                    journaled = 0;
+                    nextBatch(batch);
+                }
+                if (!batch.isEmpty()) {
+                    journal(batch);
+                    deliver(batch, sequences);
+                    batch.clear();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                log.log(Level.WARNING, "Could not publish " + batch.size() + " events, retrying", ex);
+                pause();
+            }
+        }
+    }
+
+    private void nextBatch(List<Event> batch) throws InterruptedException, IOException {
+        Event first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first != null) {
+            batch.add(first);
+            queue.drainTo(batch, batchSize - 1);
+        } else if (spilling) {
+            readSpilled(batch);
+        }
+    }
+
+    // A retried batch resumes journaling where the failed attempt stopped, so no event is journaled twice or skipped
+    private void journal(List<Event> batch) {
+        for (; journaled < batch.size(); journaled++)
+            sequences[journaled] = eventJournal == null ? 0 : eventJournal.append(batch.get(journaled));
+    }
+
+    private void spill(Event event) {
+        synchronized (spillLock) {
+            String line = event.getClass().getName() + ' ' + toJson(event) + '\n';
+            try {
+                Files.writeString(spillFile, line, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException ex) {
+                throw new IllegalStateException("Could not spill " + event + " to " + spillFile, ex);
+            }
+            spilling = true;
+        }
+    }
+
+    private void readSpilled(List<Event> batch) throws IOException {
+        synchronized (spillLock) {
+            try (RandomAccessFile file = new RandomAccessFile(spillFile.toFile(), "r")) {
+                file.seek(replayedBytes);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        Channels.newInputStream(file.getChannel()), StandardCharsets.UTF_8));
+                String line;
+                while (batch.size() < batchSize && (line = reader.readLine()) != null) {
+                    batch.add(fromJson(line));
+                    replayedBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                }
+                if (replayedBytes >= file.length()) {
+                    Files.write(spillFile, new byte[0]);
+                    replayedBytes = 0;
+                    spilling = false;
+                }
+            }
+        }
+    }
+
+    private String toJson(Event event) {
+        try {
+            return spillMapper.writeValueAsString(event);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not serialize " + event, ex);
+        }
+    }
+
+    private Event fromJson(String line) throws IOException {
+        int separator = line.indexOf(' ');
+        try {
+            Class<?> type = Class.forName(line.substring(0, separator));
+            return (Event) spillMapper.readValue(line.substring(separator + 1), type);
+        } catch (ClassNotFoundException ex) {
+            throw new IOException("Unknown spilled event type in " + spillFile, ex);
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RETRY_BACKOFF_MILLIS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
@@ -0,0 +1,68 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.repository.EventJournal;
+import jakarta.jms.Destination;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Queue;
+import org.springframework.jms.annotation.JmsListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+@Component
+public class EventReplayer {
+    public static final String FROM_PROPERTY = "fromSeq";
+    public static final String TO_PROPERTY = "toSeq";
+    static final int BATCH_SIZE = 256;
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final EventJournal eventJournal;
+    private final PublishingChannel channel;
+
+    public EventReplayer(EventJournal eventJournal, PublishingChannel channel) {
+        this.eventJournal = eventJournal;
+        this.channel = channel;
+    }
+
+    @JmsListener(destination = "${eventReplayQueue:RS.replay}")
+    public void receiveReplayRequest(Message message) throws JMSException, IOException {
+        Destination replyTo = message.getJMSReplyTo();
+        if (!(replyTo instanceof Queue queue) || !message.propertyExists(FROM_PROPERTY)) {
+            log.warning("Rejected replay request " + message.getJMSMessageID() + " without a reply queue or "
+                    + FROM_PROPERTY);
+            return;
+        }
+        long from = message.getLongProperty(FROM_PROPERTY);
+        long to = message.propertyExists(TO_PROPERTY) ? message.getLongProperty(TO_PROPERTY) : Long.MAX_VALUE;
+        int replayed = replay(queue.getQueueName(), from, to);
+        log.info("Replayed " + replayed + " events from sequence " + from + " to " + queue.getQueueName());
+    }
+
+    public int replay(String destination, long fromSequence, long toSequence) throws JMSException, IOException {
+        if (!eventJournal.isEnabled())
+            return 0;
+        List<Event> batch = new ArrayList<>(BATCH_SIZE);
+        long[] sequences = new long[BATCH_SIZE];
+        long next = Math.max(fromSequence, 1);
+        long end = Math.min(toSequence, eventJournal.getLastSequence() + 1);
+        int replayed = 0;
+        while (next < end) {
+            long batchEnd = Math.min(next + BATCH_SIZE, end);
+            batch.clear();
+            eventJournal.replay(next, batchEnd, (event, sequence) -> {
+                sequences[batch.size()] = sequence;
+                batch.add(event);
+            });
+            if (batch.isEmpty())
+                break;
+            channel.send(destination, batch, sequences);
+            replayed += batch.size();
+            next = batchEnd;
+        }
+        return replayed;
+    }
+}
@@ -28,6 +28,7 @@ public class Message {
     public static final String STOP_LIMIT_ORDERS_CANNOT_INTERACT_WITH_AUCTIONS = "Stop limit orders cannot interact with auctions";
     public static final String ORDERS_IN_AUCTION_CANNOT_HAVE_MIN_EXE_QUANTITY = "Orders in auction cannot have " +
             "a minimum execution quantity";
+    public static final String REQUEST_NOT_JOURNALED = "Request could not be journaled";
 
 
 }
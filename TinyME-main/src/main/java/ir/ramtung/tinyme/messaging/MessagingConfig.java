@@ -1,18 +1,39 @@
 package ir.ramtung.tinyme.messaging;
 
+import ir.ramtung.tinyme.messaging.codec.BinaryEventConverter;
+import ir.ramtung.tinyme.messaging.codec.RequestMessageConverter;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import jakarta.jms.ConnectionFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.jms.support.converter.MappingJackson2MessageConverter;
 import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.jms.support.converter.MessageType;
 
+import java.util.HashMap;
+import java.util.Map;
+
 @Configuration
 public class MessagingConfig {
     @Bean
+    public RequestMessageConverter jmsMessageConverter(SecurityRepository securityRepository) {
+        return new RequestMessageConverter(jacksonJmsMessageConverter(), securityRepository);
+    }
+
     public MessageConverter jacksonJmsMessageConverter() {
         MappingJackson2MessageConverter converter = new MappingJackson2MessageConverter();
         converter.setTargetType(MessageType.TEXT);
         converter.setTypeIdPropertyName("_type");
         return converter;
     }
+
+    @Bean(destroyMethod = "close")
+    public PublishingChannel publishingChannel(ConnectionFactory connectionFactory, MessageConverter messageConverter,
+                                               @Value("${binaryEventDestinations:}") String[] binaryEventDestinations) {
+        Map<String, MessageConverter> destinationConverters = new HashMap<>();
+        for (String destination : binaryEventDestinations)
+            destinationConverters.put(destination.trim(), new BinaryEventConverter());
+        return new PublishingChannel(connectionFactory, messageConverter, destinationConverters);
+    }
 }
@@ -0,0 +1,148 @@
+package ir.ramtung.tinyme.messaging;
+
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Session;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+public class PublishingChannel {
+    public static final String SEQUENCE_PROPERTY = "seq";
+    static final long INITIAL_RECONNECT_DELAY_MILLIS = 100;
+    static final long MAX_RECONNECT_DELAY_MILLIS = 5_000;
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final ConnectionFactory connectionFactory;
+    private final MessageConverter messageConverter;
+    private final Map<String, MessageConverter> destinationConverters;
+    private final HashMap<String, MessageProducer> producers = new HashMap<>();
+    private Connection connection;
+    private Session session;
+    private volatile boolean healthy;
+    private long reconnectDelayMillis = INITIAL_RECONNECT_DELAY_MILLIS;
+    private long nextReconnectAt;
+    private final AtomicLong sentMessages = new AtomicLong();
+    private final AtomicLong committedBatches = new AtomicLong();
+    private final AtomicLong brokerNanos = new AtomicLong();
+    private final AtomicLong connections = new AtomicLong();
+    private long lastStatisticsAt = System.nanoTime();
+    private long lastStatisticsSent;
+
+    public PublishingChannel(ConnectionFactory connectionFactory, MessageConverter messageConverter) {
+        this(connectionFactory, messageConverter, Map.of());
+    }
+
+    public PublishingChannel(ConnectionFactory connectionFactory, MessageConverter messageConverter,
+                             Map<String, MessageConverter> destinationConverters) {
+        this.connectionFactory = connectionFactory;
+        this.messageConverter = messageConverter;
+        this.destinationConverters = destinationConverters;
+    }
+
+    public void send(String destination, List<?> payloads) throws JMSException {
+        send(destination, payloads, null);
+    }
+
+    public synchronized void send(String destination, List<?> payloads, long[] sequences) throws JMSException {
+        ensureConnected();
+        long start = System.nanoTime();
+        try {
+            MessageProducer producer = producerFor(destination);
+            MessageConverter converter = destinationConverters.getOrDefault(destination, messageConverter);
+            for (int i = 0; i < payloads.size(); i++) {
+                Message message = converter.toMessage(payloads.get(i), session);
+                if (sequences != null && sequences[i] > 0)
+                    message.setLongProperty(SEQUENCE_PROPERTY, sequences[i]);
+                producer.send(message);
+            }
+            session.commit();
+        } catch (JMSException | RuntimeException ex) {
+            disconnect();
+            throw ex;
+        } finally {
+            brokerNanos.addAndGet(System.nanoTime() - start);
+        }
+        sentMessages.addAndGet(payloads.size());
+        committedBatches.incrementAndGet();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public synchronized PublishingStatistics getStatistics() {
+        long now = System.nanoTime();
+        long sent = sentMessages.get();
+        double seconds = (now - lastStatisticsAt) / 1e9;
+        double sendsPerSecond = seconds > 0 ? (sent - lastStatisticsSent) / seconds : 0;
+        lastStatisticsAt = now;
+        lastStatisticsSent = sent;
+        return new PublishingStatistics(sent, committedBatches.get(), connections.get(), sendsPerSecond,
+                TimeUnit.NANOSECONDS.toMillis(brokerNanos.get()));
+    }
+
+    public synchronized void close() {
+        disconnect();
+    }
+
+    private void ensureConnected() throws JMSException {
+        if (healthy)
+            return;
+        if (connection != null)
+            disconnect();
+        long now = System.currentTimeMillis();
+        if (now < nextReconnectAt)
+            throw new JMSException("Broker is unreachable, next reconnect in " + (nextReconnectAt - now) + " ms");
+        long start = System.nanoTime();
+        try {
+            connection = connectionFactory.createConnection();
+            connection.setExceptionListener(ex -> {
+                log.log(Level.WARNING, "Publishing connection failed", ex);
+                healthy = false;
+            });
+            session = connection.createSession(true, Session.SESSION_TRANSACTED);
+            connection.start();
+            healthy = true;
+            reconnectDelayMillis = INITIAL_RECONNECT_DELAY_MILLIS;
+            connections.incrementAndGet();
+        } catch (JMSException | RuntimeException ex) {
+            disconnect();
+            nextReconnectAt = now + reconnectDelayMillis;
+            reconnectDelayMillis = Math.min(reconnectDelayMillis * 2, MAX_RECONNECT_DELAY_MILLIS);
+            throw ex;
+        } finally {
+            brokerNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    private MessageProducer producerFor(String destination) throws JMSException {
+        MessageProducer producer = producers.get(destination);
+        if (producer == null) {
+            producer = session.createProducer(session.createQueue(destination));
+            producers.put(destination, producer);
+        }
+        return producer;
+    }
+
+    private void disconnect() {
+        healthy = false;
+        producers.clear();
+        try {
+            if (connection != null)
+                connection.close();
+        } catch (JMSException ex) {
+            log.log(Level.FINE, "Could not close publishing connection", ex);
+        }
+        connection = null;
+        session = null;
+    }
+}
@@ -0,0 +1,5 @@
+package ir.ramtung.tinyme.messaging;
+
+public record PublishingStatistics(long sentMessages, long committedBatches, long connections,
+                                   double sendsPerSecond, long brokerMillis) {
+}
@@ -1,31 +1,54 @@
 package ir.ramtung.tinyme.messaging;
 
-import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
-import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
-import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.codec.RequestMessageConverter;
+import ir.ramtung.tinyme.messaging.codec.RequestTemplate;
+import ir.ramtung.tinyme.messaging.pipeline.RequestPipeline;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jms.annotation.JmsListener;
 import org.springframework.stereotype.Component;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 @Component
 public class RequestDispatcher {
     private final Logger log = Logger.getLogger(this.getClass().getName());
-    private final OrderHandler orderHandler;
+    private final RequestPipeline requestPipeline;
+    private final Map<String, RequestTemplate> templateByType;
+    private final boolean groupRequired;
+    private final AtomicLong rejectedRequests = new AtomicLong();
 
-    public RequestDispatcher(OrderHandler orderHandler) {
-        this.orderHandler = orderHandler;
+    // With more than one consumer the broker keeps the requests of an ISIN in order only if they carry a message group
+    public RequestDispatcher(RequestPipeline requestPipeline, @Value("${requestConsumers:1}") int consumers) {
+        this.requestPipeline = requestPipeline;
+        this.groupRequired = consumers > 1;
+        Map<String, RequestTemplate> templates = new HashMap<>();
+        for (RequestTemplate template : RequestTemplate.values())
+            templates.put(template.getRequestType().getName(), template);
+        templateByType = Map.copyOf(templates);
     }
 
-    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.EnterOrderRq'")
-    public void receiveEnterOrderRq(EnterOrderRq enterOrderRq) {
-        log.info("Received message: " + enterOrderRq);
-        orderHandler.handleEnterOrder(enterOrderRq);
+    @JmsListener(destination = "${requestQueue}", concurrency = "${requestConsumers:1}")
+    public void receiveRequest(Message message) throws JMSException {
+        String type = message.getStringProperty(RequestMessageConverter.TYPE_PROPERTY);
+        if (type == null || !templateByType.containsKey(type)) {
+            rejectedRequests.incrementAndGet();
+            log.warning("Rejected request " + message.getJMSMessageID() + " of unknown type " + type);
+            return;
+        }
+        if (groupRequired && message.getStringProperty(RequestMessageConverter.GROUP_PROPERTY) == null) {
+            rejectedRequests.incrementAndGet();
+            log.warning("Rejected request " + message.getJMSMessageID() + " without a message group");
+            return;
+        }
+        requestPipeline.submit(message);
     }
 
-    @JmsListener(destination = "${requestQueue}", selector = "_type='ir.ramtung.tinyme.messaging.request.DeleteOrderRq'")
-    public void receiveDeleteOrderRq(DeleteOrderRq deleteOrderRq) {
-        log.info("Received message: " + deleteOrderRq);
-        orderHandler.handleDeleteOrder(deleteOrderRq);
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
     }
 }
@@ -0,0 +1,36 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.nio.ByteBuffer;
+
+public class BinaryEventConverter implements MessageConverter {
+    private final EventEncoder encoder = new EventEncoder();
+    private final EventDecoder decoder = new EventDecoder();
+
+    @Override
+    public synchronized Message toMessage(Object object, Session session) throws JMSException {
+        if (!(object instanceof Event event))
+            throw new MessageConversionException("Only events have a binary encoding, not " + object.getClass().getName());
+        ByteBuffer encoded = encoder.encode(event);
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(encoded.array(), 0, encoded.limit());
+        message.setStringProperty(RequestMessageConverter.TYPE_PROPERTY, event.getClass().getName());
+        return message;
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException {
+        if (!(message instanceof BytesMessage bytesMessage))
+            throw new MessageConversionException("Binary events arrive as BytesMessage, not " + message.getClass().getName());
+        byte[] payload = new byte[(int) bytesMessage.getBodyLength()];
+        bytesMessage.readBytes(payload);
+        return decoder.decode(ByteBuffer.wrap(payload));
+    }
+}
@@ -0,0 +1,46 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+
+import java.nio.ByteBuffer;
+
+public class ChangingMatchingStateRqDecoder extends RequestFlyweight {
+    private static final MatchingState[] STATES = MatchingState.values();
+    private static final int TARGET_STATE = 2;
+    private static final int ISIN = 3;
+    static final int LENGTH = ISIN + 1 + ISIN_LENGTH;
+
+    public ChangingMatchingStateRqDecoder wrap(ByteBuffer buffer, int offset) {
+        wrap(buffer, offset, RequestTemplate.CHANGE_MATCHING_STATE);
+        return this;
+    }
+
+    public String securityIsin() {
+        return isin(ISIN);
+    }
+
+    public boolean securityIsinEquals(String isin) {
+        return isinEquals(ISIN, isin);
+    }
+
+    public MatchingState targetState() {
+        byte ordinal = buffer.get(offset + TARGET_STATE);
+        return ordinal < 0 ? null : STATES[ordinal];
+    }
+
+    public ChangingMatchingStateRq toRequest() {
+        return toRequest(null);
+    }
+
+    public ChangingMatchingStateRq toRequest(SecurityRepository securityRepository) {
+        return new ChangingMatchingStateRq(isin(ISIN, securityRepository), targetState());
+    }
+
+    static void encode(ChangingMatchingStateRq rq, ByteBuffer buffer) {
+        putHeader(buffer, RequestTemplate.CHANGE_MATCHING_STATE);
+        putEnum(buffer, TARGET_STATE, rq.getTargetState());
+        putIsin(buffer, ISIN, rq.getSecurityIsin());
+    }
+}
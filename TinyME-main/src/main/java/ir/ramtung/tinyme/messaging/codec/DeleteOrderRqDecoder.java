@@ -0,0 +1,80 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+public class DeleteOrderRqDecoder extends RequestFlyweight {
+    private static final int SIDE = 2;
+    private static final int REQUEST_ID = 4;
+    private static final int ORDER_ID = 12;
+    private static final int ENTRY_SECONDS = 20;
+    private static final int ENTRY_NANOS = 28;
+    private static final int ISIN = 32;
+    static final int LENGTH = ISIN + 1 + ISIN_LENGTH;
+
+    public DeleteOrderRqDecoder wrap(ByteBuffer buffer, int offset) {
+        wrap(buffer, offset, RequestTemplate.DELETE_ORDER);
+        return this;
+    }
+
+    public long requestId() {
+        return buffer.getLong(offset + REQUEST_ID);
+    }
+
+    public String securityIsin() {
+        return isin(ISIN);
+    }
+
+    public boolean securityIsinEquals(String isin) {
+        return isinEquals(ISIN, isin);
+    }
+
+    public Side side() {
+        return side(SIDE);
+    }
+
+    public long orderId() {
+        return buffer.getLong(offset + ORDER_ID);
+    }
+
+    public LocalDateTime entryTime() {
+        return time(ENTRY_SECONDS, ENTRY_NANOS);
+    }
+
+    public long entryEpochSecond() {
+        return buffer.getLong(offset + ENTRY_SECONDS);
+    }
+
+    public int entryNano() {
+        return buffer.getInt(offset + ENTRY_NANOS);
+    }
+
+    public DeleteOrderRq toRequest() {
+        return decodeInto(new DeleteOrderRq(), null);
+    }
+
+    public DeleteOrderRq decodeInto(DeleteOrderRq rq, SecurityRepository securityRepository) {
+        rq.setRequestId(requestId());
+        rq.setSecurityIsin(isin(ISIN, securityRepository));
+        rq.setSide(side());
+        rq.setOrderId(orderId());
+        if (entryEpochSecond() == NO_TIME)
+            rq.setEntryTime(null);
+        else
+            rq.setEntryTime(entryEpochSecond(), entryNano());
+        return rq;
+    }
+
+    static void encode(DeleteOrderRq rq, ByteBuffer buffer) {
+        putHeader(buffer, RequestTemplate.DELETE_ORDER);
+        putEnum(buffer, SIDE, rq.getSide());
+        buffer.putLong(REQUEST_ID, rq.getRequestId());
+        buffer.putLong(ORDER_ID, rq.getOrderId());
+        putTime(buffer, ENTRY_SECONDS, ENTRY_NANOS, rq.getEntryEpochSecond(), rq.getEntryNano());
+        putIsin(buffer, ISIN, rq.getSecurityIsin());
+    }
+}
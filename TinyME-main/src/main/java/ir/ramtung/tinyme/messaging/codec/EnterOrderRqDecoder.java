@@ -0,0 +1,137 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.OrderEntryType;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+public class EnterOrderRqDecoder extends RequestFlyweight {
+    private static final int REQUEST_TYPE = 2;
+    private static final int SIDE = 3;
+    private static final int REQUEST_ID = 4;
+    private static final int ORDER_ID = 12;
+    private static final int ENTRY_SECONDS = 20;
+    private static final int ENTRY_NANOS = 28;
+    private static final int QUANTITY = 32;
+    private static final int PRICE = 36;
+    private static final int BROKER_ID = 40;
+    private static final int SHAREHOLDER_ID = 48;
+    private static final int PEAK_SIZE = 56;
+    private static final int MINIMUM_EXECUTION_QUANTITY = 60;
+    private static final int STOP_PRICE = 64;
+    private static final int ISIN = 68;
+    static final int LENGTH = ISIN + 1 + ISIN_LENGTH;
+
+    public EnterOrderRqDecoder wrap(ByteBuffer buffer, int offset) {
+        wrap(buffer, offset, RequestTemplate.ENTER_ORDER);
+        return this;
+    }
+
+    public OrderEntryType requestType() {
+        return buffer.get(offset + REQUEST_TYPE) == 0 ? OrderEntryType.NEW_ORDER : OrderEntryType.UPDATE_ORDER;
+    }
+
+    public long requestId() {
+        return buffer.getLong(offset + REQUEST_ID);
+    }
+
+    public String securityIsin() {
+        return isin(ISIN);
+    }
+
+    public boolean securityIsinEquals(String isin) {
+        return isinEquals(ISIN, isin);
+    }
+
+    public long orderId() {
+        return buffer.getLong(offset + ORDER_ID);
+    }
+
+    public LocalDateTime entryTime() {
+        return time(ENTRY_SECONDS, ENTRY_NANOS);
+    }
+
+    public long entryEpochSecond() {
+        return buffer.getLong(offset + ENTRY_SECONDS);
+    }
+
+    public int entryNano() {
+        return buffer.getInt(offset + ENTRY_NANOS);
+    }
+
+    public Side side() {
+        return side(SIDE);
+    }
+
+    public int quantity() {
+        return buffer.getInt(offset + QUANTITY);
+    }
+
+    public int price() {
+        return buffer.getInt(offset + PRICE);
+    }
+
+    public long brokerId() {
+        return buffer.getLong(offset + BROKER_ID);
+    }
+
+    public long shareholderId() {
+        return buffer.getLong(offset + SHAREHOLDER_ID);
+    }
+
+    public int peakSize() {
+        return buffer.getInt(offset + PEAK_SIZE);
+    }
+
+    public int minimumExecutionQuantity() {
+        return buffer.getInt(offset + MINIMUM_EXECUTION_QUANTITY);
+    }
+
+    public int stopPrice() {
+        return buffer.getInt(offset + STOP_PRICE);
+    }
+
+    public EnterOrderRq toRequest() {
+        return decodeInto(new EnterOrderRq(), null);
+    }
+
+    public EnterOrderRq decodeInto(EnterOrderRq rq, SecurityRepository securityRepository) {
+        rq.setRequestType(requestType());
+        rq.setRequestId(requestId());
+        rq.setSecurityIsin(isin(ISIN, securityRepository));
+        rq.setOrderId(orderId());
+        if (entryEpochSecond() == NO_TIME)
+            rq.setEntryTime(null);
+        else
+            rq.setEntryTime(entryEpochSecond(), entryNano());
+        rq.setSide(side());
+        rq.setQuantity(quantity());
+        rq.setPrice(price());
+        rq.setBrokerId(brokerId());
+        rq.setShareholderId(shareholderId());
+        rq.setPeakSize(peakSize());
+        rq.setMinimumExecutionQuantity(minimumExecutionQuantity());
+        rq.setStopPrice(stopPrice());
+        return rq;
+    }
+
+    static void encode(EnterOrderRq rq, ByteBuffer buffer) {
+        putHeader(buffer, RequestTemplate.ENTER_ORDER);
+        buffer.put(REQUEST_TYPE, (byte) (rq.getRequestType() == OrderEntryType.UPDATE_ORDER ? 1 : 0));
+        putEnum(buffer, SIDE, rq.getSide());
+        buffer.putLong(REQUEST_ID, rq.getRequestId());
+        buffer.putLong(ORDER_ID, rq.getOrderId());
+        putTime(buffer, ENTRY_SECONDS, ENTRY_NANOS, rq.getEntryEpochSecond(), rq.getEntryNano());
+        buffer.putInt(QUANTITY, rq.getQuantity());
+        buffer.putInt(PRICE, rq.getPrice());
+        buffer.putLong(BROKER_ID, rq.getBrokerId());
+        buffer.putLong(SHAREHOLDER_ID, rq.getShareholderId());
+        buffer.putInt(PEAK_SIZE, rq.getPeakSize());
+        buffer.putInt(MINIMUM_EXECUTION_QUANTITY, rq.getMinimumExecutionQuantity());
+        buffer.putInt(STOP_PRICE, rq.getStopPrice());
+        putIsin(buffer, ISIN, rq.getSecurityIsin());
+    }
+}
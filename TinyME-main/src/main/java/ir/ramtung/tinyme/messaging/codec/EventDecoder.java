@@ -0,0 +1,84 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EventDecoder {
+    private static final MatchingState[] STATES = MatchingState.values();
+
+    public Event decode(ByteBuffer buffer) {
+        try {
+            EventTemplate template = EventTemplate.of(buffer.get());
+            byte version = buffer.get();
+            if (version != EventTemplate.VERSION)
+                throw new MessageConversionException("Unsupported binary event version " + version);
+            LocalDateTime time = getTime(buffer);
+            Event event = switch (template) {
+                case ORDER_ACCEPTED -> new OrderAcceptedEvent(buffer.getLong(), buffer.getLong());
+                case ORDER_ACTIVATED -> new OrderActivatedEvent(buffer.getLong(), buffer.getLong());
+                case ORDER_DELETED -> new OrderDeletedEvent(buffer.getLong(), buffer.getLong());
+                case ORDER_UPDATED -> new OrderUpdatedEvent(buffer.getLong(), buffer.getLong());
+                case ORDER_REJECTED -> new OrderRejectedEvent(buffer.getLong(), buffer.getLong(), getStrings(buffer));
+                case ORDER_EXECUTED -> new OrderExecutedEvent(buffer.getLong(), buffer.getLong(), getTrades(buffer));
+                case OPENING_PRICE -> new OpeningPriceEvent(getString(buffer), buffer.getInt(), buffer.getInt());
+                case TRADE -> new TradeEvent(getString(buffer), buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getLong());
+                case SECURITY_STATE_CHANGED -> new SecurityStateChangedEvent(getString(buffer), getState(buffer));
+                case MATCHING_STATE_RQ_REJECTED -> new MatchingStateRqRejectedEvent(getString(buffer), getStrings(buffer));
+            };
+            event.setTime(time);
+            return event;
+        } catch (BufferUnderflowException ex) {
+            throw new MessageConversionException("Truncated binary event", ex);
+        }
+    }
+
+    private static LocalDateTime getTime(ByteBuffer buffer) {
+        long seconds = buffer.getLong();
+        int nanos = buffer.getInt();
+        return seconds == RequestFlyweight.NO_TIME ? null : LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    private static MatchingState getState(ByteBuffer buffer) {
+        byte ordinal = buffer.get();
+        return ordinal < 0 ? null : STATES[ordinal];
+    }
+
+    private static List<TradeDTO> getTrades(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count == EventEncoder.NO_LIST)
+            return null;
+        List<TradeDTO> trades = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            trades.add(new TradeDTO(getString(buffer), buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getLong()));
+        return trades;
+    }
+
+    private static List<String> getStrings(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        if (count == EventEncoder.NO_LIST)
+            return null;
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++)
+            strings.add(getString(buffer));
+        return strings;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length == EventEncoder.NO_STRING)
+            return null;
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,148 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.*;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+public class EventEncoder {
+    static final short NO_STRING = -1;
+    static final int NO_LIST = -1;
+    private static final int INITIAL_CAPACITY = 256;
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    public ByteBuffer encode(Event event) {
+        EventTemplate template = EventTemplate.of(event);
+        buffer.clear();
+        ensureRemaining(14);
+        buffer.put(template.getId());
+        buffer.put(EventTemplate.VERSION);
+        putTime(event.getTime());
+        switch (template) {
+            case ORDER_ACCEPTED -> putOrder(((OrderAcceptedEvent) event).getRequestId(), ((OrderAcceptedEvent) event).getOrderId());
+            case ORDER_ACTIVATED -> putOrder(((OrderActivatedEvent) event).getRequestId(), ((OrderActivatedEvent) event).getOrderId());
+            case ORDER_DELETED -> putOrder(((OrderDeletedEvent) event).getRequestId(), ((OrderDeletedEvent) event).getOrderId());
+            case ORDER_UPDATED -> putOrder(((OrderUpdatedEvent) event).getRequestId(), ((OrderUpdatedEvent) event).getOrderId());
+            case ORDER_REJECTED -> {
+                OrderRejectedEvent rejected = (OrderRejectedEvent) event;
+                putOrder(rejected.getRequestId(), rejected.getOrderId());
+                putStrings(rejected.getErrors());
+            }
+            case ORDER_EXECUTED -> {
+                OrderExecutedEvent executed = (OrderExecutedEvent) event;
+                putOrder(executed.getRequestId(), executed.getOrderId());
+                putTrades(executed.getTrades());
+            }
+            case OPENING_PRICE -> {
+                OpeningPriceEvent openingPrice = (OpeningPriceEvent) event;
+                putString(openingPrice.getSecurityIsin());
+                ensureRemaining(8);
+                buffer.putInt(openingPrice.getOpeningPrice());
+                buffer.putInt(openingPrice.getTradableQuantity());
+            }
+            case TRADE -> {
+                TradeEvent trade = (TradeEvent) event;
+                putTrade(trade.getSecurityIsin(), trade.getPrice(), trade.getQuantity(), trade.getBuyID(), trade.getSellID());
+            }
+            case SECURITY_STATE_CHANGED -> {
+                SecurityStateChangedEvent stateChanged = (SecurityStateChangedEvent) event;
+                putString(stateChanged.getSecurityIsin());
+                ensureRemaining(1);
+                buffer.put(stateChanged.getState() == null ? -1 : (byte) stateChanged.getState().ordinal());
+            }
+            case MATCHING_STATE_RQ_REJECTED -> {
+                MatchingStateRqRejectedEvent rejected = (MatchingStateRqRejectedEvent) event;
+                putString(rejected.getSecurityId());
+                putStrings(rejected.getErrors());
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private void putTime(LocalDateTime time) {
+        buffer.putLong(time == null ? RequestFlyweight.NO_TIME : time.toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(time == null ? 0 : time.getNano());
+    }
+
+    private void putOrder(long requestId, long orderId) {
+        ensureRemaining(16);
+        buffer.putLong(requestId);
+        buffer.putLong(orderId);
+    }
+
+    private void putTrades(List<TradeDTO> trades) {
+        ensureRemaining(4);
+        if (trades == null) {
+            buffer.putInt(NO_LIST);
+            return;
+        }
+        buffer.putInt(trades.size());
+        for (TradeDTO trade : trades)
+            putTrade(trade.securityIsin(), trade.price(), trade.quantity(), trade.buyOrderId(), trade.sellOrderId());
+    }
+
+    private void putTrade(String isin, int price, int quantity, long buyOrderId, long sellOrderId) {
+        putString(isin);
+        ensureRemaining(24);
+        buffer.putInt(price);
+        buffer.putInt(quantity);
+        buffer.putLong(buyOrderId);
+        buffer.putLong(sellOrderId);
+    }
+
+    private void putStrings(List<String> strings) {
+        ensureRemaining(4);
+        if (strings == null) {
+            buffer.putInt(NO_LIST);
+            return;
+        }
+        buffer.putInt(strings.size());
+        for (String string : strings)
+            putString(string);
+    }
+
+    private void putString(String string) {
+        if (string == null) {
+            ensureRemaining(2);
+            buffer.putShort(NO_STRING);
+        } else if (isAscii(string)) {
+            ensureRemaining(2 + checkedLength(string.length()));
+            buffer.putShort((short) string.length());
+            for (int i = 0; i < string.length(); i++)
+                buffer.put((byte) string.charAt(i));
+        } else {
+            byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+            ensureRemaining(2 + checkedLength(bytes.length));
+            buffer.putShort((short) bytes.length);
+            buffer.put(bytes);
+        }
+    }
+
+    private static int checkedLength(int length) {
+        if (length > Short.MAX_VALUE)
+            throw new MessageConversionException("Event string of " + length + " bytes is too long");
+        return length;
+    }
+
+    private static boolean isAscii(String string) {
+        for (int i = 0; i < string.length(); i++)
+            if (string.charAt(i) >= 0x80)
+                return false;
+        return true;
+    }
+
+    private void ensureRemaining(int bytes) {
+        if (buffer.remaining() >= bytes)
+            return;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+}
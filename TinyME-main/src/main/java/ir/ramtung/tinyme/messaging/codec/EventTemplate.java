@@ -0,0 +1,53 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.messaging.event.*;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+public enum EventTemplate {
+    ORDER_ACCEPTED(1, OrderAcceptedEvent.class),
+    ORDER_ACTIVATED(2, OrderActivatedEvent.class),
+    ORDER_DELETED(3, OrderDeletedEvent.class),
+    ORDER_UPDATED(4, OrderUpdatedEvent.class),
+    ORDER_REJECTED(5, OrderRejectedEvent.class),
+    ORDER_EXECUTED(6, OrderExecutedEvent.class),
+    OPENING_PRICE(7, OpeningPriceEvent.class),
+    TRADE(8, TradeEvent.class),
+    SECURITY_STATE_CHANGED(9, SecurityStateChangedEvent.class),
+    MATCHING_STATE_RQ_REJECTED(10, MatchingStateRqRejectedEvent.class);
+
+    public static final byte VERSION = 1;
+    private static final EventTemplate[] BY_ID = new EventTemplate[values().length + 1];
+    private final byte id;
+    private final Class<? extends Event> eventType;
+
+    static {
+        for (EventTemplate template : values())
+            BY_ID[template.id] = template;
+    }
+
+    EventTemplate(int id, Class<? extends Event> eventType) {
+        this.id = (byte) id;
+        this.eventType = eventType;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    public Class<? extends Event> getEventType() {
+        return eventType;
+    }
+
+    public static EventTemplate of(byte id) {
+        if (id <= 0 || id >= BY_ID.length)
+            throw new MessageConversionException("Unknown binary event template " + id);
+        return BY_ID[id];
+    }
+
+    public static EventTemplate of(Event event) {
+        for (EventTemplate template : values())
+            if (template.eventType == event.getClass())
+                return template;
+        throw new MessageConversionException("No binary encoding for " + event.getClass().getName());
+    }
+}
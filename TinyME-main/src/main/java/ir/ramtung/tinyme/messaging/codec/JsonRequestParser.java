@@ -0,0 +1,412 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.OrderEntryType;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+
+import java.time.DateTimeException;
+import java.time.Month;
+import java.time.Year;
+import java.time.temporal.ChronoField;
+
+public class JsonRequestParser {
+    private static final Unsupported UNSUPPORTED = new Unsupported();
+    private final SecurityRepository securityRepository;
+    private static final long DAYS_0000_TO_1970 = 719_528;
+    private final int[] timeFields = new int[7];
+    private long epochSecond;
+    private CharSequence json;
+    private int position;
+    private int stringStart;
+    private int stringEnd;
+    private boolean firstField;
+
+    public JsonRequestParser(SecurityRepository securityRepository) {
+        this.securityRepository = securityRepository;
+    }
+
+    public boolean parseEnterOrderRq(CharSequence json, EnterOrderRq rq) {
+        rq.setRequestType(null);
+        rq.setRequestId(0);
+        rq.setSecurityIsin(null);
+        rq.setOrderId(0);
+        rq.setEntryTime(null);
+        rq.setSide(null);
+        rq.setQuantity(0);
+        rq.setPrice(0);
+        rq.setBrokerId(0);
+        rq.setShareholderId(0);
+        rq.setPeakSize(0);
+        rq.setMinimumExecutionQuantity(0);
+        rq.setStopPrice(0);
+        try {
+            beginObject(json);
+            while (nextField()) {
+                if (keyIs("requestType"))
+                    rq.setRequestType(readRequestType());
+                else if (keyIs("requestId"))
+                    rq.setRequestId(readLong());
+                else if (keyIs("securityIsin"))
+                    rq.setSecurityIsin(readIsin());
+                else if (keyIs("orderId"))
+                    rq.setOrderId(readLong());
+                else if (keyIs("entryTime")) {
+                    if (readTime())
+                        rq.setEntryTime(epochSecond, timeFields[6]);
+                } else if (keyIs("side"))
+                    rq.setSide(readSide());
+                else if (keyIs("quantity"))
+                    rq.setQuantity(readInt());
+                else if (keyIs("price"))
+                    rq.setPrice(readInt());
+                else if (keyIs("brokerId"))
+                    rq.setBrokerId(readLong());
+                else if (keyIs("shareholderId"))
+                    rq.setShareholderId(readLong());
+                else if (keyIs("peakSize"))
+                    rq.setPeakSize(readInt());
+                else if (keyIs("minimumExecutionQuantity"))
+                    rq.setMinimumExecutionQuantity(readInt());
+                else if (keyIs("stopPrice"))
+                    rq.setStopPrice(readInt());
+                else
+                    skipValue();
+            }
+            return endDocument();
+        } catch (Unsupported | DateTimeException | IndexOutOfBoundsException ex) {
+            return false;
+        } finally {
+            this.json = null;
+        }
+    }
+
+    public boolean parseDeleteOrderRq(CharSequence json, DeleteOrderRq rq) {
+        rq.setRequestId(0);
+        rq.setSecurityIsin(null);
+        rq.setSide(null);
+        rq.setOrderId(0);
+        rq.setEntryTime(null);
+        try {
+            beginObject(json);
+            while (nextField()) {
+                if (keyIs("requestId"))
+                    rq.setRequestId(readLong());
+                else if (keyIs("securityIsin"))
+                    rq.setSecurityIsin(readIsin());
+                else if (keyIs("side"))
+                    rq.setSide(readSide());
+                else if (keyIs("orderId"))
+                    rq.setOrderId(readLong());
+                else if (keyIs("entryTime")) {
+                    if (readTime())
+                        rq.setEntryTime(epochSecond, timeFields[6]);
+                } else
+                    skipValue();
+            }
+            return endDocument();
+        } catch (Unsupported | DateTimeException | IndexOutOfBoundsException ex) {
+            return false;
+        } finally {
+            this.json = null;
+        }
+    }
+
+    private void beginObject(CharSequence json) {
+        this.json = json;
+        position = 0;
+        firstField = true;
+        expect('{');
+    }
+
+    private boolean nextField() {
+        char token = nextToken();
+        if (token == '}')
+            return false;
+        if (firstField) {
+            firstField = false;
+            position--;
+        } else if (token != ',') {
+            throw UNSUPPORTED;
+        }
+        readString();
+        expect(':');
+        return true;
+    }
+
+    private boolean endDocument() {
+        skipWhitespace();
+        return position == json.length();
+    }
+
+    private boolean keyIs(String name) {
+        int length = stringEnd - stringStart;
+        if (length != name.length())
+            return false;
+        for (int i = 0; i < length; i++)
+            if (json.charAt(stringStart + i) != name.charAt(i))
+                return false;
+        return true;
+    }
+
+    private OrderEntryType readRequestType() {
+        if (readNullableString())
+            return null;
+        if (keyIs("NEW_ORDER"))
+            return OrderEntryType.NEW_ORDER;
+        if (keyIs("UPDATE_ORDER"))
+            return OrderEntryType.UPDATE_ORDER;
+        throw UNSUPPORTED;
+    }
+
+    private Side readSide() {
+        if (readNullableString())
+            return null;
+        if (keyIs("BUY"))
+            return Side.BUY;
+        if (keyIs("SELL"))
+            return Side.SELL;
+        throw UNSUPPORTED;
+    }
+
+    private String readIsin() {
+        if (readNullableString())
+            return null;
+        String isin = securityRepository.internIsin(json, stringStart, stringEnd);
+        return isin != null ? isin : json.subSequence(stringStart, stringEnd).toString();
+    }
+
+    private boolean readTime() {
+        skipWhitespace();
+        char first = json.charAt(position);
+        int fieldCount;
+        if (first == 'n') {
+            expectLiteral("null");
+            return false;
+        } else if (first == '[') {
+            fieldCount = readTimeArray();
+        } else if (first == '"') {
+            fieldCount = readIsoTime();
+        } else {
+            throw UNSUPPORTED;
+        }
+        for (int i = fieldCount; i < timeFields.length; i++)
+            timeFields[i] = 0;
+        epochSecond = toEpochSecond(timeFields);
+        return true;
+    }
+
+    private static long toEpochSecond(int[] fields) {
+        int year = ChronoField.YEAR.checkValidIntValue(fields[0]);
+        int month = ChronoField.MONTH_OF_YEAR.checkValidIntValue(fields[1]);
+        int day = ChronoField.DAY_OF_MONTH.checkValidIntValue(fields[2]);
+        ChronoField.HOUR_OF_DAY.checkValidValue(fields[3]);
+        ChronoField.MINUTE_OF_HOUR.checkValidValue(fields[4]);
+        ChronoField.SECOND_OF_MINUTE.checkValidValue(fields[5]);
+        ChronoField.NANO_OF_SECOND.checkValidValue(fields[6]);
+        boolean leap = Year.isLeap(year);
+        if (day > Month.of(month).length(leap))
+            throw new DateTimeException("Invalid date " + year + "-" + month + "-" + day);
+        long days = 365L * year;
+        if (year >= 0)
+            days += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        else
+            days -= year / -4 - year / -100 + year / -400;
+        days += (367 * month - 362) / 12 + day - 1;
+        if (month > 2)
+            days -= leap ? 1 : 2;
+        return (days - DAYS_0000_TO_1970) * 86_400 + fields[3] * 3_600L + fields[4] * 60L + fields[5];
+    }
+
+    private int readTimeArray() {
+        position++;
+        int count = 0;
+        while (true) {
+            if (count == timeFields.length)
+                throw UNSUPPORTED;
+            timeFields[count++] = readInt();
+            char separator = nextToken();
+            if (separator == ']')
+                break;
+            if (separator != ',')
+                throw UNSUPPORTED;
+        }
+        if (count < 5)
+            throw UNSUPPORTED;
+        return count;
+    }
+
+    private int readIsoTime() {
+        position++;
+        timeFields[0] = digits(4);
+        expectChar('-');
+        timeFields[1] = digits(2);
+        expectChar('-');
+        timeFields[2] = digits(2);
+        expectChar('T');
+        timeFields[3] = digits(2);
+        expectChar(':');
+        timeFields[4] = digits(2);
+        int count = 5;
+        if (json.charAt(position) == ':') {
+            position++;
+            timeFields[5] = digits(2);
+            count = 6;
+            if (json.charAt(position) == '.') {
+                position++;
+                int nanos = 0;
+                int scale = 0;
+                while (isDigit(json.charAt(position))) {
+                    if (++scale > 9)
+                        throw UNSUPPORTED;
+                    nanos = nanos * 10 + json.charAt(position++) - '0';
+                }
+                if (scale == 0)
+                    throw UNSUPPORTED;
+                for (; scale < 9; scale++)
+                    nanos *= 10;
+                timeFields[6] = nanos;
+                count = 7;
+            }
+        }
+        expectChar('"');
+        return count;
+    }
+
+    private int digits(int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            char c = json.charAt(position++);
+            if (!isDigit(c))
+                throw UNSUPPORTED;
+            value = value * 10 + c - '0';
+        }
+        return value;
+    }
+
+    private int readInt() {
+        long value = readLong();
+        if (value != (int) value)
+            throw UNSUPPORTED;
+        return (int) value;
+    }
+
+    private long readLong() {
+        skipWhitespace();
+        boolean negative = json.charAt(position) == '-';
+        if (negative)
+            position++;
+        int start = position;
+        long value = 0;
+        while (position < json.length() && isDigit(json.charAt(position))) {
+            if (position - start == 18)
+                throw UNSUPPORTED;
+            value = value * 10 + json.charAt(position++) - '0';
+        }
+        if (position == start)
+            throw UNSUPPORTED;
+        if (position < json.length() && isNumberContinuation(json.charAt(position)))
+            throw UNSUPPORTED;
+        return negative ? -value : value;
+    }
+
+    private boolean readNullableString() {
+        skipWhitespace();
+        if (json.charAt(position) == 'n') {
+            expectLiteral("null");
+            return true;
+        }
+        readString();
+        return false;
+    }
+
+    private void readString() {
+        skipWhitespace();
+        expectChar('"');
+        stringStart = position;
+        while (true) {
+            char c = json.charAt(position);
+            if (c == '"')
+                break;
+            if (c == '\\' || c < ' ')
+                throw UNSUPPORTED;
+            position++;
+        }
+        stringEnd = position++;
+    }
+
+    private void skipValue() {
+        skipWhitespace();
+        char first = json.charAt(position);
+        if (first == '"') {
+            readString();
+        } else if (first == '{' || first == '[') {
+            int depth = 0;
+            do {
+                char c = json.charAt(position);
+                if (c == '"') {
+                    readString();
+                    continue;
+                }
+                if (c == '{' || c == '[')
+                    depth++;
+                else if (c == '}' || c == ']')
+                    depth--;
+                position++;
+            } while (depth > 0);
+        } else {
+            while (position < json.length() && !isValueTerminator(json.charAt(position)))
+                position++;
+        }
+    }
+
+    private char nextToken() {
+        skipWhitespace();
+        return json.charAt(position++);
+    }
+
+    private void expect(char expected) {
+        if (nextToken() != expected)
+            throw UNSUPPORTED;
+    }
+
+    private void expectChar(char expected) {
+        if (json.charAt(position++) != expected)
+            throw UNSUPPORTED;
+    }
+
+    private void expectLiteral(String literal) {
+        for (int i = 0; i < literal.length(); i++)
+            expectChar(literal.charAt(i));
+    }
+
+    private void skipWhitespace() {
+        while (position < json.length()) {
+            char c = json.charAt(position);
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t')
+                return;
+            position++;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberContinuation(char c) {
+        return c == '.' || c == 'e' || c == 'E';
+    }
+
+    private static boolean isValueTerminator(char c) {
+        return c == ',' || c == '}' || c == ']' || c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static final class Unsupported extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private Unsupported() {
+            super("Request needs the general JSON decoder", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+abstract class RequestFlyweight {
+    static final int TEMPLATE_OFFSET = 0;
+    static final int VERSION_OFFSET = 1;
+    static final int ISIN_LENGTH = 12;
+    static final long NO_TIME = Long.MIN_VALUE;
+    private static final byte NO_ENUM = -1;
+    private static final Side[] SIDES = Side.values();
+    protected ByteBuffer buffer;
+    protected int offset;
+
+    void wrap(ByteBuffer buffer, int offset, RequestTemplate template) {
+        if (buffer.limit() - offset < template.getLength())
+            throw new MessageConversionException("Truncated " + template + " request: " + (buffer.limit() - offset)
+                    + " of " + template.getLength() + " bytes");
+        if (buffer.get(offset + TEMPLATE_OFFSET) != template.getId())
+            throw new MessageConversionException("Expected a " + template + " request");
+        if (buffer.get(offset + VERSION_OFFSET) != RequestTemplate.VERSION)
+            throw new MessageConversionException("Unsupported binary request version " + buffer.get(offset + VERSION_OFFSET));
+        this.buffer = buffer;
+        this.offset = offset;
+    }
+
+    protected Side side(int at) {
+        byte ordinal = buffer.get(offset + at);
+        return ordinal == NO_ENUM ? null : SIDES[ordinal];
+    }
+
+    protected LocalDateTime time(int secondsAt, int nanosAt) {
+        long seconds = buffer.getLong(offset + secondsAt);
+        if (seconds == NO_TIME)
+            return null;
+        return LocalDateTime.ofEpochSecond(seconds, buffer.getInt(offset + nanosAt), ZoneOffset.UTC);
+    }
+
+    protected String isin(int lengthAt) {
+        int length = buffer.get(offset + lengthAt);
+        if (length == NO_ENUM)
+            return null;
+        byte[] isin = new byte[length];
+        buffer.get(offset + lengthAt + 1, isin);
+        return new String(isin, StandardCharsets.US_ASCII);
+    }
+
+    protected String isin(int lengthAt, SecurityRepository securityRepository) {
+        int length = buffer.get(offset + lengthAt);
+        if (length == NO_ENUM || securityRepository == null)
+            return isin(lengthAt);
+        int start = offset + lengthAt + 1;
+        String interned = securityRepository.internIsin(buffer, start, start + length);
+        return interned != null ? interned : isin(lengthAt);
+    }
+
+    protected boolean isinEquals(int lengthAt, String isin) {
+        int length = buffer.get(offset + lengthAt);
+        if (length != isin.length())
+            return false;
+        for (int i = 0; i < length; i++)
+            if (buffer.get(offset + lengthAt + 1 + i) != isin.charAt(i))
+                return false;
+        return true;
+    }
+
+    static void putEnum(ByteBuffer buffer, int at, Enum<?> value) {
+        buffer.put(at, value == null ? NO_ENUM : (byte) value.ordinal());
+    }
+
+    static void putTime(ByteBuffer buffer, int secondsAt, int nanosAt, long seconds, int nanos) {
+        buffer.putLong(secondsAt, seconds);
+        buffer.putInt(nanosAt, seconds == NO_TIME ? 0 : nanos);
+    }
+
+    static void putIsin(ByteBuffer buffer, int lengthAt, String isin) {
+        if (isin == null) {
+            buffer.put(lengthAt, NO_ENUM);
+            return;
+        }
+        if (isin.length() > ISIN_LENGTH)
+            throw new MessageConversionException("ISIN longer than " + ISIN_LENGTH + " characters: " + isin);
+        buffer.put(lengthAt, (byte) isin.length());
+        for (int i = 0; i < isin.length(); i++)
+            buffer.put(lengthAt + 1 + i, (byte) isin.charAt(i));
+    }
+
+    static void putHeader(ByteBuffer buffer, RequestTemplate template) {
+        buffer.put(TEMPLATE_OFFSET, template.getId());
+        buffer.put(VERSION_OFFSET, RequestTemplate.VERSION);
+    }
+}
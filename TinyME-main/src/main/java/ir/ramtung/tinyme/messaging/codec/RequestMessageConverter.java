@@ -0,0 +1,141 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.nio.ByteBuffer;
+
+public class RequestMessageConverter implements MessageConverter {
+    public static final String TYPE_PROPERTY = "_type";
+    public static final String GROUP_PROPERTY = "JMSXGroupID";
+    private static final String ENTER_ORDER_TYPE = EnterOrderRq.class.getName();
+    private static final String DELETE_ORDER_TYPE = DeleteOrderRq.class.getName();
+    private final MessageConverter jsonConverter;
+    private final ThreadLocal<Decoders> decoders;
+
+    public RequestMessageConverter(MessageConverter jsonConverter, SecurityRepository securityRepository) {
+        this.jsonConverter = jsonConverter;
+        decoders = ThreadLocal.withInitial(() -> new Decoders(securityRepository));
+    }
+
+    @Override
+    public Message toMessage(Object object, Session session) throws JMSException {
+        Message message = jsonConverter.toMessage(object, session);
+        String group = groupOf(object);
+        if (group != null)
+            message.setStringProperty(GROUP_PROPERTY, group);
+        return message;
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws JMSException {
+        return fromMessage(message, null, null);
+    }
+
+    public Object fromMessage(Message message, EnterOrderRq pooledEnterOrderRq, DeleteOrderRq pooledDeleteOrderRq)
+            throws JMSException {
+        if (message instanceof BytesMessage bytesMessage)
+            return decoders.get().read(bytesMessage, pooledEnterOrderRq, pooledDeleteOrderRq);
+        if (message instanceof TextMessage textMessage) {
+            String type = textMessage.getStringProperty(TYPE_PROPERTY);
+            if (ENTER_ORDER_TYPE.equals(type)) {
+                EnterOrderRq rq = pooledEnterOrderRq != null ? pooledEnterOrderRq : new EnterOrderRq();
+                if (decoders.get().json.parseEnterOrderRq(textMessage.getText(), rq))
+                    return rq;
+            } else if (DELETE_ORDER_TYPE.equals(type)) {
+                DeleteOrderRq rq = pooledDeleteOrderRq != null ? pooledDeleteOrderRq : new DeleteOrderRq();
+                if (decoders.get().json.parseDeleteOrderRq(textMessage.getText(), rq))
+                    return rq;
+            }
+        }
+        return jsonConverter.fromMessage(message);
+    }
+
+    public Object decode(ByteBuffer buffer) {
+        return decode(buffer, null, null);
+    }
+
+    public Object decode(ByteBuffer buffer, EnterOrderRq pooledEnterOrderRq, DeleteOrderRq pooledDeleteOrderRq) {
+        return decoders.get().decode(buffer, pooledEnterOrderRq, pooledDeleteOrderRq);
+    }
+
+    public static BytesMessage toBytesMessage(Object request, Session session) throws JMSException {
+        BytesMessage message = session.createBytesMessage();
+        message.writeBytes(encode(request));
+        message.setStringProperty(TYPE_PROPERTY, request.getClass().getName());
+        String group = groupOf(request);
+        if (group != null)
+            message.setStringProperty(GROUP_PROPERTY, group);
+        return message;
+    }
+
+    public static String groupOf(Object request) {
+        if (request instanceof EnterOrderRq enterOrderRq)
+            return enterOrderRq.getSecurityIsin();
+        if (request instanceof DeleteOrderRq deleteOrderRq)
+            return deleteOrderRq.getSecurityIsin();
+        if (request instanceof ChangingMatchingStateRq changingMatchingStateRq)
+            return changingMatchingStateRq.getSecurityIsin();
+        return null;
+    }
+
+    public static byte[] encode(Object request) {
+        ByteBuffer buffer = ByteBuffer.allocate(RequestTemplate.of(request).getLength());
+        encodeInto(request, buffer);
+        return buffer.array();
+    }
+
+    public static int encodeInto(Object request, ByteBuffer buffer) {
+        RequestTemplate template = RequestTemplate.of(request);
+        switch (template) {
+            case ENTER_ORDER -> EnterOrderRqDecoder.encode((EnterOrderRq) request, buffer);
+            case DELETE_ORDER -> DeleteOrderRqDecoder.encode((DeleteOrderRq) request, buffer);
+            case CHANGE_MATCHING_STATE -> ChangingMatchingStateRqDecoder.encode((ChangingMatchingStateRq) request, buffer);
+        }
+        return template.getLength();
+    }
+
+    private static class Decoders {
+        private final EnterOrderRqDecoder enterOrder = new EnterOrderRqDecoder();
+        private final DeleteOrderRqDecoder deleteOrder = new DeleteOrderRqDecoder();
+        private final ChangingMatchingStateRqDecoder changeMatchingState = new ChangingMatchingStateRqDecoder();
+        private final SecurityRepository securityRepository;
+        private final JsonRequestParser json;
+        private final ByteBuffer scratch = ByteBuffer.allocate(EnterOrderRqDecoder.LENGTH);
+
+        Decoders(SecurityRepository securityRepository) {
+            this.securityRepository = securityRepository;
+            json = new JsonRequestParser(securityRepository);
+        }
+
+        Object read(BytesMessage message, EnterOrderRq pooledEnterOrderRq, DeleteOrderRq pooledDeleteOrderRq)
+                throws JMSException {
+            long length = message.getBodyLength();
+            if (length > scratch.capacity())
+                throw new MessageConversionException("Binary request of " + length + " bytes is too long");
+            scratch.clear();
+            message.readBytes(scratch.array(), (int) length);
+            scratch.limit((int) length);
+            return decode(scratch, pooledEnterOrderRq, pooledDeleteOrderRq);
+        }
+
+        Object decode(ByteBuffer buffer, EnterOrderRq pooledEnterOrderRq, DeleteOrderRq pooledDeleteOrderRq) {
+            return switch (RequestTemplate.of(buffer)) {
+                case ENTER_ORDER -> enterOrder.wrap(buffer, 0).decodeInto(
+                        pooledEnterOrderRq != null ? pooledEnterOrderRq : new EnterOrderRq(), securityRepository);
+                case DELETE_ORDER -> deleteOrder.wrap(buffer, 0).decodeInto(
+                        pooledDeleteOrderRq != null ? pooledDeleteOrderRq : new DeleteOrderRq(), securityRepository);
+                case CHANGE_MATCHING_STATE -> changeMatchingState.wrap(buffer, 0).toRequest(securityRepository);
+            };
+        }
+    }
+}
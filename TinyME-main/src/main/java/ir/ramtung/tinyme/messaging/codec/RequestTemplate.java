@@ -0,0 +1,58 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+import java.nio.ByteBuffer;
+
+public enum RequestTemplate {
+    ENTER_ORDER(1, EnterOrderRqDecoder.LENGTH, EnterOrderRq.class),
+    DELETE_ORDER(2, DeleteOrderRqDecoder.LENGTH, DeleteOrderRq.class),
+    CHANGE_MATCHING_STATE(3, ChangingMatchingStateRqDecoder.LENGTH, ChangingMatchingStateRq.class);
+
+    public static final byte VERSION = 1;
+    private static final RequestTemplate[] TEMPLATES = values();
+    private final byte id;
+    private final int length;
+    private final Class<?> requestType;
+
+    RequestTemplate(int id, int length, Class<?> requestType) {
+        this.id = (byte) id;
+        this.length = length;
+        this.requestType = requestType;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public Class<?> getRequestType() {
+        return requestType;
+    }
+
+    public static RequestTemplate of(byte id) {
+        for (RequestTemplate template : TEMPLATES)
+            if (template.id == id)
+                return template;
+        throw new MessageConversionException("Unknown binary request template " + id);
+    }
+
+    public static RequestTemplate of(ByteBuffer request) {
+        if (request.limit() == 0)
+            throw new MessageConversionException("Empty binary request");
+        return of(request.get(RequestFlyweight.TEMPLATE_OFFSET));
+    }
+
+    public static RequestTemplate of(Object request) {
+        for (RequestTemplate template : TEMPLATES)
+            if (template.requestType.isInstance(request))
+                return template;
+        throw new MessageConversionException("No binary encoding for " + request.getClass().getName());
+    }
+}
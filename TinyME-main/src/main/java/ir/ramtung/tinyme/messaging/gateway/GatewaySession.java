@@ -0,0 +1,90 @@
+package ir.ramtung.tinyme.messaging.gateway;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+class GatewaySession {
+    private final long id;
+    private final SocketChannel channel;
+    private final ByteBuffer inbound;
+    private final ByteBuffer outbound;
+    private SelectionKey key;
+    private long expectedSequence = 1;
+    private long outboundSequence;
+    private boolean overflowed;
+    private volatile boolean closed;
+
+    GatewaySession(long id, SocketChannel channel, int inboundCapacity, int outboundCapacity) {
+        this.id = id;
+        this.channel = channel;
+        inbound = ByteBuffer.allocateDirect(inboundCapacity);
+        outbound = ByteBuffer.allocateDirect(outboundCapacity);
+    }
+
+    long getId() {
+        return id;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    ByteBuffer getInbound() {
+        return inbound;
+    }
+
+    void attachTo(SelectionKey key) {
+        this.key = key;
+    }
+
+    boolean acceptSequence(long sequence) throws ProtocolException {
+        if (sequence < expectedSequence)
+            return false;
+        if (sequence > expectedSequence)
+            throw new ProtocolException("Expected sequence " + expectedSequence + " but received " + sequence);
+        expectedSequence++;
+        return true;
+    }
+
+    synchronized void report(ByteBuffer payload) {
+        if (closed || overflowed)
+            return;
+        if (outbound.remaining() < OrderEntryGateway.FRAME_HEADER_LENGTH + payload.remaining()) {
+            overflowed = true;
+            return;
+        }
+        outbound.putInt(payload.remaining());
+        outbound.putLong(++outboundSequence);
+        outbound.put(payload);
+    }
+
+    synchronized boolean hasOverflowed() {
+        return overflowed;
+    }
+
+    synchronized void flush() throws IOException {
+        outbound.flip();
+        try {
+            channel.write(outbound);
+        } finally {
+            outbound.compact();
+        }
+        if (key.isValid())
+            key.interestOps(outbound.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    void close() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package ir.ramtung.tinyme.messaging.gateway;
+
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.codec.EventEncoder;
+import ir.ramtung.tinyme.messaging.codec.RequestMessageConverter;
+import ir.ramtung.tinyme.messaging.codec.RequestTemplate;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.pipeline.RequestPipeline;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+public class OrderEntryGateway {
+    public static final int FRAME_HEADER_LENGTH = 12;
+    public static final int MAX_FRAME_PAYLOAD = 1024;
+    private static final int INBOUND_CAPACITY = 64 * 1024;
+    private static final int OUTBOUND_CAPACITY = 1024 * 1024;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestPipeline requestPipeline;
+    private final int port;
+    private final EventEncoder encoder = new EventEncoder();
+    private final OrderOwners owners = new OrderOwners();
+    private final Queue<GatewaySession> pendingFlushes = new ConcurrentLinkedQueue<>();
+    private final Set<GatewaySession> sessions = ConcurrentHashMap.newKeySet();
+    private long nextSessionId = 1;
+    private Selector selector;
+    private ServerSocketChannel server;
+    private Thread selectorThread;
+    private volatile boolean running;
+
+    public OrderEntryGateway(RequestPipeline requestPipeline, @Value("${orderEntryGatewayPort:0}") int port) {
+        this.requestPipeline = requestPipeline;
+        this.port = port;
+        requestPipeline.setPublicationListener(this::report);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() throws IOException {
+        if (port > 0)
+            start(new InetSocketAddress(port));
+    }
+
+    public synchronized void start(InetSocketAddress address) throws IOException {
+        if (running)
+            throw new IllegalStateException("Order entry gateway is already running");
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        selectorThread = new Thread(this::selectLoop, "order-entry-gateway");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+        log.info("Order entry gateway listening on " + server.getLocalAddress());
+    }
+
+    public int getLocalPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() throws InterruptedException {
+        if (!running)
+            return;
+        running = false;
+        selector.wakeup();
+        selectorThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+    }
+
+    private void selectLoop() {
+        while (running) {
+            try {
+                selector.select();
+                flushPending();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (key.isValid() && key.isAcceptable())
+                        accept();
+                    else if (key.isValid())
+                        serve(key, (GatewaySession) key.attachment());
+                }
+            } catch (IOException ex) {
+                log.log(Level.SEVERE, "Order entry gateway failed to poll its sessions", ex);
+            }
+        }
+        flushPending();
+        for (GatewaySession session : sessions)
+            close(session, "gateway shut down");
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException ex) {
+            log.log(Level.WARNING, "Could not close the order entry gateway", ex);
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null)
+            return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        GatewaySession session = new GatewaySession(nextSessionId++, channel, INBOUND_CAPACITY, OUTBOUND_CAPACITY);
+        session.attachTo(channel.register(selector, SelectionKey.OP_READ, session));
+        sessions.add(session);
+        log.info("Order entry session " + session.getId() + " opened from " + channel.getRemoteAddress());
+    }
+
+    private void serve(SelectionKey key, GatewaySession session) {
+        try {
+            if (key.isReadable())
+                read(session);
+            if (key.isValid() && key.isWritable())
+                session.flush();
+        } catch (IOException | RuntimeException ex) {
+            close(session, ex.getMessage());
+        }
+    }
+
+    private void read(GatewaySession session) throws IOException {
+        ByteBuffer inbound = session.getInbound();
+        if (session.getChannel().read(inbound) < 0) {
+            close(session, "disconnected");
+            return;
+        }
+        inbound.flip();
+        while (inbound.remaining() >= FRAME_HEADER_LENGTH) {
+            int start = inbound.position();
+            int length = inbound.getInt(start);
+            if (length <= 0 || length > MAX_FRAME_PAYLOAD)
+                throw new ProtocolException("Invalid frame length " + length);
+            if (inbound.remaining() < FRAME_HEADER_LENGTH + length)
+                break;
+            long sequence = inbound.getLong(start + 4);
+            inbound.position(start + FRAME_HEADER_LENGTH + length);
+            if (session.acceptSequence(sequence))
+                submit(session, inbound.slice(start + FRAME_HEADER_LENGTH, length));
+        }
+        inbound.compact();
+    }
+
+    private void submit(GatewaySession session, ByteBuffer request) throws ProtocolException {
+        RequestTemplate template = RequestTemplate.of(request);
+        if (template != RequestTemplate.ENTER_ORDER && template != RequestTemplate.DELETE_ORDER)
+            throw new ProtocolException(template.getRequestType().getSimpleName()
+                    + " is not accepted by the order entry gateway");
+        requestPipeline.submit(request, session);
+    }
+
+    private void report(Object request, Object origin, List<Event> events) {
+        String isin = RequestMessageConverter.groupOf(request);
+        if (isin == null)
+            return;
+        GatewaySession from = origin instanceof GatewaySession session ? session : null;
+        boolean reported = false;
+        for (Event event : events) {
+            if (event instanceof TradeEvent trade) {
+                reported |= reportTrade(isin, trade.getBuyID(), trade, trade.getQuantity());
+                reported |= reportTrade(isin, trade.getSellID(), trade, trade.getQuantity());
+                continue;
+            }
+            long orderId = orderIdOf(event);
+            boolean response = orderId == orderIdOf(request) && requestIdOf(event) == requestIdOf(request);
+            if (response && from != null && request instanceof EnterOrderRq enterOrderRq
+                    && (event instanceof OrderAcceptedEvent || event instanceof OrderUpdatedEvent
+                    || event instanceof OrderExecutedEvent))
+                owners.register(isin, orderId, from, enterOrderRq.getQuantity());
+            GatewaySession owner = orderId < 0 ? null : owners.find(isin, orderId);
+            if (response) {
+                reported |= send(from, event);
+                if (event instanceof OrderDeletedEvent && owner != from)
+                    reported |= send(owner, event);
+            } else {
+                reported |= send(owner != null ? owner : from, event);
+            }
+            if (event instanceof OrderExecutedEvent executed) {
+                for (TradeDTO trade : executed.getTrades()) {
+                    long counterparty = trade.buyOrderId() == orderId ? trade.sellOrderId() : trade.buyOrderId();
+                    reported |= reportTrade(isin, counterparty, new TradeEvent(isin, trade.price(), trade.quantity(),
+                            trade.buyOrderId(), trade.sellOrderId()), trade.quantity());
+                    owners.traded(isin, orderId, trade.quantity());
+                }
+            } else if (event instanceof OrderDeletedEvent) {
+                owners.remove(isin, orderId);
+            }
+        }
+        if (reported)
+            selector.wakeup();
+    }
+
+    private boolean reportTrade(String isin, long orderId, TradeEvent trade, int quantity) {
+        boolean reported = send(owners.find(isin, orderId), trade);
+        owners.traded(isin, orderId, quantity);
+        return reported;
+    }
+
+    private boolean send(GatewaySession session, Event event) {
+        if (session == null || session.isClosed())
+            return false;
+        session.report(encoder.encode(event));
+        pendingFlushes.add(session);
+        return true;
+    }
+
+    private static long requestIdOf(Object requestOrEvent) {
+        if (requestOrEvent instanceof EnterOrderRq rq)
+            return rq.getRequestId();
+        if (requestOrEvent instanceof DeleteOrderRq rq)
+            return rq.getRequestId();
+        if (requestOrEvent instanceof OrderAcceptedEvent event)
+            return event.getRequestId();
+        if (requestOrEvent instanceof OrderExecutedEvent event)
+            return event.getRequestId();
+        if (requestOrEvent instanceof OrderUpdatedEvent event)
+            return event.getRequestId();
+        if (requestOrEvent instanceof OrderDeletedEvent event)
+            return event.getRequestId();
+        if (requestOrEvent instanceof OrderRejectedEvent event)
+            return event.getRequestId();
+        if (requestOrEvent instanceof OrderActivatedEvent event)
+            return event.getRequestId();
+        return -1;
+    }
+
+    private static long orderIdOf(Object requestOrEvent) {
+        if (requestOrEvent instanceof EnterOrderRq rq)
+            return rq.getOrderId();
+        if (requestOrEvent instanceof DeleteOrderRq rq)
+            return rq.getOrderId();
+        if (requestOrEvent instanceof OrderAcceptedEvent event)
+            return event.getOrderId();
+        if (requestOrEvent instanceof OrderExecutedEvent event)
+            return event.getOrderId();
+        if (requestOrEvent instanceof OrderUpdatedEvent event)
+            return event.getOrderId();
+        if (requestOrEvent instanceof OrderDeletedEvent event)
+            return event.getOrderId();
+        if (requestOrEvent instanceof OrderRejectedEvent event)
+            return event.getOrderId();
+        if (requestOrEvent instanceof OrderActivatedEvent event)
+            return event.getOrderId();
+        return -1;
+    }
+
+    private void flushPending() {
+        GatewaySession session;
+        while ((session = pendingFlushes.poll()) != null) {
+            if (session.isClosed())
+                continue;
+            if (session.hasOverflowed()) {
+                close(session, "more than " + OUTBOUND_CAPACITY + " bytes of reports are unread");
+                continue;
+            }
+            try {
+                session.flush();
+            } catch (IOException ex) {
+                close(session, ex.getMessage());
+            }
+        }
+    }
+
+    private void close(GatewaySession session, String reason) {
+        if (!sessions.remove(session))
+            return;
+        session.close();
+        log.info("Order entry session " + session.getId() + " closed: " + reason);
+    }
+}
@@ -0,0 +1,52 @@
+package ir.ramtung.tinyme.messaging.gateway;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class OrderOwners {
+    private static final class Owner {
+        final GatewaySession session;
+        int remainingQuantity;
+
+        Owner(GatewaySession session, int remainingQuantity) {
+            this.session = session;
+            this.remainingQuantity = remainingQuantity;
+        }
+    }
+
+    private final Map<String, Map<Long, Owner>> ownersByIsin = new HashMap<>();
+
+    void register(String isin, long orderId, GatewaySession session, int quantity) {
+        Map<Long, Owner> owners = ownersByIsin.computeIfAbsent(isin, key -> new HashMap<>());
+        Owner owner = owners.get(orderId);
+        if (owner == null)
+            owners.put(orderId, new Owner(session, quantity));
+        else
+            owner.remainingQuantity = quantity;
+    }
+
+    GatewaySession find(String isin, long orderId) {
+        Map<Long, Owner> owners = ownersByIsin.get(isin);
+        Owner owner = owners == null ? null : owners.get(orderId);
+        if (owner == null)
+            return null;
+        if (owner.session.isClosed()) {
+            owners.remove(orderId);
+            return null;
+        }
+        return owner.session;
+    }
+
+    void traded(String isin, long orderId, int quantity) {
+        Map<Long, Owner> owners = ownersByIsin.get(isin);
+        Owner owner = owners == null ? null : owners.get(orderId);
+        if (owner != null && (owner.remainingQuantity -= quantity) <= 0)
+            owners.remove(orderId);
+    }
+
+    void remove(String isin, long orderId) {
+        Map<Long, Owner> owners = ownersByIsin.get(isin);
+        if (owners != null)
+            owners.remove(orderId);
+    }
+}
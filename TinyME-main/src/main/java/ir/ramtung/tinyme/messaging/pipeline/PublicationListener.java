@@ -0,0 +1,10 @@
+package ir.ramtung.tinyme.messaging.pipeline;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+
+import java.util.List;
+
+@FunctionalInterface
+public interface PublicationListener {
+    void published(Object request, Object origin, List<Event> events);
+}
@@ -0,0 +1,373 @@
+package ir.ramtung.tinyme.messaging.pipeline;
+
+import ir.ramtung.tinyme.domain.service.IsinShardedExecutor;
+import ir.ramtung.tinyme.domain.service.MatcherStateHandler;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.domain.service.validation.Validation;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.codec.RequestMessageConverter;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.MatchingStateRqRejectedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.RequestJournal;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.jms.Message;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+@Component
+public class RequestPipeline {
+    private static final int BUSY_SPINS = 200;
+    private static final long IDLE_PARK_NANOS = 50_000;
+    private static final long SHUTDOWN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestMessageConverter messageConverter;
+    private final Validation validation;
+    private final OrderHandler orderHandler;
+    private final MatcherStateHandler matcherStateHandler;
+    private final IsinShardedExecutor shardedExecutor;
+    private final EventPublisher eventPublisher;
+    private final RequestJournal requestJournal;
+    private final SecurityRepository securityRepository;
+    private final RequestSlot[] ring;
+    private final int mask;
+    private final long statisticsSeconds;
+
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong decoded = new AtomicLong(-1);
+    private final AtomicLong validated = new AtomicLong(-1);
+    private final AtomicLong dispatched = new AtomicLong(-1);
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong published = new AtomicLong(-1);
+    private volatile PublicationListener publicationListener;
+    private volatile boolean running;
+    private Thread[] stages;
+    private ScheduledExecutorService statisticsLogger;
+
+    public RequestPipeline(RequestMessageConverter messageConverter, Validation validation, OrderHandler orderHandler,
+                           MatcherStateHandler matcherStateHandler, IsinShardedExecutor shardedExecutor, EventPublisher eventPublisher,
+                           RequestJournal requestJournal, SecurityRepository securityRepository,
+                           @Value("${requestPipelineSize:1024}") int size,
+                           @Value("${requestPipelineStatisticsSeconds:60}") long statisticsSeconds) {
+        if (Integer.bitCount(size) != 1)
+            throw new IllegalArgumentException("Request pipeline size must be a power of two");
+        this.messageConverter = messageConverter;
+        this.validation = validation;
+        this.orderHandler = orderHandler;
+        this.matcherStateHandler = matcherStateHandler;
+        this.shardedExecutor = shardedExecutor;
+        this.eventPublisher = eventPublisher;
+        this.requestJournal = requestJournal;
+        this.securityRepository = securityRepository;
+        this.statisticsSeconds = statisticsSeconds;
+        ring = new RequestSlot[size];
+        for (int i = 0; i < size; i++)
+            ring[i] = new RequestSlot();
+        mask = size - 1;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        stages = new Thread[] {
+                stage("request-decode", this::decodeLoop),
+                stage("request-validate", this::validateLoop),
+                stage("request-match", this::matchLoop),
+                stage("request-publish", this::publishLoop)
+        };
+        for (Thread stage : stages)
+            stage.start();
+        if (statisticsSeconds > 0) {
+            statisticsLogger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "request-pipeline-statistics");
+                thread.setDaemon(true);
+                return thread;
+            });
+            statisticsLogger.scheduleAtFixedRate(this::logStatistics, statisticsSeconds, statisticsSeconds,
+                    TimeUnit.SECONDS);
+        }
+    }
+
+    // The listener acknowledges the message once this returns, so it waits until the request is in the journal;
+    // the journal is a mapped file, so the request survives a crash of the process from then on, but only
+    // survives a crash of the host once it is synced
+    public void submit(Message message) {
+        long sequence = claim();
+        RequestSlot slot = ring[(int) sequence & mask];
+        slot.message = message;
+        slot.submittedSequence = sequence;
+        awaitStage(dispatched, sequence);
+    }
+
+    public void submit(ByteBuffer request, Object origin) {
+        long sequence = claim();
+        RequestSlot slot = ring[(int) sequence & mask];
+        slot.origin = origin;
+        try {
+            slot.request = messageConverter.decode(request, slot.enterOrderRq, slot.deleteOrderRq);
+        } finally {
+            slot.submittedSequence = sequence;
+        }
+    }
+
+    public void setPublicationListener(PublicationListener publicationListener) {
+        this.publicationListener = publicationListener;
+    }
+
+    private long claim() {
+        long sequence = claimed.incrementAndGet();
+        for (int idle = 0; sequence - ring.length > published.get(); idle++)
+            idle(idle);
+        return sequence;
+    }
+
+    public List<StageStatistics> getStatistics() {
+        long publishedCount = published.get() + 1;
+        long matchedCount = matched.get();
+        long dispatchedCount = dispatched.get() + 1;
+        long validatedCount = validated.get() + 1;
+        long decodedCount = decoded.get() + 1;
+        long submittedCount = claimed.get() + 1;
+        return List.of(
+                new StageStatistics("decode", decodedCount, submittedCount - decodedCount),
+                new StageStatistics("validate", validatedCount, decodedCount - validatedCount),
+                new StageStatistics("match", matchedCount, validatedCount - matchedCount),
+                new StageStatistics("publish", publishedCount, matchedCount - publishedCount)
+        );
+    }
+
+    public void logStatistics() {
+        log.info("Request pipeline: " + getStatistics());
+    }
+
+    public void awaitPublished(long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        for (int idle = 0; published.get() < claimed.get() && System.nanoTime() < deadline; idle++)
+            idle(idle);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!running)
+            return;
+        awaitPublished(SHUTDOWN_TIMEOUT_NANOS);
+        if (published.get() < claimed.get())
+            log.warning("Request pipeline stopped with " + (claimed.get() - published.get()) + " requests in flight");
+        running = false;
+        for (Thread stage : stages)
+            stage.join(TimeUnit.NANOSECONDS.toMillis(SHUTDOWN_TIMEOUT_NANOS));
+        if (statisticsLogger != null)
+            statisticsLogger.shutdownNow();
+    }
+
+    private void decodeLoop() {
+        for (long sequence = 0; ; sequence++) {
+            RequestSlot slot = ring[(int) sequence & mask];
+            for (int idle = 0; slot.submittedSequence != sequence; idle++) {
+                if (!running)
+                    return;
+                idle(idle);
+            }
+            if (slot.message != null) {
+                try {
+                    slot.request = messageConverter.fromMessage(slot.message, slot.enterOrderRq, slot.deleteOrderRq);
+                } catch (Exception ex) {
+                    log.log(Level.SEVERE, "Could not decode request " + sequence, ex);
+                }
+                slot.message = null;
+            }
+            if (log.isLoggable(Level.FINE))
+                log.log(Level.FINE, "Received message: {0}", slot.request);
+            decoded.set(sequence);
+        }
+    }
+
+    private void validateLoop() {
+        for (long sequence = 0; ; sequence++) {
+            if (!awaitStage(decoded, sequence))
+                return;
+            RequestSlot slot = ring[(int) sequence & mask];
+            if (slot.request instanceof EnterOrderRq enterOrderRq)
+                slot.fieldErrors = validation.validateEnterOrderFields(enterOrderRq);
+            validated.set(sequence);
+        }
+    }
+
+    private void matchLoop() {
+        for (long sequence = 0; ; sequence++) {
+            if (!awaitStage(validated, sequence))
+                return;
+            RequestSlot slot = ring[(int) sequence & mask];
+            long current = sequence;
+            if (slot.request != null) {
+                dispatch(slot, current);
+            } else {
+                slot.shard = RequestSlot.NO_SHARD;
+                completeMatch(slot, current);
+            }
+            dispatched.set(sequence);
+        }
+    }
+
+    // A shard's slots are published in sequence order: the scan stops at the first one that is not ready yet,
+    // so a later slot of the same shard can not overtake it even if it finishes while the scan is running
+    private void publishLoop() {
+        long next = 0;
+        boolean[] blocked = new boolean[shardedExecutor.getShardCount()];
+        for (int idle = 0; ; ) {
+            long last = dispatched.get();
+            boolean progress = false;
+            Arrays.fill(blocked, false);
+            for (long sequence = next; sequence <= last; sequence++) {
+                RequestSlot slot = ring[(int) sequence & mask];
+                if (slot.publishedSequence == sequence)
+                    continue;
+                int shard = slot.shard;
+                if (shard != RequestSlot.NO_SHARD && blocked[shard])
+                    continue;
+                if (slot.matchedSequence == sequence && requestJournal.isDurable(slot.journalPosition)) {
+                    publish(slot, sequence);
+                    progress = true;
+                } else if (shard != RequestSlot.NO_SHARD) {
+                    blocked[shard] = true;
+                }
+            }
+            for (; next <= last && ring[(int) next & mask].publishedSequence == next; next++)
+                published.set(next);
+            if (progress) {
+                idle = 0;
+                continue;
+            }
+            if (!running)
+                return;
+            idle(idle);
+            idle = Math.min(idle + 1, BUSY_SPINS);
+        }
+    }
+
+    private void publish(RequestSlot slot, long sequence) {
+        for (Event event : slot.events) {
+            try {
+                eventPublisher.publish(event);
+            } catch (RuntimeException ex) {
+                log.log(Level.SEVERE, "Could not publish " + event, ex);
+            }
+        }
+        PublicationListener listener = publicationListener;
+        if (listener != null) {
+            try {
+                listener.published(slot.request, slot.origin, slot.events);
+            } catch (RuntimeException ex) {
+                log.log(Level.SEVERE, "Publication listener failed on request " + sequence, ex);
+            }
+        }
+        slot.clear();
+        slot.publishedSequence = sequence;
+    }
+
+    private void dispatch(RequestSlot slot, long sequence) {
+        String isin = RequestMessageConverter.groupOf(slot.request);
+        slot.shard = shardedExecutor.shardOf(isin);
+        try {
+            requestJournal.appendRecord(slot.request, (journalPosition, journalRecord) -> {
+                slot.journalPosition = journalPosition;
+                slot.journalRecord = journalRecord;
+                shardedExecutor.execute(isin, () -> match(slot, sequence, () -> handleJournaled(slot, sequence)));
+            });
+        } catch (RuntimeException ex) {
+            log.log(Level.SEVERE, "Could not journal request " + sequence, ex);
+            slot.journalPosition = requestJournal.getPosition();
+            shardedExecutor.execute(isin, () -> match(slot, sequence, () -> handleUnjournaled(slot, isin)));
+        }
+    }
+
+    private void match(RequestSlot slot, long sequence, Runnable handling) {
+        try {
+            eventPublisher.captureInto(slot.events, handling);
+        } finally {
+            completeMatch(slot, sequence);
+        }
+    }
+
+    // Publishing waits for the credit decisions to be durable too, so that a replay can not decide otherwise
+    private void handleJournaled(RequestSlot slot, long sequence) {
+        if (!requestJournal.isEnabled()) {
+            handle(slot);
+            return;
+        }
+        slot.creditDecisions.during(() -> handle(slot));
+        if (slot.creditDecisions.size() == 0)
+            return;
+        try {
+            slot.journalPosition = requestJournal.appendOutcome(slot.journalRecord, slot.creditDecisions);
+        } catch (RuntimeException ex) {
+            log.log(Level.SEVERE, "Could not journal the credit decisions of request " + sequence, ex);
+        }
+    }
+
+    private void handleUnjournaled(RequestSlot slot, String isin) {
+        if (isin == null || securityRepository.findSecurityByIsin(isin) == null) {
+            handle(slot);
+            return;
+        }
+        List<String> errors = List.of(ir.ramtung.tinyme.messaging.Message.REQUEST_NOT_JOURNALED);
+        if (slot.request instanceof EnterOrderRq enterOrderRq)
+            eventPublisher.publish(new OrderRejectedEvent(enterOrderRq.getRequestId(), enterOrderRq.getOrderId(), errors));
+        else if (slot.request instanceof DeleteOrderRq deleteOrderRq)
+            eventPublisher.publish(new OrderRejectedEvent(deleteOrderRq.getRequestId(), deleteOrderRq.getOrderId(), errors));
+        else if (slot.request instanceof ChangingMatchingStateRq)
+            eventPublisher.publish(new MatchingStateRqRejectedEvent(isin, errors));
+    }
+
+    private void handle(RequestSlot slot) {
+        if (slot.request instanceof EnterOrderRq enterOrderRq)
+            orderHandler.handleEnterOrder(enterOrderRq, slot.fieldErrors);
+        else if (slot.request instanceof DeleteOrderRq deleteOrderRq)
+            orderHandler.handleDeleteOrder(deleteOrderRq);
+        else if (slot.request instanceof ChangingMatchingStateRq changingMatchingStateRq)
+            matcherStateHandler.handleChangingMatchingStateRq(changingMatchingStateRq);
+    }
+
+    private void completeMatch(RequestSlot slot, long sequence) {
+        matched.incrementAndGet();
+        slot.matchedSequence = sequence;
+    }
+
+    private boolean awaitStage(AtomicLong upstream, long sequence) {
+        for (int idle = 0; upstream.get() < sequence; idle++) {
+            if (!running)
+                return false;
+            idle(idle);
+        }
+        return true;
+    }
+
+    private static void idle(int attempt) {
+        if (attempt < BUSY_SPINS)
+            Thread.onSpinWait();
+        else
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+    }
+
+    private static Thread stage(String name, Runnable loop) {
+        Thread thread = new Thread(loop, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+}
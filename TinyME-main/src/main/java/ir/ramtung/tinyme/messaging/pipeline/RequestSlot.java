@@ -0,0 +1,37 @@
+package ir.ramtung.tinyme.messaging.pipeline;
+
+import ir.ramtung.tinyme.domain.entity.CreditDecisions;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jakarta.jms.Message;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class RequestSlot {
+    static final int NO_SHARD = -1;
+    volatile long submittedSequence = -1;
+    volatile long matchedSequence = -1;
+    long publishedSequence = -1;
+    int shard = NO_SHARD;
+    long journalPosition;
+    long journalRecord;
+    Message message;
+    Object request;
+    Object origin;
+    final EnterOrderRq enterOrderRq = new EnterOrderRq();
+    final DeleteOrderRq deleteOrderRq = new DeleteOrderRq();
+    List<String> fieldErrors = List.of();
+    final List<Event> events = new ArrayList<>();
+    final CreditDecisions creditDecisions = CreditDecisions.recording();
+
+    void clear() {
+        message = null;
+        request = null;
+        origin = null;
+        fieldErrors = List.of();
+        events.clear();
+        creditDecisions.clear();
+    }
+}
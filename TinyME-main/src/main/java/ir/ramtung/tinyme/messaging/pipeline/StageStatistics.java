@@ -0,0 +1,4 @@
+package ir.ramtung.tinyme.messaging.pipeline;
+
+public record StageStatistics(String stage, long processed, long backlog) {
+}
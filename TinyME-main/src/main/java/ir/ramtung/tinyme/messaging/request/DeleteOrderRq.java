@@ -1,20 +1,26 @@
 package ir.ramtung.tinyme.messaging.request;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import com.fasterxml.jackson.datatype.jsr310.deser.LocalDateTimeDeserializer;
 import com.fasterxml.jackson.datatype.jsr310.ser.LocalDateTimeSerializer;
 import ir.ramtung.tinyme.domain.entity.Side;
-import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
 
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 @Data
-@AllArgsConstructor
 @NoArgsConstructor
 public class DeleteOrderRq {
+    public static final long NO_TIME = Long.MIN_VALUE;
     private long requestId;
     private String securityIsin;
     private Side side;
@@ -22,6 +28,18 @@ public class DeleteOrderRq {
     @JsonSerialize(using = LocalDateTimeSerializer.class)
     @JsonDeserialize(using = LocalDateTimeDeserializer.class)
     private LocalDateTime entryTime;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private long entryEpochSecond = NO_TIME;
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE) @EqualsAndHashCode.Exclude @ToString.Exclude
+    private int entryNano;
+
+    public DeleteOrderRq(long requestId, String securityIsin, Side side, long orderId, LocalDateTime entryTime) {
+        this.requestId = requestId;
+        this.securityIsin = securityIsin;
+        this.side = side;
+        this.orderId = orderId;
+        this.entryTime = entryTime;
+    }
 
     public DeleteOrderRq(long requestId, String securityIsin, Side side, long orderId) {
         this.requestId = requestId;
@@ -30,4 +48,31 @@ public class DeleteOrderRq {
         this.orderId = orderId;
         this.entryTime = LocalDateTime.now();
     }
+
+    public LocalDateTime getEntryTime() {
+        if (entryTime == null && entryEpochSecond != NO_TIME)
+            entryTime = LocalDateTime.ofEpochSecond(entryEpochSecond, entryNano, ZoneOffset.UTC);
+        return entryTime;
+    }
+
+    public void setEntryTime(LocalDateTime entryTime) {
+        this.entryTime = entryTime;
+        entryEpochSecond = NO_TIME;
+    }
+
+    public void setEntryTime(long epochSecond, int nano) {
+        entryTime = null;
+        entryEpochSecond = epochSecond;
+        entryNano = nano;
+    }
+
+    @JsonIgnore
+    public long getEntryEpochSecond() {
+        return entryTime != null ? entryTime.toEpochSecond(ZoneOffset.UTC) : entryEpochSecond;
+    }
+
+    @JsonIgnore
+    public int getEntryNano() {
+        return entryTime != null ? entryTime.getNano() : entryNano;
+    }
 }
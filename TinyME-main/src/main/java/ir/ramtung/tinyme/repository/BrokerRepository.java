@@ -3,11 +3,11 @@ package ir.ramtung.tinyme.repository;
 import ir.ramtung.tinyme.domain.entity.Broker;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class BrokerRepository {
-    private final HashMap<Long, Broker> brokerById = new HashMap<>();
+    private final ConcurrentHashMap<Long, Broker> brokerById = new ConcurrentHashMap<>();
     public Broker findBrokerById(long brokerId) {
         return brokerById.get(brokerId);
     }
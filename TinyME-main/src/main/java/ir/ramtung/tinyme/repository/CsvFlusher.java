@@ -0,0 +1,383 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.IsinShardedExecutor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+public class CsvFlusher {
+    private record OrderRow(long orderId, Side side, int totalQuantity, int price, long brokerId, long shareholderId,
+                            LocalDateTime entryTime, int peakSize, int displayedQuantity, int minimumExecutionQuantity,
+                            int stopPrice, long stopLimitRequestId) {}
+
+    private record PositionRow(long shareholderId, int quantity) {}
+
+    private record SecurityRows(String isin, List<OrderRow> orders, List<PositionRow> positions) {}
+
+    public static final String POSITION_DIRECTORY = "position";
+    public static final String LEGACY_POSITION_FILE = "position.csv";
+    static final String COMMIT_FILE = "flushed.generation";
+    private static final String PENDING = ".pending-";
+    private static final String ORDER_HEADER = "orderId,isin,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity,minimumExecutionQuantity,stopPrice,stopLimitRequestId";
+    private static final String POSITION_HEADER = "shareholderId,isin,positions";
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final SecurityRepository securityRepository;
+    private final BrokerRepository brokerRepository;
+    private final ShareholderRepository shareholderRepository;
+    private final IsinShardedExecutor shardedExecutor;
+    private final RequestJournal requestJournal;
+    private final Path directory;
+    private final long intervalSeconds;
+    private final int writerThreads;
+    private ScheduledExecutorService scheduler;
+    private volatile ExecutorService writers;
+    private boolean fullExport;
+
+    public CsvFlusher(SecurityRepository securityRepository, BrokerRepository brokerRepository,
+                      ShareholderRepository shareholderRepository, IsinShardedExecutor shardedExecutor,
+                      RequestJournal requestJournal, Path directory, long intervalSeconds, int writerThreads) {
+        this.securityRepository = securityRepository;
+        this.brokerRepository = brokerRepository;
+        this.shareholderRepository = shareholderRepository;
+        this.shardedExecutor = shardedExecutor;
+        this.requestJournal = requestJournal;
+        this.directory = directory;
+        this.intervalSeconds = intervalSeconds;
+        this.writerThreads = writerThreads > 0 ? writerThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    public static int recoverCommitted(Path directory) throws IOException {
+        Path commitFile = directory.resolve(COMMIT_FILE);
+        int committed = Files.exists(commitFile) ? Integer.parseInt(Files.readString(commitFile).trim()) : 0;
+        for (Path folder : List.of(directory, directory.resolve(ParallelCsvLoader.ORDER_BOOK_DIRECTORY),
+                directory.resolve(POSITION_DIRECTORY))) {
+            if (!Files.isDirectory(folder))
+                continue;
+            try (Stream<Path> files = Files.list(folder)) {
+                for (Path file : files.toList()) {
+                    String name = file.getFileName().toString();
+                    int at = name.lastIndexOf(PENDING);
+                    if (at < 0)
+                        continue;
+                    if (Integer.parseInt(name.substring(at + PENDING.length())) == committed)
+                        Files.move(file, folder.resolve(name.substring(0, at)), StandardCopyOption.REPLACE_EXISTING);
+                    else
+                        Files.delete(file);
+                }
+            }
+        }
+        return committed;
+    }
+
+    public synchronized void markAllDirty() {
+        fullExport = true;
+    }
+
+    public synchronized void start() {
+        if (writers != null)
+            return;
+        writers = Executors.newFixedThreadPool(writerThreads, daemon("csv-writer"));
+        if (intervalSeconds > 0) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(daemon("csv-flush"));
+            scheduler.scheduleWithFixedDelay(this::flushScheduled, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public boolean shutdown(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        ScheduledExecutorService stopping;
+        ExecutorService pool;
+        synchronized (this) {
+            pool = writers;
+            if (pool == null)
+                return true;
+            stopping = scheduler;
+            scheduler = null;
+        }
+        if (stopping != null) {
+            stopping.shutdown();
+            if (!stopping.awaitTermination(remaining(deadline), TimeUnit.NANOSECONDS)) {
+                log.warning("Background flush did not finish in time, the request journal is kept for recovery");
+                return false;
+            }
+        }
+        ExecutorService last = Executors.newSingleThreadExecutor(daemon("csv-flush-final"));
+        try {
+            Future<Integer> flushed = last.submit(() -> flush(true));
+            flushed.get(remaining(deadline), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException ex) {
+            log.warning("Final flush did not finish in time, the request journal is kept for recovery");
+            return false;
+        } catch (ExecutionException ex) {
+            log.log(Level.SEVERE, "Final flush failed, the request journal is kept for recovery", ex.getCause());
+            return false;
+        } finally {
+            last.shutdownNow();
+            pool.shutdownNow();
+            writers = null;
+        }
+    }
+
+    private void flushScheduled() {
+        try {
+            flush(false);
+        } catch (IOException | ExecutionException | RuntimeException ex) {
+            log.log(Level.SEVERE, "Could not flush persistent data", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public synchronized int flush(boolean quiescent) throws IOException, InterruptedException, ExecutionException {
+        ExecutorService pool = writers;
+        if (pool == null)
+            throw new IllegalStateException("Flusher is not started");
+        boolean full = fullExport;
+        if (!full && !requestJournal.hasChanges())
+            return -1;
+        long start = System.nanoTime();
+        List<Broker> brokers = new ArrayList<>();
+        brokerRepository.allBrokers().forEach(brokers::add);
+        List<List<Security>> securitiesByShard = new ArrayList<>();
+        for (int shard = 0; shard < shardedExecutor.getShardCount(); shard++)
+            securitiesByShard.add(new ArrayList<>());
+        for (Security security : securityRepository.allSecurities())
+            securitiesByShard.get(shardedExecutor.shardOf(security.getIsin())).add(security);
+
+        int shards = securitiesByShard.size();
+        List<Set<String>> drained = new ArrayList<>(1);
+        List<List<SecurityRows>> captured = new ArrayList<>(Collections.nCopies(shards, List.of()));
+        long[] credits = new long[brokers.size()];
+        CreditCut cut = new CreditCut();
+        List<CompletableFuture<Void>> capturing = new ArrayList<>(1);
+        int generation;
+        if (!quiescent) {
+            for (Broker broker : brokers)
+                broker.openCut(cut);
+        }
+        try {
+            generation = requestJournal.rotate(() -> {
+                Set<String> dirty = requestJournal.drainChangedIsins();
+                drained.add(dirty);
+                if (quiescent) {
+                    for (int shard = 0; shard < shards; shard++)
+                        captured.set(shard, captureShard(securitiesByShard.get(shard), dirty, full));
+                    capturing.add(CompletableFuture.completedFuture(null));
+                } else {
+                    capturing.add(shardedExecutor.runOnEachShard(shard -> {
+                        cut.pass();
+                        captured.set(shard, captureShard(securitiesByShard.get(shard), dirty, full));
+                    }));
+                }
+            });
+        } catch (IOException | RuntimeException ex) {
+            closeCuts(brokers, credits, quiescent);
+            throw ex;
+        }
+        Set<String> dirty = drained.get(0);
+        try {
+            try {
+                capturing.get(0).get();
+            } finally {
+                closeCuts(brokers, credits, quiescent);
+            }
+            Map<Path, Callable<String>> files = new LinkedHashMap<>();
+            files.put(directory.resolve("broker.csv"), () -> formatBrokers(brokers, credits));
+            if (full) {
+                files.put(directory.resolve("security.csv"), this::formatSecurities);
+                files.put(directory.resolve("shareholder.csv"), this::formatShareholders);
+            }
+            for (List<SecurityRows> shardRows : captured) {
+                for (SecurityRows rows : shardRows) {
+                    files.put(bookFile(rows.isin()), () -> formatBook(rows));
+                    files.put(positionFile(rows.isin()), () -> formatPositions(rows));
+                }
+            }
+            commit(generation, files, pool);
+            if (full) {
+                Files.deleteIfExists(directory.resolve(ParallelCsvLoader.LEGACY_ORDER_BOOK_FILE));
+                Files.deleteIfExists(directory.resolve(LEGACY_POSITION_FILE));
+                fullExport = false;
+            }
+            requestJournal.deleteGenerationsBefore(generation);
+            log.info(String.format("Flushed %d files at journal generation %d in %d ms", files.size(), generation,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            return files.size();
+        } catch (IOException | ExecutionException | RuntimeException ex) {
+            requestJournal.markChanged(dirty);
+            throw ex;
+        }
+    }
+
+    private static void closeCuts(List<Broker> brokers, long[] credits, boolean quiescent) {
+        for (int i = 0; i < credits.length; i++)
+            credits[i] = quiescent ? brokers.get(i).getCredit() : brokers.get(i).closeCut();
+    }
+
+    // Runs on the shard: copies the rows of its changed securities, and the writers format them off the matching thread
+    private List<SecurityRows> captureShard(List<Security> securities, Set<String> dirty, boolean full) {
+        List<SecurityRows> captured = new ArrayList<>();
+        for (Security security : securities) {
+            if (!full && !dirty.contains(security.getIsin()))
+                continue;
+            List<OrderRow> orders = new ArrayList<>();
+            for (OrderBook orderBook : List.of(security.getOrderBook(), security.getStopLimitOrderBook())) {
+                for (Order order : orderBook.getOrders(Side.BUY))
+                    orders.add(captureOrder(order));
+                for (Order order : orderBook.getOrders(Side.SELL))
+                    orders.add(captureOrder(order));
+            }
+            security.releaseOrders();
+            List<PositionRow> positions = new ArrayList<>(security.getHolders().size());
+            for (Shareholder holder : security.getHolders())
+                positions.add(new PositionRow(holder.getShareholderId(), holder.getPositions().get(security)));
+            captured.add(new SecurityRows(security.getIsin(), orders, positions));
+        }
+        return captured;
+    }
+
+    private static OrderRow captureOrder(Order order) {
+        int peakSize = 0;
+        int displayedQuantity = 0;
+        int stopPrice = 0;
+        long stopLimitRequestId = 0;
+        if (order instanceof IcebergOrder icebergOrder) {
+            peakSize = icebergOrder.getPeakSize();
+            displayedQuantity = icebergOrder.getDisplayedQuantity();
+        } else if (order instanceof StopLimitOrder stopLimitOrder) {
+            stopPrice = stopLimitOrder.getStopPrice();
+            stopLimitRequestId = stopLimitOrder.getStopLimitRequestID();
+        }
+        return new OrderRow(order.getOrderId(), order.getSide(), order.getTotalQuantity(), order.getPrice(),
+                order.getBroker().getBrokerId(), order.getShareholder().getShareholderId(), order.getEntryTime(),
+                peakSize, displayedQuantity, order.getMinimumExecutionQuantity(), stopPrice, stopLimitRequestId);
+    }
+
+    private static String formatBook(SecurityRows rows) {
+        StringBuilder lines = new StringBuilder(ORDER_HEADER).append('\n');
+        for (OrderRow order : rows.orders())
+            lines.append(order.orderId()).append(',')
+                    .append(rows.isin()).append(',')
+                    .append(order.side()).append(',')
+                    .append(order.totalQuantity()).append(',')
+                    .append(order.price()).append(',')
+                    .append(order.brokerId()).append(',')
+                    .append(order.shareholderId()).append(',')
+                    .append(order.entryTime()).append(',')
+                    .append(order.peakSize()).append(',')
+                    .append(order.displayedQuantity()).append(',')
+                    .append(order.minimumExecutionQuantity()).append(',')
+                    .append(order.stopPrice()).append(',')
+                    .append(order.stopLimitRequestId()).append('\n');
+        return lines.toString();
+    }
+
+    private static String formatPositions(SecurityRows rows) {
+        StringBuilder lines = new StringBuilder(POSITION_HEADER).append('\n');
+        for (PositionRow position : rows.positions())
+            lines.append(position.shareholderId()).append(',').append(rows.isin()).append(',')
+                    .append(position.quantity()).append('\n');
+        return lines.toString();
+    }
+
+    private static String formatBrokers(List<Broker> brokers, long[] credits) {
+        StringBuilder lines = new StringBuilder("brokerId,name,credit\n");
+        for (int i = 0; i < brokers.size(); i++)
+            lines.append(brokers.get(i).getBrokerId()).append(',').append(brokers.get(i).getName()).append(',')
+                    .append(credits[i]).append('\n');
+        return lines.toString();
+    }
+
+    private String formatSecurities() {
+        StringBuilder lines = new StringBuilder("isin,tickSize,lotSize,priceLadderTicks\n");
+        for (Security security : securityRepository.allSecurities())
+            lines.append(security.getIsin()).append(',').append(security.getTickSize()).append(',')
+                    .append(security.getLotSize()).append(',').append(security.getOrderBook().getPriceLadderTicks())
+                    .append('\n');
+        return lines.toString();
+    }
+
+    private String formatShareholders() {
+        StringBuilder lines = new StringBuilder("shareholderId,name\n");
+        for (Shareholder shareholder : shareholderRepository.allShareholders())
+            lines.append(shareholder.getShareholderId()).append(',').append(shareholder.getName()).append('\n');
+        return lines.toString();
+    }
+
+    private void commit(int generation, Map<Path, Callable<String>> files, ExecutorService pool) throws IOException, InterruptedException {
+        Files.createDirectories(directory.resolve(ParallelCsvLoader.ORDER_BOOK_DIRECTORY));
+        Files.createDirectories(directory.resolve(POSITION_DIRECTORY));
+        List<Callable<Void>> writes = new ArrayList<>(files.size());
+        files.forEach((file, content) -> writes.add(() -> {
+            writeDurably(pending(file, generation), content.call());
+            return null;
+        }));
+        MappedCsv.joinAll(pool.invokeAll(writes));
+
+        Path commitFile = directory.resolve(COMMIT_FILE);
+        Path temporary = directory.resolve(COMMIT_FILE + ".tmp");
+        writeDurably(temporary, Integer.toString(generation));
+        Files.move(temporary, commitFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        forceDirectory(directory);
+
+        for (Path file : files.keySet())
+            Files.move(pending(file, generation), file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path folder : List.of(directory, directory.resolve(ParallelCsvLoader.ORDER_BOOK_DIRECTORY),
+                directory.resolve(POSITION_DIRECTORY)))
+            forceDirectory(folder);
+    }
+
+    private static void writeDurably(Path file, String content) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bytes = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            while (bytes.hasRemaining())
+                channel.write(bytes);
+            channel.force(true);
+        }
+    }
+
+    private static void forceDirectory(Path folder) throws IOException {
+        try (FileChannel channel = FileChannel.open(folder, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private Path bookFile(String isin) {
+        return directory.resolve(ParallelCsvLoader.ORDER_BOOK_DIRECTORY).resolve(isin + ".csv");
+    }
+
+    private Path positionFile(String isin) {
+        return directory.resolve(POSITION_DIRECTORY).resolve(isin + ".csv");
+    }
+
+    private static Path pending(Path file, int generation) {
+        return file.resolveSibling(file.getFileName() + PENDING + generation);
+    }
+
+    private static long remaining(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,243 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.messaging.codec.EventDecoder;
+import ir.ramtung.tinyme.messaging.codec.EventEncoder;
+import ir.ramtung.tinyme.messaging.event.Event;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.ObjLongConsumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+@Component
+public class EventJournal {
+    private static final int RECORD_HEADER = 16;
+    private static final int PADDING = -1;
+    private static final int INDEX_INTERVAL = 1024;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final Path file;
+    private final long segmentBytes;
+    private final long syncNanos;
+    private final EventEncoder encoder = new EventEncoder();
+    private final CRC32C checksum = new CRC32C();
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long position;
+    private long nextSequence = 1;
+    private volatile long[] index = new long[64];
+    private volatile long committedPosition;
+    private volatile long lastSequence;
+    private volatile long durablePosition;
+    private volatile boolean running;
+    private Thread syncer;
+
+    public EventJournal(@Value("${eventJournalFile:}") String file,
+                        @Value("${eventJournalSegmentMegabytes:64}") int segmentMegabytes,
+                        @Value("${eventJournalSyncMillis:100}") long syncMillis) {
+        this.file = file.isBlank() ? null : Path.of(file);
+        this.segmentBytes = (long) segmentMegabytes << 20;
+        this.syncNanos = TimeUnit.MILLISECONDS.toNanos(syncMillis);
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (file == null || running)
+            return;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long[] end = {0};
+        long records = scan(channel, 0, 1, channel.size(), (sequence, at, payload) -> {
+            indexRecord(sequence, at);
+            end[0] = at + RECORD_HEADER + payload.remaining();
+            return true;
+        });
+        position = end[0];
+        channel.truncate(position);
+        nextSequence = records + 1;
+        lastSequence = records;
+        committedPosition = durablePosition = position;
+        mapSegment(position - position % segmentBytes);
+        running = true;
+        if (syncNanos > 0) {
+            syncer = new Thread(this::syncLoop, "event-journal-sync");
+            syncer.setDaemon(true);
+            syncer.start();
+        }
+        log.info("Event journal " + file + " opened with " + records + " events");
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized long append(Event event) {
+        if (!running)
+            return 0;
+        ByteBuffer payload = encoder.encode(event);
+        int length = payload.remaining();
+        reserve(RECORD_HEADER + length);
+        int at = (int) (position - segmentStart);
+        checksum.reset();
+        checksum.update(payload.duplicate());
+        segment.put(at + RECORD_HEADER, payload, payload.position(), length);
+        segment.putLong(at + 8, nextSequence);
+        segment.putInt(at + 4, (int) checksum.getValue());
+        segment.putInt(at, length);
+        indexRecord(nextSequence, position);
+        position += RECORD_HEADER + length;
+        committedPosition = position;
+        lastSequence = nextSequence;
+        return nextSequence++;
+    }
+
+    public int replay(long fromSequence, long toSequence, ObjLongConsumer<Event> consumer) throws IOException {
+        long last = lastSequence;
+        long limit = committedPosition;
+        long[] offsets = index;
+        long from = Math.max(fromSequence, 1);
+        long to = Math.min(toSequence, last + 1);
+        if (file == null || from >= to)
+            return 0;
+        int slot = (int) ((from - 1) / INDEX_INTERVAL);
+        EventDecoder decoder = new EventDecoder();
+        int[] replayed = new int[1];
+        try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+            scan(reader, offsets[slot], (long) slot * INDEX_INTERVAL + 1, limit, (sequence, at, payload) -> {
+                if (sequence >= to)
+                    return false;
+                if (sequence >= from) {
+                    consumer.accept(decoder.decode(payload), sequence);
+                    replayed[0]++;
+                }
+                return true;
+            });
+        }
+        return replayed[0];
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        if (!running)
+            return;
+        running = false;
+        if (syncer != null) {
+            LockSupport.unpark(syncer);
+            syncer.join(SHUTDOWN_TIMEOUT_MILLIS);
+        }
+        synchronized (this) {
+            segment.force();
+            durablePosition = committedPosition;
+            channel.close();
+        }
+    }
+
+    private void indexRecord(long sequence, long at) {
+        if ((sequence - 1) % INDEX_INTERVAL != 0)
+            return;
+        int slot = (int) ((sequence - 1) / INDEX_INTERVAL);
+        long[] offsets = index;
+        if (slot == offsets.length)
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        offsets[slot] = at;
+        index = offsets;
+    }
+
+    private void reserve(int length) {
+        if (position - segmentStart + length <= segmentBytes)
+            return;
+        if (length > segmentBytes)
+            throw new IllegalStateException("Event journal record of " + length + " bytes exceeds the segment size");
+        int at = (int) (position - segmentStart);
+        if (segmentBytes - at >= Integer.BYTES)
+            segment.putInt(at, PADDING);
+        segment.force();
+        try {
+            mapSegment(segmentStart + segmentBytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not extend event journal " + file, ex);
+        }
+        position = segmentStart;
+    }
+
+    private void mapSegment(long start) throws IOException {
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, start, segmentBytes);
+        segmentStart = start;
+    }
+
+    private interface RecordVisitor {
+        boolean visit(long sequence, long at, ByteBuffer payload);
+    }
+
+    private long scan(FileChannel reader, long from, long firstSequence, long limit, RecordVisitor visitor)
+            throws IOException {
+        CRC32C crc = new CRC32C();
+        long sequence = firstSequence;
+        long at = from;
+        while (at < limit) {
+            long start = at - at % segmentBytes;
+            MappedByteBuffer window = reader.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentBytes, limit - start));
+            int offset = (int) (at - start);
+            while (window.limit() - offset >= RECORD_HEADER) {
+                int length = window.getInt(offset);
+                if (length == 0)
+                    return sequence - firstSequence;
+                if (length == PADDING)
+                    break;
+                if (length < 0 || length > window.limit() - offset - RECORD_HEADER
+                        || window.getLong(offset + 8) != sequence)
+                    return torn(start + offset, sequence - firstSequence);
+                ByteBuffer payload = window.slice(offset + RECORD_HEADER, length);
+                crc.reset();
+                crc.update(payload);
+                if ((int) crc.getValue() != window.getInt(offset + 4))
+                    return torn(start + offset, sequence - firstSequence);
+                if (!visitor.visit(sequence, start + offset, payload.rewind()))
+                    return sequence - firstSequence;
+                sequence++;
+                offset += RECORD_HEADER + length;
+            }
+            at = start + segmentBytes;
+        }
+        return sequence - firstSequence;
+    }
+
+    private long torn(long at, long records) {
+        if (!running)
+            log.warning("Event journal " + file + " is torn at " + at + " bytes, ignoring the rest");
+        return records;
+    }
+
+    private void syncLoop() {
+        while (running) {
+            long target;
+            MappedByteBuffer current;
+            synchronized (this) {
+                target = committedPosition;
+                current = segment;
+            }
+            if (target > durablePosition) {
+                current.force();
+                durablePosition = target;
+            }
+            LockSupport.parkNanos(syncNanos);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.service.MatcherStateHandler;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+@Component
+public class JournalRecovery {
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestJournal requestJournal;
+    private final OrderHandler orderHandler;
+    private final MatcherStateHandler matcherStateHandler;
+    private final EventPublisher eventPublisher;
+
+    public JournalRecovery(RequestJournal requestJournal, OrderHandler orderHandler,
+                           MatcherStateHandler matcherStateHandler, EventPublisher eventPublisher) {
+        this.requestJournal = requestJournal;
+        this.orderHandler = orderHandler;
+        this.matcherStateHandler = matcherStateHandler;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public int recover() throws IOException {
+        return recover(0);
+    }
+
+    public int recover(int fromGeneration) throws IOException {
+        long start = System.nanoTime();
+        List<Event> replayedEvents = new ArrayList<>();
+        int replayed = requestJournal.replay(fromGeneration, request -> {
+            eventPublisher.captureInto(replayedEvents, () -> handle(request));
+            replayedEvents.clear();
+        });
+        if (replayed > 0)
+            log.info(String.format("Replayed %d journaled requests in %d ms", replayed,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        return replayed;
+    }
+
+    private void handle(Object request) {
+        if (request instanceof EnterOrderRq enterOrderRq)
+            orderHandler.handleEnterOrder(enterOrderRq);
+        else if (request instanceof DeleteOrderRq deleteOrderRq)
+            orderHandler.handleDeleteOrder(deleteOrderRq);
+        else if (request instanceof ChangingMatchingStateRq changingMatchingStateRq)
+            matcherStateHandler.handleChangingMatchingStateRq(changingMatchingStateRq);
+    }
+}
@@ -0,0 +1,260 @@
+package ir.ramtung.tinyme.repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+final class MappedCsv {
+    static final int CHUNK_BYTES = 8 << 20;
+
+    private MappedCsv() {
+    }
+
+    static <T> List<T> read(Path file, ExecutorService pool, Function<Row, T> mapper) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds = chunkBounds(channel);
+            List<Callable<List<T>>> chunks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i < bounds.length - 1; i++) {
+                long start = bounds[i];
+                long end = bounds[i + 1];
+                boolean header = i == 0;
+                chunks.add(() -> readChunk(channel, file, start, end, header, mapper));
+            }
+            List<T> rows = new ArrayList<>();
+            if (pool == null || chunks.size() == 1) {
+                for (Callable<List<T>> chunk : chunks)
+                    rows.addAll(call(chunk));
+            } else {
+                for (List<T> chunkRows : joinAll(pool.invokeAll(chunks)))
+                    rows.addAll(chunkRows);
+            }
+            return rows;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + file, ex);
+        }
+    }
+
+    static <T> List<T> joinAll(List<Future<T>> futures) throws IOException, InterruptedException {
+        List<T> results = new ArrayList<>(futures.size());
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                if (cause instanceof IOException ioException)
+                    throw ioException;
+                if (cause instanceof UncheckedIOException uncheckedIOException)
+                    throw uncheckedIOException.getCause();
+                if (cause instanceof RuntimeException runtimeException)
+                    throw runtimeException;
+                throw new IllegalStateException(cause);
+            }
+        }
+        return results;
+    }
+
+    private static <T> T call(Callable<T> callable) throws IOException {
+        try {
+            return callable.call();
+        } catch (IOException | RuntimeException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static long[] chunkBounds(FileChannel channel) throws IOException {
+        long size = channel.size();
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(4096);
+        long next = CHUNK_BYTES;
+        while (next < size) {
+            long newline = -1;
+            for (long at = next - 1; newline < 0 && at < size; at += probe.capacity()) {
+                probe.clear();
+                int read = channel.read(probe, at);
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        newline = at + i;
+                        break;
+                    }
+                }
+            }
+            if (newline < 0 || newline + 1 >= size)
+                break;
+            bounds.add(newline + 1);
+            next = newline + 1 + CHUNK_BYTES;
+        }
+        bounds.add(size);
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = bounds.get(i);
+        return result;
+    }
+
+    private static <T> List<T> readChunk(FileChannel channel, Path file, long start, long end, boolean header,
+                                         Function<Row, T> mapper) throws IOException {
+        ByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        Row row = new Row(chunk, file);
+        List<T> rows = new ArrayList<>();
+        if (header)
+            row.nextLine();
+        while (row.nextLine()) {
+            T mapped = mapper.apply(row);
+            if (mapped != null)
+                rows.add(mapped);
+        }
+        return rows;
+    }
+
+    static final class Row {
+        private final ByteBuffer chunk;
+        private final Path file;
+        private int lineStart;
+        private int lineEnd = -1;
+        private int end;
+        private int field;
+        private int fieldEnd;
+
+        private Row(ByteBuffer chunk, Path file) {
+            this.chunk = chunk;
+            this.file = file;
+        }
+
+        private boolean nextLine() {
+            int limit = chunk.limit();
+            int start = lineEnd + 1;
+            while (start < limit) {
+                int end = start;
+                while (end < limit && chunk.get(end) != '\n')
+                    end++;
+                lineEnd = end;
+                if (end > start && chunk.get(end - 1) == '\r')
+                    end--;
+                if (end > start) {
+                    lineStart = field = start;
+                    fieldEnd = -1;
+                    this.end = end;
+                    return true;
+                }
+                start = lineEnd + 1;
+            }
+            lineEnd = limit;
+            return false;
+        }
+
+        boolean hasNext() {
+            return fieldEnd < end;
+        }
+
+        private void advance() {
+            if (fieldEnd >= 0)
+                field = fieldEnd + 1;
+            if (field > end)
+                throw malformed("has too few fields");
+            fieldEnd = field;
+            while (fieldEnd < end && chunk.get(fieldEnd) != ',')
+                fieldEnd++;
+        }
+
+        void skip() {
+            advance();
+        }
+
+        String nextString() {
+            advance();
+            byte[] bytes = new byte[fieldEnd - field];
+            chunk.get(field, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        long nextLong() {
+            advance();
+            int at = field;
+            int to = fieldEnd;
+            while (at < to && chunk.get(at) == ' ')
+                at++;
+            while (to > at && chunk.get(to - 1) == ' ')
+                to--;
+            boolean negative = at < to && chunk.get(at) == '-';
+            if (negative)
+                at++;
+            if (at == to)
+                throw malformed("has an empty number");
+            long value = 0;
+            for (; at < to; at++) {
+                int digit = chunk.get(at) - '0';
+                if (digit < 0 || digit > 9)
+                    throw malformed("has a malformed number");
+                value = value * 10 + digit;
+            }
+            return negative ? -value : value;
+        }
+
+        int nextInt() {
+            return Math.toIntExact(nextLong());
+        }
+
+        LocalDateTime nextDateTime() {
+            advance();
+            int length = fieldEnd - field;
+            if (length < 16 || chunk.get(field + 4) != '-' || chunk.get(field + 7) != '-'
+                    || chunk.get(field + 10) != 'T' || chunk.get(field + 13) != ':')
+                return parseDateTime();
+            int second = 0;
+            int nano = 0;
+            if (length > 16) {
+                if (length < 19 || chunk.get(field + 16) != ':')
+                    return parseDateTime();
+                second = digits(field + 17, 2);
+                if (length > 19) {
+                    if (chunk.get(field + 19) != '.' || length > 29)
+                        return parseDateTime();
+                    nano = digits(field + 20, length - 20);
+                    for (int scale = length - 20; scale < 9; scale++)
+                        nano *= 10;
+                }
+            }
+            return LocalDateTime.of(digits(field, 4), digits(field + 5, 2), digits(field + 8, 2),
+                    digits(field + 11, 2), digits(field + 14, 2), second, nano);
+        }
+
+        private LocalDateTime parseDateTime() {
+            byte[] bytes = new byte[fieldEnd - field];
+            chunk.get(field, bytes);
+            return LocalDateTime.parse(new String(bytes, StandardCharsets.US_ASCII));
+        }
+
+        private int digits(int at, int count) {
+            int value = 0;
+            for (int i = at; i < at + count; i++) {
+                int digit = chunk.get(i) - '0';
+                if (digit < 0 || digit > 9)
+                    throw malformed("has a malformed date");
+                value = value * 10 + digit;
+            }
+            return value;
+        }
+
+        private IllegalArgumentException malformed(String problem) {
+            byte[] line = new byte[end - lineStart];
+            chunk.get(lineStart, line);
+            return new IllegalArgumentException("Line '" + new String(line, StandardCharsets.UTF_8) + "' of " + file
+                    + " " + problem);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+public class ParallelCsvLoader {
+    public static final String ORDER_BOOK_DIRECTORY = "orderbook";
+    public static final String LEGACY_ORDER_BOOK_FILE = "orderbook.csv";
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final BrokerRepository brokerRepository;
+    private final ShareholderRepository shareholderRepository;
+    private final SecurityRepository securityRepository;
+    private final int parallelism;
+
+    public ParallelCsvLoader(BrokerRepository brokerRepository, ShareholderRepository shareholderRepository,
+                             SecurityRepository securityRepository, int parallelism) {
+        this.brokerRepository = brokerRepository;
+        this.shareholderRepository = shareholderRepository;
+        this.securityRepository = securityRepository;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    public int loadAll(Path directory) throws IOException, InterruptedException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            loadBrokers(directory.resolve("broker.csv"), pool);
+            loadShareholders(directory.resolve("shareholder.csv"), pool);
+            loadSecurities(directory.resolve("security.csv"), pool);
+            loadPositions(directory, pool);
+            return loadOrderBooks(directory, pool);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private void loadBrokers(Path file, ForkJoinPool pool) throws IOException {
+        brokerRepository.clear();
+        for (Broker broker : MappedCsv.read(file, pool, row -> Broker.builder()
+                .brokerId(row.nextLong())
+                .name(row.nextString())
+                .credit(row.nextLong())
+                .build()))
+            brokerRepository.addBroker(broker);
+        log.info("Brokers loaded");
+    }
+
+    private void loadShareholders(Path file, ForkJoinPool pool) throws IOException {
+        shareholderRepository.clear();
+        MappedCsv.read(file, pool, row -> {
+            shareholderRepository.addShareholder(Shareholder.builder()
+                    .shareholderId(row.nextLong())
+                    .name(row.nextString())
+                    .build());
+            return null;
+        });
+        log.info("Shareholders loaded");
+    }
+
+    private void loadSecurities(Path file, ForkJoinPool pool) throws IOException {
+//isin,tickSize,lotSize,priceLadderTicks
+        securityRepository.clear();
+        securityRepository.addSecurities(MappedCsv.read(file, pool, row -> {
+            String isin = row.nextString();
+            int tickSize = row.nextInt();
+            int lotSize = row.nextInt();
+            int priceLadderTicks = row.hasNext() ? row.nextInt() : 0;
+            return Security.builder()
+                    .isin(isin)
+                    .tickSize(tickSize)
+                    .lotSize(lotSize)
+                    .orderBook(priceLadderTicks > 0 ? OrderBook.withPriceLadder(tickSize, priceLadderTicks) : new OrderBook())
+                    .build();
+        }));
+        log.info("Securities loaded");
+    }
+
+    private void loadPositions(Path directory, ForkJoinPool pool) throws IOException, InterruptedException {
+        List<Path> files = csvFiles(directory.resolve(CsvFlusher.POSITION_DIRECTORY));
+        List<Callable<Void>> positions = new ArrayList<>();
+        for (Path file : files)
+            positions.add(() -> loadPositionFile(file, null));
+        MappedCsv.joinAll(pool.invokeAll(positions));
+        Path legacyFile = directory.resolve(CsvFlusher.LEGACY_POSITION_FILE);
+        if (Files.exists(legacyFile)) {
+            if (files.isEmpty())
+                loadPositionFile(legacyFile, pool);
+            else
+                log.warning("Ignoring " + legacyFile + " in favour of the positions in " + directory.resolve(CsvFlusher.POSITION_DIRECTORY));
+        }
+        log.info("Positions loaded");
+    }
+
+    private Void loadPositionFile(Path file, ForkJoinPool pool) throws IOException {
+        MappedCsv.read(file, pool, row -> {
+            Shareholder shareholder = shareholderRepository.findShareholderById(row.nextLong());
+            Security security = securityRepository.findSecurityByIsin(row.nextString());
+            shareholder.incPosition(security, row.nextInt());
+            return null;
+        });
+        return null;
+    }
+
+    private static List<Path> csvFiles(Path folder) throws IOException {
+        if (!Files.isDirectory(folder))
+            return List.of();
+        try (Stream<Path> files = Files.list(folder)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".csv")).toList();
+        }
+    }
+
+    private int loadOrderBooks(Path directory, ForkJoinPool pool) throws IOException, InterruptedException {
+        List<Callable<Integer>> books = new ArrayList<>();
+        Path bookDirectory = directory.resolve(ORDER_BOOK_DIRECTORY);
+        for (Path file : csvFiles(bookDirectory))
+            books.add(() -> loadOrderBook(file));
+        long start = System.nanoTime();
+        int loaded = 0;
+        for (int orders : MappedCsv.joinAll(pool.invokeAll(books)))
+            loaded += orders;
+        Path legacyFile = directory.resolve(LEGACY_ORDER_BOOK_FILE);
+        if (Files.exists(legacyFile)) {
+            if (books.isEmpty())
+                loaded += loadLegacyOrderBook(legacyFile, pool);
+            else
+                log.warning("Ignoring " + legacyFile + " in favour of the order books in " + bookDirectory);
+        }
+        log.info(String.format("Order books of %d securities loaded in %d ms", books.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        return loaded;
+    }
+
+    private int loadOrderBook(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        Security security = securityRepository.findSecurityByIsin(name.substring(0, name.length() - ".csv".length()));
+        if (security == null)
+            throw new IOException("Order book " + file + " does not belong to a known security");
+        List<Order> orders = MappedCsv.read(file, null, row -> parseOrder(row, security));
+        bulkLoad(orders);
+        return orders.size();
+    }
+
+    private int loadLegacyOrderBook(Path file, ForkJoinPool pool) throws IOException {
+        List<Order> orders = MappedCsv.read(file, pool, row -> parseOrder(row, null));
+        Map<Security, List<Order>> bySecurity = new LinkedHashMap<>();
+        for (Order order : orders)
+            bySecurity.computeIfAbsent(order.getSecurity(), security -> new ArrayList<>()).add(order);
+        bySecurity.values().forEach(this::bulkLoad);
+        return orders.size();
+    }
+
+    private Order parseOrder(MappedCsv.Row row, Security known) {
+//orderId,isin,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity,minimumExecutionQuantity,stopPrice,stopLimitRequestId
+        long orderId = row.nextLong();
+        Security security = known;
+        if (security == null)
+            security = securityRepository.findSecurityByIsin(row.nextString());
+        else
+            row.skip();
+        Side side = Side.parse(row.nextString());
+        int quantity = row.nextInt();
+        int price = row.nextInt();
+        Broker broker = brokerRepository.findBrokerById(row.nextLong());
+        Shareholder shareholder = shareholderRepository.findShareholderById(row.nextLong());
+        LocalDateTime entryTime = row.nextDateTime();
+        int peakSize = row.nextInt();
+        int displayedQuantity = row.nextInt();
+        int minimumExecutionQuantity = row.nextInt();
+        int stopPrice = row.hasNext() ? row.nextInt() : 0;
+        if (stopPrice != 0)
+            return new StopLimitOrder(orderId, security, side, quantity, price, broker, shareholder, entryTime,
+                    OrderStatus.QUEUED, stopPrice, row.nextLong());
+        if (peakSize != 0)
+            return new IcebergOrder(orderId, security, side, quantity, price, broker, shareholder, entryTime,
+                    peakSize, displayedQuantity, OrderStatus.QUEUED, minimumExecutionQuantity);
+        return new Order(orderId, security, side, quantity, price, broker, shareholder, entryTime,
+                OrderStatus.QUEUED, minimumExecutionQuantity);
+    }
+
+    private void bulkLoad(List<Order> orders) {
+        Map<OrderBook, List<Order>> buyOrders = new LinkedHashMap<>();
+        Map<OrderBook, List<Order>> sellOrders = new LinkedHashMap<>();
+        for (Order order : orders) {
+            OrderBook orderBook = order instanceof StopLimitOrder
+                    ? order.getSecurity().getStopLimitOrderBook()
+                    : order.getSecurity().getOrderBook();
+            (order.getSide() == Side.BUY ? buyOrders : sellOrders)
+                    .computeIfAbsent(orderBook, book -> new ArrayList<>()).add(order);
+        }
+        buyOrders.forEach((orderBook, bookOrders) -> orderBook.bulkLoad(Side.BUY, bookOrders));
+        sellOrders.forEach((orderBook, bookOrders) -> orderBook.bulkLoad(Side.SELL, bookOrders));
+    }
+}
@@ -0,0 +1,415 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.CreditDecisions;
+import ir.ramtung.tinyme.messaging.codec.RequestMessageConverter;
+import ir.ramtung.tinyme.messaging.codec.RequestTemplate;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+@Component
+public class RequestJournal {
+    public enum Sync { GROUP, PERIODIC, NONE }
+
+    public interface RecordDispatch {
+        void accept(long position, long record);
+    }
+
+    private static final int RECORD_HEADER = 8;
+    private static final int PADDING = -1;
+    private static final byte OUTCOME = 0x7F;
+    private static final int OUTCOME_HEADER = 1 + Long.BYTES + Integer.BYTES;
+    private static final int GENERATION_SHIFT = 40;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final RequestMessageConverter messageConverter;
+    private final Path file;
+    private final Sync sync;
+    private final long syncNanos;
+    private final long segmentBytes;
+    private final CRC32C checksum = new CRC32C();
+    private final Object durability = new Object();
+    private Set<String> changedIsins = new HashSet<>();
+    private int generation;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentStart;
+    private long origin;
+    private long position;
+    private volatile long written;
+    private volatile long durable;
+    private volatile boolean running;
+    private Thread syncer;
+
+    public RequestJournal(RequestMessageConverter messageConverter,
+                          @Value("${requestJournalFile:}") String file,
+                          @Value("${requestJournalSync:GROUP}") Sync sync,
+                          @Value("${requestJournalSyncMicros:200}") long syncMicros,
+                          @Value("${requestJournalSegmentMegabytes:64}") int segmentMegabytes) {
+        this.messageConverter = messageConverter;
+        this.file = file.isBlank() ? null : Path.of(file);
+        this.sync = sync;
+        this.syncNanos = TimeUnit.MICROSECONDS.toNanos(syncMicros);
+        this.segmentBytes = (long) segmentMegabytes << 20;
+    }
+
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        if (file == null || running)
+            return;
+        List<Integer> generations = generations();
+        generation = generations.isEmpty() ? 1 : generations.get(generations.size() - 1);
+        channel = FileChannel.open(generationFile(generation), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        position = scan(channel, generationFile(generation), null);
+        channel.truncate(position);
+        origin = 0;
+        written = durable = position;
+        mapSegment(position - position % segmentBytes);
+        running = true;
+        if (sync != Sync.NONE) {
+            syncer = new Thread(this::syncLoop, "request-journal-sync");
+            syncer.setDaemon(true);
+            syncer.start();
+        }
+        log.info("Request journal " + generationFile(generation) + " opened at " + position + " bytes, sync " + sync);
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    public long getPosition() {
+        return written;
+    }
+
+    public synchronized int getGeneration() {
+        return generation;
+    }
+
+    public long append(Object request, LongConsumer dispatch) {
+        return appendRecord(request, (position, record) -> dispatch.accept(position));
+    }
+
+    public long appendRecord(Object request, RecordDispatch dispatch) {
+        if (!isEnabled()) {
+            synchronized (this) {
+                markChanged(request);
+                dispatch.accept(0, 0);
+            }
+            return 0;
+        }
+        synchronized (this) {
+            markChanged(request);
+            int length = RequestTemplate.of(request).getLength();
+            reserve(RECORD_HEADER + length);
+            long record = recordId(generation, position);
+            ByteBuffer payload = segment.slice((int) (position - segmentStart) + RECORD_HEADER, length);
+            RequestMessageConverter.encodeInto(request, payload);
+            commit(payload);
+            dispatch.accept(written, record);
+            return written;
+        }
+    }
+
+    // The credit decisions of a request follow it in the journal, and replay imposes them on the request's record
+    public long appendOutcome(long record, CreditDecisions decisions) {
+        if (!isEnabled())
+            return 0;
+        long[] words = decisions.getOutcomes().toLongArray();
+        int length = OUTCOME_HEADER + words.length * Long.BYTES;
+        synchronized (this) {
+            reserve(RECORD_HEADER + length);
+            ByteBuffer payload = segment.slice((int) (position - segmentStart) + RECORD_HEADER, length);
+            payload.put(OUTCOME).putLong(record).putInt(decisions.size());
+            for (long word : words)
+                payload.putLong(word);
+            commit(payload.rewind());
+            return written;
+        }
+    }
+
+    private void commit(ByteBuffer payload) {
+        int at = (int) (position - segmentStart);
+        checksum.reset();
+        checksum.update(payload);
+        segment.putInt(at + 4, (int) checksum.getValue());
+        segment.putInt(at, payload.limit());
+        position += RECORD_HEADER + payload.limit();
+        written = origin + position;
+        if (sync == Sync.GROUP)
+            LockSupport.unpark(syncer);
+    }
+
+    public int rotate(Runnable atCut) throws IOException {
+        if (!isEnabled()) {
+            atCut.run();
+            return 0;
+        }
+        synchronized (this) {
+            if (!running)
+                throw new IllegalStateException("Request journal " + file + " is closed");
+            if (sync != Sync.NONE)
+                segment.force();
+            markDurable(written);
+            channel.close();
+            origin = written;
+            generation++;
+            channel = FileChannel.open(generationFile(generation), StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            position = 0;
+            mapSegment(0);
+            atCut.run();
+            return generation;
+        }
+    }
+
+    public synchronized boolean hasChanges() {
+        return !changedIsins.isEmpty();
+    }
+
+    public synchronized Set<String> drainChangedIsins() {
+        Set<String> drained = changedIsins;
+        changedIsins = new HashSet<>();
+        return drained;
+    }
+
+    public synchronized void markChanged(Collection<String> isins) {
+        changedIsins.addAll(isins);
+    }
+
+    private void markChanged(Object request) {
+        String isin = RequestMessageConverter.groupOf(request);
+        if (isin != null)
+            changedIsins.add(isin);
+    }
+
+    public void deleteGenerationsBefore(int oldest) throws IOException {
+        if (!isEnabled())
+            return;
+        for (int archived : generations()) {
+            if (archived < oldest)
+                Files.deleteIfExists(generationFile(archived));
+        }
+    }
+
+    public boolean isDurable(long position) {
+        return sync != Sync.GROUP || position <= durable;
+    }
+
+    public void awaitDurable(long position) {
+        if (sync != Sync.GROUP || position <= durable)
+            return;
+        synchronized (durability) {
+            while (durable < position) {
+                try {
+                    durability.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the request journal", ex);
+                }
+            }
+        }
+    }
+
+    public int replay(Consumer<Object> handler) throws IOException {
+        return replay(0, handler);
+    }
+
+    public synchronized int replay(int fromGeneration, Consumer<Object> handler) throws IOException {
+        if (!isEnabled())
+            return 0;
+        Map<Long, CreditDecisions> outcomes = new HashMap<>();
+        scanGenerations(fromGeneration, (payload, record) -> {
+            if (payload.get(0) != OUTCOME)
+                return;
+            long requestRecord = payload.getLong(1);
+            int count = payload.getInt(1 + Long.BYTES);
+            outcomes.put(requestRecord, CreditDecisions.replaying(
+                    BitSet.valueOf(payload.position(OUTCOME_HEADER).asLongBuffer()), count));
+        });
+        int[] replayed = new int[1];
+        scanGenerations(fromGeneration, (payload, record) -> {
+            if (payload.get(0) == OUTCOME)
+                return;
+            Object request = messageConverter.decode(payload);
+            markChanged(request);
+            CreditDecisions decisions = outcomes.get(record);
+            if (decisions == null)
+                handler.accept(request);
+            else
+                decisions.during(() -> handler.accept(request));
+            replayed[0]++;
+        });
+        return replayed[0];
+    }
+
+    private void scanGenerations(int fromGeneration, ObjLongConsumer<ByteBuffer> visitor) throws IOException {
+        for (int archived : generations()) {
+            if (archived < fromGeneration)
+                continue;
+            ObjLongConsumer<ByteBuffer> generationVisitor = (payload, at) -> visitor.accept(payload, recordId(archived, at));
+            if (running && archived == generation) {
+                scan(channel, generationFile(archived), generationVisitor);
+            } else {
+                try (FileChannel reader = FileChannel.open(generationFile(archived), StandardOpenOption.READ)) {
+                    scan(reader, generationFile(archived), generationVisitor);
+                }
+            }
+        }
+    }
+
+    private static long recordId(int generation, long at) {
+        return (long) generation << GENERATION_SHIFT | at;
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException, IOException {
+        if (!running)
+            return;
+        running = false;
+        if (syncer != null) {
+            LockSupport.unpark(syncer);
+            syncer.join(SHUTDOWN_TIMEOUT_MILLIS);
+        }
+        synchronized (this) {
+            if (sync != Sync.NONE)
+                segment.force();
+            markDurable(written);
+            channel.close();
+        }
+    }
+
+    public void discard() throws InterruptedException, IOException {
+        if (!isEnabled())
+            return;
+        close();
+        deleteGenerationsBefore(Integer.MAX_VALUE);
+        log.info("Request journal " + file + " discarded");
+    }
+
+    private void reserve(int length) {
+        if (position - segmentStart + length <= segmentBytes)
+            return;
+        if (length > segmentBytes)
+            throw new IllegalStateException("Journal record of " + length + " bytes exceeds the segment size");
+        int at = (int) (position - segmentStart);
+        if (segmentBytes - at >= Integer.BYTES)
+            segment.putInt(at, PADDING);
+        if (sync != Sync.NONE)
+            segment.force();
+        try {
+            mapSegment(segmentStart + segmentBytes);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Could not extend request journal " + generationFile(generation), ex);
+        }
+        position = segmentStart;
+    }
+
+    private void mapSegment(long start) throws IOException {
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, start, segmentBytes);
+        segmentStart = start;
+    }
+
+    private Path generationFile(int number) {
+        return file.resolveSibling(file.getFileName() + "." + number);
+    }
+
+    private List<Integer> generations() throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        String prefix = file.getFileName() + ".";
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(prefix) && name.length() > prefix.length()
+                            && name.substring(prefix.length()).chars().allMatch(Character::isDigit))
+                    .map(name -> Integer.parseInt(name.substring(prefix.length())))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private long scan(FileChannel channel, Path path, ObjLongConsumer<ByteBuffer> visitor) throws IOException {
+        long size = channel.size();
+        long at = 0;
+        while (at < size) {
+            long start = at - at % segmentBytes;
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(segmentBytes, size - start));
+            int offset = (int) (at - start);
+            while (window.limit() - offset >= RECORD_HEADER) {
+                int length = window.getInt(offset);
+                if (length == 0)
+                    return start + offset;
+                if (length == PADDING)
+                    break;
+                if (length < 0 || length > window.limit() - offset - RECORD_HEADER)
+                    return torn(path, start + offset);
+                ByteBuffer payload = window.slice(offset + RECORD_HEADER, length);
+                checksum.reset();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != window.getInt(offset + 4))
+                    return torn(path, start + offset);
+                if (visitor != null)
+                    visitor.accept(payload.rewind(), start + offset);
+                offset += RECORD_HEADER + length;
+            }
+            at = start + segmentBytes;
+        }
+        return Math.min(at, size);
+    }
+
+    private long torn(Path path, long at) {
+        log.warning("Request journal " + path + " is torn at " + at + " bytes, ignoring the rest");
+        return at;
+    }
+
+    private void syncLoop() {
+        while (running) {
+            long target;
+            MappedByteBuffer current;
+            synchronized (this) {
+                target = written;
+                current = segment;
+            }
+            if (target > durable) {
+                current.force();
+                markDurable(target);
+            }
+            if (sync == Sync.PERIODIC || target == written)
+                LockSupport.parkNanos(syncNanos);
+        }
+    }
+
+    private void markDurable(long target) {
+        synchronized (durability) {
+            if (target <= durable)
+                return;
+            durable = target;
+            durability.notifyAll();
+        }
+    }
+}
@@ -3,24 +3,105 @@ package ir.ramtung.tinyme.repository;
 import ir.ramtung.tinyme.domain.entity.Security;
 import org.springframework.stereotype.Component;
 
+import java.nio.ByteBuffer;
+import java.util.Collection;
 import java.util.HashMap;
 
 @Component
 public class SecurityRepository {
-    private final HashMap<String, Security> securityByIsin = new HashMap<>();
+    private volatile HashMap<String, Security> securityByIsin = new HashMap<>();
+    private volatile String[] isinTable = new String[16];
     public Security findSecurityByIsin(String isin) {
         return securityByIsin.get(isin);
     }
 
-    public void addSecurity(Security security) {
-        securityByIsin.put(security.getIsin(), security);
+    public synchronized void addSecurity(Security security) {
+        HashMap<String, Security> copy = new HashMap<>(securityByIsin);
+        copy.put(security.getIsin(), security);
+        securityByIsin = copy;
+        rebuildIsinTable();
     }
 
-    public void clear() {
-        securityByIsin.clear();
+    public synchronized void addSecurities(Collection<Security> securities) {
+        HashMap<String, Security> copy = new HashMap<>(securityByIsin);
+        for (Security security : securities)
+            copy.put(security.getIsin(), security);
+        securityByIsin = copy;
+        rebuildIsinTable();
+    }
+
+    public synchronized void clear() {
+        securityByIsin = new HashMap<>();
+        rebuildIsinTable();
+    }
+
+    public String internIsin(CharSequence text, int start, int end) {
+        String[] table = isinTable;
+        int mask = table.length - 1;
+        for (int index = hash(text, start, end) & mask; table[index] != null; index = (index + 1) & mask) {
+            if (regionEquals(table[index], text, start, end))
+                return table[index];
+        }
+        return null;
+    }
+
+    public String internIsin(ByteBuffer ascii, int start, int end) {
+        String[] table = isinTable;
+        int mask = table.length - 1;
+        for (int index = hash(ascii, start, end) & mask; table[index] != null; index = (index + 1) & mask) {
+            if (regionEquals(table[index], ascii, start, end))
+                return table[index];
+        }
+        return null;
     }
 
     Iterable<? extends Security> allSecurities() {
         return securityByIsin.values();
     }
+
+    private void rebuildIsinTable() {
+        int capacity = Integer.highestOneBit(Math.max(8, securityByIsin.size()) * 4);
+        String[] table = new String[capacity];
+        for (String isin : securityByIsin.keySet()) {
+            if (isin == null)
+                continue;
+            int index = isin.hashCode() & (capacity - 1);
+            while (table[index] != null)
+                index = (index + 1) & (capacity - 1);
+            table[index] = isin;
+        }
+        isinTable = table;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + text.charAt(i);
+        return hash;
+    }
+
+    private static int hash(ByteBuffer ascii, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++)
+            hash = 31 * hash + (ascii.get(i) & 0xff);
+        return hash;
+    }
+
+    private static boolean regionEquals(String isin, ByteBuffer ascii, int start, int end) {
+        if (isin.length() != end - start)
+            return false;
+        for (int i = 0; i < isin.length(); i++)
+            if (isin.charAt(i) != (ascii.get(start + i) & 0xff))
+                return false;
+        return true;
+    }
+
+    private static boolean regionEquals(String isin, CharSequence text, int start, int end) {
+        if (isin.length() != end - start)
+            return false;
+        for (int i = 0; i < isin.length(); i++)
+            if (isin.charAt(i) != text.charAt(start + i))
+                return false;
+        return true;
+    }
 }
@@ -3,11 +3,11 @@ package ir.ramtung.tinyme.repository;
 import ir.ramtung.tinyme.domain.entity.Shareholder;
 import org.springframework.stereotype.Component;
 
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class ShareholderRepository {
-    private final HashMap<Long, Shareholder> shareholderById = new HashMap<>();
+    private final ConcurrentHashMap<Long, Shareholder> shareholderById = new ConcurrentHashMap<>();
     public Shareholder findShareholderById(long shareholderId) {
         return shareholderById.get(shareholderId);
     }
@@ -0,0 +1,507 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.IsinShardedExecutor;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32C;
+
+@Component
+public class SnapshotStore {
+    public record Restored(int journalGeneration, int orders) {}
+
+    private record OrderView(byte kind, long orderId, int totalQuantity, int price, long brokerId, long shareholderId,
+                             LocalDateTime entryTime, int minimumExecutionQuantity, int peakSizeOrStopPrice,
+                             int displayedQuantity, long stopLimitRequestId) {}
+
+    private record SecurityView(int index, MatchingState matchingState, int lastTradedPrice, int openingPrice,
+                                List<List<OrderView>> sides) {}
+
+    private record PositionView(long shareholderId, int index, int quantity) {}
+
+    private record ShardView(List<SecurityView> securities, List<PositionView> positions) {
+        int orders() {
+            int orders = 0;
+            for (SecurityView security : securities)
+                for (List<OrderView> side : security.sides())
+                    orders += side.size();
+            return orders;
+        }
+    }
+
+    private static final int MAGIC = 0x544d4553;
+    private static final int VERSION = 1;
+    private static final byte PLAIN_ORDER = 0;
+    private static final byte ICEBERG_ORDER = 1;
+    private static final byte STOP_LIMIT_ORDER = 2;
+    private static final int MAX_ORDER_BYTES = 64;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+    private final Logger log = Logger.getLogger(this.getClass().getName());
+    private final SecurityRepository securityRepository;
+    private final BrokerRepository brokerRepository;
+    private final ShareholderRepository shareholderRepository;
+    private final IsinShardedExecutor shardedExecutor;
+    private final RequestJournal requestJournal;
+    private final Path file;
+    private final long intervalSeconds;
+    private ScheduledExecutorService scheduler;
+
+    public SnapshotStore(SecurityRepository securityRepository, BrokerRepository brokerRepository,
+                         ShareholderRepository shareholderRepository, IsinShardedExecutor shardedExecutor,
+                         RequestJournal requestJournal,
+                         @Value("${stateSnapshotFile:}") String file,
+                         @Value("${stateSnapshotSeconds:0}") long intervalSeconds) {
+        this.securityRepository = securityRepository;
+        this.brokerRepository = brokerRepository;
+        this.shareholderRepository = shareholderRepository;
+        this.shardedExecutor = shardedExecutor;
+        this.requestJournal = requestJournal;
+        this.file = file.isBlank() ? null : Path.of(file);
+        this.intervalSeconds = intervalSeconds;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (file == null || intervalSeconds <= 0 || scheduler != null)
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "state-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::takeScheduled, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            stopping = scheduler;
+            scheduler = null;
+        }
+        if (stopping == null)
+            return;
+        stopping.shutdown();
+        if (!stopping.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+            log.warning("State snapshot did not finish in time");
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    public boolean exists() {
+        return file != null && Files.exists(file);
+    }
+
+    public int journalGeneration() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) ;
+            header.flip();
+            if (header.remaining() < 3 * Integer.BYTES || header.getInt() != MAGIC || header.getInt() != VERSION)
+                throw new IOException(file + " is not a version " + VERSION + " state snapshot");
+            return header.getInt();
+        }
+    }
+
+    public void discard() throws IOException {
+        if (file != null)
+            Files.deleteIfExists(file);
+    }
+
+    private void takeScheduled() {
+        try {
+            take();
+        } catch (IOException | ExecutionException | RuntimeException ex) {
+            log.log(Level.SEVERE, "Could not take a state snapshot", ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public synchronized int take() throws IOException, InterruptedException, ExecutionException {
+        if (file == null)
+            throw new IllegalStateException("No state snapshot file is configured");
+        long start = System.nanoTime();
+        List<Security> securities = new ArrayList<>();
+        securityRepository.allSecurities().forEach(securities::add);
+        List<Broker> brokers = new ArrayList<>();
+        brokerRepository.allBrokers().forEach(brokers::add);
+        List<Shareholder> shareholders = new ArrayList<>();
+        shareholderRepository.allShareholders().forEach(shareholders::add);
+        Map<Security, Integer> indexOf = new IdentityHashMap<>();
+        List<List<Security>> securitiesByShard = new ArrayList<>();
+        for (int shard = 0; shard < shardedExecutor.getShardCount(); shard++)
+            securitiesByShard.add(new ArrayList<>());
+        for (Security security : securities) {
+            indexOf.put(security, indexOf.size());
+            securitiesByShard.get(shardedExecutor.shardOf(security.getIsin())).add(security);
+        }
+
+        int shards = securitiesByShard.size();
+        ShardView[] views = new ShardView[shards];
+        long[] pauses = new long[shards];
+        int slowest = 0;
+        long[] credits = new long[brokers.size()];
+        CreditCut cut = new CreditCut();
+        for (Broker broker : brokers)
+            broker.openCut(cut);
+        List<CompletableFuture<Void>> captured = new ArrayList<>(1);
+        int generation;
+        try {
+            generation = requestJournal.rotate(() -> captured.add(shardedExecutor.runOnEachShard(shard -> {
+                long arrival = System.nanoTime();
+                cut.pass();
+                views[shard] = captureShard(securitiesByShard.get(shard), indexOf);
+                pauses[shard] = System.nanoTime() - arrival;
+            })));
+            captured.get(0).get();
+        } finally {
+            for (int i = 0; i < credits.length; i++)
+                credits[i] = brokers.get(i).closeCut();
+        }
+        for (int shard = 1; shard < shards; shard++)
+            if (pauses[shard] > pauses[slowest])
+                slowest = shard;
+
+        ByteBuffer[] chunks = new ByteBuffer[shards];
+        for (int shard = 0; shard < shards; shard++)
+            chunks[shard] = encode(views[shard]);
+        long bytes = write(generation, securities, brokers, credits, shareholders, chunks);
+        requestJournal.deleteGenerationsBefore(generation);
+        log.info(String.format("State snapshot of %d securities written to %s in %d ms (%d KB), matching paused for at most %d us on shard %d to copy %d orders and %d positions",
+                securities.size(), file, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), bytes >> 10,
+                TimeUnit.NANOSECONDS.toMicros(pauses[slowest]), slowest, views[slowest].orders(),
+                views[slowest].positions().size()));
+        return generation;
+    }
+
+    public synchronized Restored load() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 4 * Integer.BYTES || size > Integer.MAX_VALUE)
+                throw new IOException("State snapshot " + file + " has an invalid size of " + size + " bytes");
+            MappedByteBuffer snapshot = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32C checksum = new CRC32C();
+            checksum.update(snapshot.slice(0, (int) size - Integer.BYTES));
+            if ((int) checksum.getValue() != snapshot.getInt((int) size - Integer.BYTES))
+                throw new IOException("State snapshot " + file + " fails its checksum");
+            if (snapshot.getInt() != MAGIC || snapshot.getInt() != VERSION)
+                throw new IOException(file + " is not a version " + VERSION + " state snapshot");
+            return restore(snapshot);
+        }
+    }
+
+    // Runs on the shard: copies what the snapshot needs so that encoding can happen off the matching thread.
+    // Matching on the shard waits for as long as copying the orders and holders of its own securities takes.
+    private ShardView captureShard(List<Security> securities, Map<Security, Integer> indexOf) {
+        List<SecurityView> securityViews = new ArrayList<>(securities.size());
+        for (Security security : securities) {
+            List<List<OrderView>> sides = new ArrayList<>(4);
+            for (OrderBook book : List.of(security.getOrderBook(), security.getStopLimitOrderBook())) {
+                sides.add(captureSide(book, Side.BUY));
+                sides.add(captureSide(book, Side.SELL));
+            }
+            security.releaseOrders();
+            securityViews.add(new SecurityView(indexOf.get(security), security.getMatchingState(),
+                    security.getLastTradedPrice(), security.getOpeningPrice(), sides));
+        }
+        List<PositionView> positions = new ArrayList<>();
+        for (Security security : securities) {
+            int index = indexOf.get(security);
+            for (Shareholder holder : security.getHolders())
+                positions.add(new PositionView(holder.getShareholderId(), index, holder.getPositions().get(security)));
+        }
+        return new ShardView(securityViews, positions);
+    }
+
+    private static List<OrderView> captureSide(OrderBook book, Side side) {
+        List<OrderView> orders = new ArrayList<>();
+        for (Order order : book.getOrders(side)) {
+            byte kind = PLAIN_ORDER;
+            int peakSizeOrStopPrice = 0;
+            int displayedQuantity = 0;
+            long stopLimitRequestId = 0;
+            if (order instanceof IcebergOrder icebergOrder) {
+                kind = ICEBERG_ORDER;
+                peakSizeOrStopPrice = icebergOrder.getPeakSize();
+                displayedQuantity = icebergOrder.getDisplayedQuantity();
+            } else if (order instanceof StopLimitOrder stopLimitOrder) {
+                kind = STOP_LIMIT_ORDER;
+                peakSizeOrStopPrice = stopLimitOrder.getStopPrice();
+                stopLimitRequestId = stopLimitOrder.getStopLimitRequestID();
+            }
+            orders.add(new OrderView(kind, order.getOrderId(), order.getTotalQuantity(), order.getPrice(),
+                    order.getBroker().getBrokerId(), order.getShareholder().getShareholderId(), order.getEntryTime(),
+                    order.getMinimumExecutionQuantity(), peakSizeOrStopPrice, displayedQuantity, stopLimitRequestId));
+        }
+        return orders;
+    }
+
+    private static ByteBuffer encode(ShardView view) {
+        Output out = new Output(4096);
+        out.putInt(view.securities().size());
+        for (SecurityView security : view.securities()) {
+            out.putInt(security.index());
+            out.put((byte) security.matchingState().ordinal());
+            out.putInt(security.lastTradedPrice());
+            out.putInt(security.openingPrice());
+            for (List<OrderView> side : security.sides())
+                encodeSide(out, side);
+        }
+        out.putInt(view.positions().size());
+        for (PositionView position : view.positions()) {
+            out.ensure(Long.BYTES + 2 * Integer.BYTES);
+            out.buffer.putLong(position.shareholderId()).putInt(position.index()).putInt(position.quantity());
+        }
+        return out.buffer.flip();
+    }
+
+    private static void encodeSide(Output out, List<OrderView> orders) {
+        out.putInt(orders.size());
+        for (OrderView order : orders) {
+            out.ensure(MAX_ORDER_BYTES);
+            ByteBuffer buffer = out.buffer;
+            buffer.put(order.kind())
+                    .putLong(order.orderId())
+                    .putInt(order.totalQuantity())
+                    .putInt(order.price())
+                    .putLong(order.brokerId())
+                    .putLong(order.shareholderId())
+                    .putLong(order.entryTime().toEpochSecond(ZoneOffset.UTC))
+                    .putInt(order.entryTime().getNano())
+                    .putInt(order.minimumExecutionQuantity());
+            if (order.kind() == ICEBERG_ORDER)
+                buffer.putInt(order.peakSizeOrStopPrice()).putInt(order.displayedQuantity());
+            else if (order.kind() == STOP_LIMIT_ORDER)
+                buffer.putInt(order.peakSizeOrStopPrice()).putLong(order.stopLimitRequestId());
+        }
+    }
+
+    private long write(int generation, List<Security> securities, List<Broker> brokers, long[] credits,
+                       List<Shareholder> shareholders, ByteBuffer[] chunks) throws IOException {
+        Output header = new Output(64 * 1024);
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(generation);
+        header.putInt(securities.size());
+        for (Security security : securities) {
+            header.putString(security.getIsin());
+            header.putInt(security.getTickSize());
+            header.putInt(security.getLotSize());
+            header.putInt(security.getOrderBook().getPriceLadderTicks());
+        }
+        header.putInt(brokers.size());
+        for (int i = 0; i < brokers.size(); i++) {
+            header.putLong(brokers.get(i).getBrokerId());
+            header.putString(brokers.get(i).getName());
+            header.putLong(credits[i]);
+        }
+        header.putInt(shareholders.size());
+        for (Shareholder shareholder : shareholders) {
+            header.putLong(shareholder.getShareholderId());
+            header.putString(shareholder.getName());
+        }
+        header.putInt(chunks.length);
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        CRC32C checksum = new CRC32C();
+        long bytes = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            bytes += writeChecked(channel, header.buffer.flip(), checksum);
+            for (ByteBuffer chunk : chunks) {
+                ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).putInt(chunk.remaining()).flip();
+                bytes += writeChecked(channel, length, checksum);
+                bytes += writeChecked(channel, chunk, checksum);
+            }
+            ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES).putInt((int) checksum.getValue()).flip();
+            while (trailer.hasRemaining())
+                bytes += channel.write(trailer);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(), StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+        return bytes;
+    }
+
+    private static long writeChecked(FileChannel channel, ByteBuffer buffer, CRC32C checksum) throws IOException {
+        checksum.update(buffer.duplicate());
+        long written = 0;
+        while (buffer.hasRemaining())
+            written += channel.write(buffer);
+        return written;
+    }
+
+    private Restored restore(ByteBuffer in) throws IOException {
+        int generation = in.getInt();
+        int securityCount = in.getInt();
+        String[] isins = new String[securityCount];
+        int[][] configs = new int[securityCount][];
+        for (int i = 0; i < securityCount; i++) {
+            isins[i] = getString(in);
+            configs[i] = new int[] {in.getInt(), in.getInt(), in.getInt()};
+        }
+        brokerRepository.clear();
+        for (int i = in.getInt(); i > 0; i--) {
+            brokerRepository.addBroker(Broker.builder()
+                    .brokerId(in.getLong())
+                    .name(getString(in))
+                    .credit(in.getLong())
+                    .build());
+        }
+        shareholderRepository.clear();
+        for (int i = in.getInt(); i > 0; i--) {
+            shareholderRepository.addShareholder(Shareholder.builder()
+                    .shareholderId(in.getLong())
+                    .name(getString(in))
+                    .build());
+        }
+
+        Security[] securities = new Security[securityCount];
+        int orders = 0;
+        for (int chunk = in.getInt(); chunk > 0; chunk--) {
+            in.getInt();
+            for (int i = in.getInt(); i > 0; i--) {
+                int index = in.getInt();
+                int[] config = configs[index];
+                Security security = Security.builder()
+                        .isin(isins[index])
+                        .tickSize(config[0])
+                        .lotSize(config[1])
+                        .orderBook(config[2] > 0 ? OrderBook.withPriceLadder(config[0], config[2]) : new OrderBook())
+                        .matchingState(MatchingState.values()[in.get()])
+                        .lastTradedPrice(in.getInt())
+                        .openingPrice(in.getInt())
+                        .build();
+                securities[index] = security;
+                for (OrderBook book : List.of(security.getOrderBook(), security.getStopLimitOrderBook())) {
+                    orders += restoreSide(in, security, book, Side.BUY);
+                    orders += restoreSide(in, security, book, Side.SELL);
+                }
+            }
+            for (int i = in.getInt(); i > 0; i--) {
+                Shareholder shareholder = shareholderRepository.findShareholderById(in.getLong());
+                Security security = securities[in.getInt()];
+                shareholder.incPosition(security, in.getInt());
+            }
+        }
+        for (Security security : securities) {
+            if (security == null)
+                throw new IOException("State snapshot " + file + " misses the books of some securities");
+        }
+        securityRepository.clear();
+        securityRepository.addSecurities(List.of(securities));
+        log.info(String.format("State snapshot loaded with %d securities and %d orders, replaying the request journal from generation %d",
+                securityCount, orders, generation));
+        return new Restored(generation, orders);
+    }
+
+    private int restoreSide(ByteBuffer in, Security security, OrderBook book, Side side) {
+        int count = in.getInt();
+        if (count == 0)
+            return 0;
+        List<Order> orders = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte kind = in.get();
+            long orderId = in.getLong();
+            int quantity = in.getInt();
+            int price = in.getInt();
+            Broker broker = brokerRepository.findBrokerById(in.getLong());
+            Shareholder shareholder = shareholderRepository.findShareholderById(in.getLong());
+            LocalDateTime entryTime = LocalDateTime.ofEpochSecond(in.getLong(), in.getInt(), ZoneOffset.UTC);
+            int minimumExecutionQuantity = in.getInt();
+            if (kind == ICEBERG_ORDER)
+                orders.add(new IcebergOrder(orderId, security, side, quantity, price, broker, shareholder, entryTime,
+                        in.getInt(), in.getInt(), OrderStatus.QUEUED, minimumExecutionQuantity));
+            else if (kind == STOP_LIMIT_ORDER)
+                orders.add(new StopLimitOrder(orderId, security, side, quantity, price, broker, shareholder, entryTime,
+                        OrderStatus.QUEUED, in.getInt(), in.getLong()));
+            else
+                orders.add(new Order(orderId, security, side, quantity, price, broker, shareholder, entryTime,
+                        OrderStatus.QUEUED, minimumExecutionQuantity));
+        }
+        book.bulkLoad(side, orders);
+        return count;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class Output {
+        private ByteBuffer buffer;
+
+        Output(int capacity) {
+            buffer = ByteBuffer.allocate(capacity);
+        }
+
+        void ensure(int bytes) {
+            if (buffer.remaining() >= bytes)
+                return;
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+            buffer = grown.put(buffer.flip());
+        }
+
+        void put(byte value) {
+            ensure(Byte.BYTES);
+            buffer.put(value);
+        }
+
+        void putInt(int value) {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void putString(String value) {
+            if (value == null) {
+                putInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+    }
+}
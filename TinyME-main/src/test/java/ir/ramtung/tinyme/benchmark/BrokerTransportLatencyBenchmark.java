@@ -0,0 +1,72 @@
+package ir.ramtung.tinyme.benchmark;
+
+import jakarta.jms.Connection;
+import jakarta.jms.MessageConsumer;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import org.apache.activemq.artemis.core.config.impl.ConfigurationImpl;
+import org.apache.activemq.artemis.core.server.embedded.EmbeddedActiveMQ;
+import org.apache.activemq.artemis.jms.client.ActiveMQConnectionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+
+// mvn test -Dtest=BrokerTransportLatencyBenchmark -Dbenchmark=true -DenableAssertions=false
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class BrokerTransportLatencyBenchmark {
+    private static final int WARMUP = 10_000;
+    private static final int ROUND_TRIPS = 50_000;
+    private static final String TCP_URL = "tcp://127.0.0.1:61626";
+
+    @Test
+    void in_vm_round_trips_are_cheaper_than_tcp() throws Exception {
+        EmbeddedActiveMQ broker = new EmbeddedActiveMQ();
+        broker.setConfiguration(new ConfigurationImpl()
+                .setPersistenceEnabled(false)
+                .setSecurityEnabled(false)
+                .addAcceptorConfiguration("in-vm", "vm://0")
+                .addAcceptorConfiguration("tcp", TCP_URL));
+        broker.start();
+        try {
+            for (int round = 0; round < 2; round++) {
+                report("in-vm", measure("vm://0"));
+                report("tcp", measure(TCP_URL));
+            }
+        } finally {
+            broker.stop();
+        }
+    }
+
+    private long[] measure(String url) throws Exception {
+        try (ActiveMQConnectionFactory connectionFactory = new ActiveMQConnectionFactory(url);
+             Connection connection = connectionFactory.createConnection()) {
+            connection.start();
+            Session producerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Session consumerSession = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Queue queue = producerSession.createQueue("latency");
+            MessageProducer producer = producerSession.createProducer(queue);
+            MessageConsumer consumer = consumerSession.createConsumer(queue);
+            String body = "{\"requestType\":\"NEW_ORDER\",\"requestId\":1,\"securityIsin\":\"IRO1FOLD0001\",\"orderId\":1}";
+            long[] nanos = new long[ROUND_TRIPS];
+            for (int i = -WARMUP; i < ROUND_TRIPS; i++) {
+                long start = System.nanoTime();
+                producer.send(producerSession.createTextMessage(body));
+                if (consumer.receive(5_000) == null)
+                    throw new IllegalStateException("Lost message on " + url);
+                if (i >= 0)
+                    nanos[i] = System.nanoTime() - start;
+            }
+            return nanos;
+        }
+    }
+
+    private static void report(String transport, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-6s mean %6.1f us  p50 %6.1f us  p99 %6.1f us  p99.9 %7.1f us%n", transport,
+                Arrays.stream(sorted).average().orElse(0) / 1e3, sorted[sorted.length / 2] / 1e3,
+                sorted[(int) (sorted.length * 0.99)] / 1e3, sorted[(int) (sorted.length * 0.999)] / 1e3);
+    }
+}
@@ -0,0 +1,96 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.ParallelCsvLoader;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+// mvn test -Dtest=DataLoaderBenchmark -Dbenchmark=true -DenableAssertions=false -DargLine=-Xmx12g
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class DataLoaderBenchmark {
+    private static final int ORDERS = Integer.getInteger("benchmarkOrders", 10_000_000);
+    private static final int SHAREHOLDERS = 100_000;
+    private static final int SECURITIES = 500;
+    private static final int BROKERS = 100;
+    private static final int POSITIONS_PER_SHAREHOLDER = 5;
+    @TempDir
+    Path directory;
+
+    @Test
+    void startup_load_time() throws Exception {
+        long start = System.nanoTime();
+        generate();
+        System.out.printf("generated %d orders, %d shareholders in %d ms, %d MB%n", ORDERS, SHAREHOLDERS,
+                (System.nanoTime() - start) / 1_000_000, sizeOf(directory) >> 20);
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int parallelism : processors > 1 ? new int[] {1, processors} : new int[] {1}) {
+            for (int round = 0; round < 2; round++) {
+                ParallelCsvLoader loader = new ParallelCsvLoader(new BrokerRepository(), new ShareholderRepository(),
+                        new SecurityRepository(), parallelism);
+                System.gc();
+                start = System.nanoTime();
+                int loaded = loader.loadAll(directory);
+                long nanos = System.nanoTime() - start;
+                System.out.printf("parallelism %d round %d: %d orders in %d ms, %.0f orders/s%n", parallelism, round,
+                        loaded, nanos / 1_000_000, loaded * 1e9 / nanos);
+            }
+        }
+    }
+
+    private void generate() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("broker.csv"))) {
+            writer.write("brokerId,name,credit\n");
+            for (int i = 1; i <= BROKERS; i++)
+                writer.write(i + ",broker" + i + ",100000000000\n");
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("shareholder.csv"))) {
+            writer.write("shareholderId,name\n");
+            for (int i = 1; i <= SHAREHOLDERS; i++)
+                writer.write(i + ",shareholder" + i + "\n");
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("security.csv"))) {
+            writer.write("isin,tickSize,lotSize,priceLadderTicks\n");
+            for (int i = 0; i < SECURITIES; i++)
+                writer.write("SEC" + i + ",1,1," + (i % 2 == 0 ? 4096 : 0) + "\n");
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve("position.csv"))) {
+            writer.write("shareholderId,isin,positions\n");
+            for (int i = 1; i <= SHAREHOLDERS; i++)
+                for (int p = 0; p < POSITIONS_PER_SHAREHOLDER; p++)
+                    writer.write(i + ",SEC" + (i * 7 + p) % SECURITIES + ",1000000\n");
+        }
+        Path books = Files.createDirectory(directory.resolve(ParallelCsvLoader.ORDER_BOOK_DIRECTORY));
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 9, 0);
+        int perSecurity = ORDERS / SECURITIES;
+        for (int s = 0; s < SECURITIES; s++) {
+            String isin = "SEC" + s;
+            try (BufferedWriter writer = Files.newBufferedWriter(books.resolve(isin + ".csv"))) {
+                writer.write("orderId,isin,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity,minimumExecutionQuantity,stopPrice,stopLimitRequestId\n");
+                for (int i = 0; i < perSecurity; i++) {
+                    long orderId = (long) s * perSecurity + i + 1;
+                    boolean buy = i % 2 == 0;
+                    int price = buy ? 15000 - i % 1000 : 15001 + i % 1000;
+                    boolean iceberg = i % 10 == 0;
+                    writer.write(orderId + "," + isin + "," + (buy ? "BUY" : "SELL") + ",100," + price + ","
+                            + (1 + i % BROKERS) + "," + (1 + i % SHAREHOLDERS) + "," + time.plusNanos(orderId * 1000)
+                            + (iceberg ? ",10,10" : ",0,0") + ",0,0,0\n");
+                }
+            }
+        }
+    }
+
+    private static long sizeOf(Path directory) throws IOException {
+        try (var files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderExecutedEvent;
+import ir.ramtung.tinyme.messaging.event.TradeEvent;
+import ir.ramtung.tinyme.repository.EventJournal;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+
+// mvn test -Dtest=EventJournalBenchmark -Dbenchmark=true -DenableAssertions=false
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class EventJournalBenchmark {
+    private static final int EVENTS = 5_000_000;
+    @TempDir
+    Path directory;
+
+    @Test
+    void append_and_replay_cost() throws Exception {
+        Event[] events = {
+                new OrderAcceptedEvent(1, 1),
+                new OrderExecutedEvent(2, 2, List.of(new TradeDTO("SEC1", 15000, 100, 2, 1))),
+                new TradeEvent("SEC1", 15000, 100, 2, 1)
+        };
+        EventJournal journal = new EventJournal(directory.resolve("event.journal").toString(), 64, 100);
+        journal.open();
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < EVENTS; i++)
+                journal.append(events[i % events.length]);
+            long nanos = System.nanoTime() - start;
+            System.out.printf("round %d: %d appends, %.0f ns/event%n", round, EVENTS, (double) nanos / EVENTS);
+        }
+        long last = journal.getLastSequence();
+        long[] replayed = new long[1];
+        long start = System.nanoTime();
+        journal.replay(last - EVENTS + 1, last + 1, (event, sequence) -> replayed[0]++);
+        long nanos = System.nanoTime() - start;
+        System.out.printf("replayed %d events in %d ms, %.0f ns/event%n", replayed[0], nanos / 1_000_000,
+                (double) nanos / replayed[0]);
+        journal.close();
+    }
+}
@@ -0,0 +1,49 @@
+package ir.ramtung.tinyme.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.MessagingConfig;
+import ir.ramtung.tinyme.messaging.codec.RequestMessageConverter;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+// mvn test -Dtest=RequestDecodeBenchmark -Dbenchmark=true -DenableAssertions=false
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class RequestDecodeBenchmark {
+    private static final int MESSAGES = 1_000_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void binary_decode_is_cheaper_than_json() throws Exception {
+        EnterOrderRq rq = EnterOrderRq.createNewOrderRq(1, "IRO1FOLD0001", 200, LocalDateTime.now(), Side.BUY,
+                350, 15_700, 3, 4, 100, 0, 0);
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+        String json = objectMapper.writeValueAsString(rq);
+        ByteBuffer binary = ByteBuffer.wrap(RequestMessageConverter.encode(rq));
+        SecurityRepository securityRepository = new SecurityRepository();
+        securityRepository.addSecurity(Security.builder().isin("IRO1FOLD0001").build());
+        RequestMessageConverter converter = new MessagingConfig().jmsMessageConverter(securityRepository);
+        EnterOrderRq pooled = new EnterOrderRq();
+
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++)
+                checksum += objectMapper.readValue(json, EnterOrderRq.class).getOrderId();
+            long jsonNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < MESSAGES; i++)
+                checksum += ((EnterOrderRq) converter.decode(binary, pooled, null)).getOrderId();
+            long binaryNanos = System.nanoTime() - start;
+            System.out.printf("round %d: json %.1f ns/msg (%d bytes), binary %.1f ns/msg (%d bytes)%n", round,
+                    (double) jsonNanos / MESSAGES, json.length(), (double) binaryNanos / MESSAGES, binary.limit());
+        }
+        System.out.println("checksum " + checksum);
+    }
+}
@@ -0,0 +1,140 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.*;
+import ir.ramtung.tinyme.domain.service.validation.Validation;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.MessagingConfig;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// mvn test -Dtest=RequestJournalBenchmark -Dbenchmark=true -DenableAssertions=false
+@SpringBootTest
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class RequestJournalBenchmark {
+    private static final int REQUESTS = 1_000_000;
+    private static final int SECURITIES = 16;
+    private static final int GROUP = 64;
+    @Autowired
+    SecurityRepository securityRepository;
+    @Autowired
+    BrokerRepository brokerRepository;
+    @Autowired
+    ShareholderRepository shareholderRepository;
+    @Autowired
+    ContinuousMatcher continuousMatcher;
+    @Autowired
+    AuctionMatcher auctionMatcher;
+    @Autowired
+    StopLimitOrderActivator stopLimitOrderActivator;
+    @Autowired
+    Validation validation;
+    @TempDir
+    Path directory;
+
+    @Test
+    void journal_throughput_and_recovery_time() throws Exception {
+        List<Object> requests = requests();
+        for (RequestJournal.Sync sync : RequestJournal.Sync.values()) {
+            Path file = directory.resolve(sync + ".journal");
+            RequestJournal journal = journal(file, sync);
+            long start = System.nanoTime();
+            long position = 0;
+            for (int i = 0; i < REQUESTS; i++) {
+                position = journal.append(requests.get(i), journalPosition -> {});
+                if (i % GROUP == GROUP - 1)
+                    journal.awaitDurable(position);
+            }
+            journal.awaitDurable(position);
+            long nanos = System.nanoTime() - start;
+            journal.close();
+            System.out.printf("%s: %.0f ns/request, %.0f requests/s, %d MB%n", sync, (double) nanos / REQUESTS,
+                    REQUESTS * 1e9 / nanos, Files.size(file) >> 20);
+        }
+
+        Path file = directory.resolve(RequestJournal.Sync.NONE + ".journal");
+        for (int round = 0; round < 3; round++) {
+            loadInitialState();
+            RequestJournal journal = journal(file, RequestJournal.Sync.NONE);
+            long start = System.nanoTime();
+            int replayed = recovery(journal).recover();
+            long nanos = System.nanoTime() - start;
+            journal.close();
+            System.out.printf("recovery round %d: %d requests in %d ms, %.0f requests/s%n", round, replayed,
+                    nanos / 1_000_000, replayed * 1e9 / nanos);
+        }
+    }
+
+    private List<Object> requests() {
+        List<Object> requests = new ArrayList<>(REQUESTS);
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 9, 0);
+        for (int i = 0; i < REQUESTS; i++) {
+            String isin = "SEC" + i % SECURITIES;
+            if (i % 4 == 3) {
+                requests.add(new DeleteOrderRq(i, isin, Side.BUY, i - 3));
+            } else {
+                Side side = i % 2 == 0 ? Side.BUY : Side.SELL;
+                int price = side == Side.BUY ? 900 - i % 50 : 1100 + i % 50;
+                requests.add(EnterOrderRq.createNewOrderRq(i, isin, i, time.plusNanos(i), side, 10, price,
+                        1, 1, 0, 0, 0));
+            }
+        }
+        return requests;
+    }
+
+    private void loadInitialState() {
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        brokerRepository.addBroker(Broker.builder().brokerId(1).credit(Long.MAX_VALUE / 4).build());
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        for (int i = 0; i < SECURITIES; i++) {
+            Security security = Security.builder().isin("SEC" + i).build();
+            securityRepository.addSecurity(security);
+            shareholder.incPosition(security, Integer.MAX_VALUE / 2);
+        }
+        shareholderRepository.addShareholder(shareholder);
+    }
+
+    private RequestJournal journal(Path file, RequestJournal.Sync sync) throws Exception {
+        RequestJournal journal = new RequestJournal(new MessagingConfig().jmsMessageConverter(securityRepository),
+                file.toString(), sync, 200, 64);
+        journal.open();
+        return journal;
+    }
+
+    private JournalRecovery recovery(RequestJournal journal) {
+        EventPublisher eventPublisher = new EventPublisher(null, null, "RS", 16, 16, EventPublisher.Overflow.BLOCK, "unused", 0) {
+            @Override
+            protected void send(Event event) {
+            }
+        };
+        OrderHandler orderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository,
+                new OrderEventPublisher(eventPublisher), continuousMatcher, auctionMatcher, stopLimitOrderActivator,
+                validation, eventPublisher);
+        MatcherStateHandler matcherStateHandler = new MatcherStateHandler(securityRepository, eventPublisher,
+                continuousMatcher, auctionMatcher, stopLimitOrderActivator);
+        return new JournalRecovery(journal, orderHandler, matcherStateHandler, eventPublisher);
+    }
+}
@@ -0,0 +1,84 @@
+package ir.ramtung.tinyme.benchmark;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.ContinuousMatcher;
+import ir.ramtung.tinyme.domain.service.IsinShardedExecutor;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// mvn test -Dtest=ShardedMatchingBenchmark -Dbenchmark=true -DenableAssertions=false
+@SpringBootTest
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+public class ShardedMatchingBenchmark {
+    private static final int SECURITIES = 64;
+    private static final int ORDERS_PER_SECURITY = 20_000;
+    private static final int RESTING_LEVELS = 200;
+    @Autowired
+    private ContinuousMatcher continuousMatcher;
+
+    @Test
+    void throughput_scales_with_matching_shards() throws InterruptedException {
+        int cores = Runtime.getRuntime().availableProcessors();
+        run(1);
+        for (int shards = 1; shards <= cores; shards *= 2)
+            report(shards, run(shards));
+        if (Integer.bitCount(cores) != 1)
+            report(cores, run(cores));
+    }
+
+    private double run(int shardCount) throws InterruptedException {
+        List<Security> securities = new ArrayList<>();
+        List<Broker> brokers = new ArrayList<>();
+        List<Shareholder> shareholders = new ArrayList<>();
+        for (int i = 0; i < SECURITIES; i++) {
+            Security security = Security.builder().isin("SEC" + i).build();
+            Broker broker = Broker.builder().brokerId(i).credit(Long.MAX_VALUE / 4).build();
+            Shareholder shareholder = Shareholder.builder().shareholderId(i).build();
+            shareholder.incPosition(security, Integer.MAX_VALUE / 2);
+            for (int level = 0; level < RESTING_LEVELS; level++) {
+                security.getOrderBook().enqueue(new Order(-1 - level, security, Side.BUY, 100, 900 - level,
+                        broker, shareholder, 0));
+                security.getOrderBook().enqueue(new Order(-1_000 - level, security, Side.SELL, 100, 1100 + level,
+                        broker, shareholder, 0));
+            }
+            securities.add(security);
+            brokers.add(broker);
+            shareholders.add(shareholder);
+        }
+
+        IsinShardedExecutor executor = new IsinShardedExecutor(shardCount);
+        LocalDateTime entryTime = LocalDateTime.now();
+        long start = System.nanoTime();
+        for (int orderId = 1; orderId <= ORDERS_PER_SECURITY; orderId++) {
+            Side side = orderId % 2 == 0 ? Side.BUY : Side.SELL;
+            for (int i = 0; i < SECURITIES; i++) {
+                Security security = securities.get(i);
+                Broker broker = brokers.get(i);
+                Shareholder shareholder = shareholders.get(i);
+                EnterOrderRq rq = EnterOrderRq.createNewOrderRq(orderId, security.getIsin(), orderId, entryTime,
+                        side, 10, 1000, broker.getBrokerId(), shareholder.getShareholderId(), 0, 0, 0);
+                executor.execute(security.getIsin(), () -> security.newOrder(rq, broker, shareholder, continuousMatcher));
+            }
+        }
+        executor.flush();
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        return (double) SECURITIES * ORDERS_PER_SECURITY / elapsed * 1e9;
+    }
+
+    private void report(int shardCount, double ordersPerSecond) {
+        System.out.printf("%2d shards: %,12.0f orders/s%n", shardCount, ordersPerSecond);
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.test.annotation.DirtiesContext;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static ir.ramtung.tinyme.domain.entity.Side.BUY;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -352,4 +353,53 @@ public class AuctionMatcherTest {
         assertThat(security.getOrderBook().getBuyQueue()).hasSize(0);
         assertThat(result.getLastTradedPrice()).isEqualTo(15500);
     }
+
+    @Test
+    void opening_price_matches_a_price_by_price_search_on_random_books() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int lastTradedPrice = 15000 + random.nextInt(200) - 100;
+            security = Security.builder().lastTradedPrice(lastTradedPrice).build();
+            shareholder.incPosition(security, 100_000);
+            orderBook = security.getOrderBook();
+            for (int id = 1; id <= 1 + random.nextInt(30); id++) {
+                Side side = random.nextBoolean() ? BUY : Side.SELL;
+                int price = 14900 + random.nextInt(200);
+                orderBook.enqueue(new Order(id, security, side, 1 + random.nextInt(500), price, broker, shareholder, 0));
+            }
+            MatchResult result = auctionMatcher.updateOpeningPrice(security);
+            int[] expected = searchOpeningPrice(orderBook, lastTradedPrice);
+            assertThat(result.getOpeningPrice()).isEqualTo(expected[0]);
+            assertThat(result.getTradableQuantity()).isEqualTo(expected[1]);
+        }
+    }
+
+    private int[] searchOpeningPrice(OrderBook orderBook, int lastTradedPrice) {
+        int lowestPrice = orderBook.getLowestPriorityOrderPrice(BUY);
+        int highestPrice = orderBook.getLowestPriorityOrderPrice(Side.SELL);
+        int openingPrice = AuctionMatcher.INVALID_PRICE;
+        int maxTradableQuantity = 1;
+        if (lowestPrice == AuctionMatcher.INVALID_PRICE || highestPrice == AuctionMatcher.INVALID_PRICE)
+            return new int[] {openingPrice, 0};
+        for (int price = lowestPrice; price <= highestPrice; price++) {
+            int buyQuantity = 0;
+            for (Order order : orderBook.getBuyQueue())
+                if (order.getPrice() >= price)
+                    buyQuantity += order.getTotalQuantity();
+            int sellQuantity = 0;
+            for (Order order : orderBook.getSellQueue())
+                if (order.getPrice() <= price)
+                    sellQuantity += order.getTotalQuantity();
+            int tradableQuantity = Math.min(buyQuantity, sellQuantity);
+            boolean closer = openingPrice == AuctionMatcher.INVALID_PRICE
+                    || Math.abs(price - lastTradedPrice) < Math.abs(openingPrice - lastTradedPrice);
+            if (tradableQuantity > maxTradableQuantity || (tradableQuantity == maxTradableQuantity && closer)) {
+                maxTradableQuantity = tradableQuantity;
+                openingPrice = price;
+            }
+        }
+        if (openingPrice == AuctionMatcher.INVALID_PRICE)
+            return new int[] {openingPrice, 0};
+        return new int[] {openingPrice, maxTradableQuantity};
+    }
 }
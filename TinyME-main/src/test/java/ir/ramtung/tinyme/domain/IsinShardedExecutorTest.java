@@ -0,0 +1,101 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.service.IsinShardedExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IsinShardedExecutorTest {
+    private IsinShardedExecutor executor;
+
+    @BeforeEach
+    void setupExecutor() {
+        executor = new IsinShardedExecutor(4);
+    }
+
+    @AfterEach
+    void shutdownExecutor() throws InterruptedException {
+        executor.shutdown();
+    }
+
+    @Test
+    void requests_of_each_isin_run_in_arrival_order_on_one_thread() throws InterruptedException {
+        Map<String, List<Integer>> executed = new ConcurrentHashMap<>();
+        Map<String, String> threads = new ConcurrentHashMap<>();
+        List<String> isins = List.of("SEC1", "SEC2", "SEC3", "SEC4", "SEC5", "SEC6");
+        isins.forEach(isin -> executed.put(isin, new ArrayList<>()));
+        for (int sequence = 0; sequence < 10_000; sequence++) {
+            for (String isin : isins) {
+                int current = sequence;
+                executor.execute(isin, () -> {
+                    executed.get(isin).add(current);
+                    threads.merge(isin, Thread.currentThread().getName(),
+                            (first, name) -> first.equals(name) ? first : "more than one thread");
+                });
+            }
+        }
+        executor.flush();
+        for (String isin : isins) {
+            assertThat(executed.get(isin)).hasSize(10_000).isSorted();
+            assertThat(threads.get(isin)).isEqualTo("matching-shard-" + executor.shardOf(isin));
+        }
+    }
+
+    @Test
+    void a_failing_request_does_not_stop_its_shard() throws InterruptedException {
+        List<String> executed = new ArrayList<>();
+        executor.execute("SEC1", () -> {
+            throw new IllegalStateException("broken request");
+        });
+        executor.execute("SEC1", () -> executed.add("next"));
+        executor.flush();
+        assertThat(executed).containsExactly("next");
+    }
+
+    @Test
+    void unknown_isin_is_routed_to_a_valid_shard() {
+        assertThat(executor.shardOf(null)).isZero();
+        assertThat(executor.shardOf("ABC")).isBetween(0, executor.getShardCount() - 1);
+    }
+
+    @Test
+    void a_task_on_each_shard_runs_between_the_tasks_queued_there_before_and_after_it() throws Exception {
+        int shards = executor.getShardCount();
+        int[] executedBefore = new int[shards];
+        int[] executedAfter = new int[shards];
+        int[] seenBefore = new int[shards];
+        int[] seenAfter = new int[shards];
+        List<String> isins = List.of("SEC1", "SEC2", "SEC3", "SEC4", "SEC5", "SEC6");
+        CountDownLatch blocked = new CountDownLatch(1);
+        executor.execute("SEC1", () -> {
+            try {
+                blocked.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        for (String isin : isins)
+            executor.execute(isin, () -> executedBefore[executor.shardOf(isin)]++);
+        var ran = executor.runOnEachShard(shard -> {
+            seenBefore[shard] = executedBefore[shard];
+            seenAfter[shard] = executedAfter[shard];
+        });
+        for (String isin : isins)
+            executor.execute(isin, () -> executedAfter[executor.shardOf(isin)]++);
+        blocked.countDown();
+        ran.get();
+        executor.flush();
+
+        assertThat(seenBefore).isEqualTo(executedBefore);
+        assertThat(seenAfter).containsOnly(0);
+        assertThat(executedAfter).isEqualTo(executedBefore);
+    }
+}
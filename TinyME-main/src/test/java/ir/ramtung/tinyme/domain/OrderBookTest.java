@@ -5,9 +5,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.Arrays;
+import java.util.LinkedList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class OrderBookTest {
     private Security security;
@@ -76,4 +78,191 @@ class OrderBookTest {
         orderBook.removeByOrderId(Side.SELL, 10);
         assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 9));
     }
-}
\ No newline at end of file
+
+    @Test
+    void orders_with_the_same_price_keep_arrival_order() {
+        OrderBook orderBook = security.getOrderBook();
+        Order order = new Order(11, security, Side.BUY, 100, 15450, orders.get(0).getBroker(),
+                orders.get(0).getShareholder(), 0);
+        orderBook.enqueue(order);
+        assertThat(orderBook.getBuyQueue()).containsExactly(orders.get(0), orders.get(1), orders.get(2),
+                orders.get(3), order, orders.get(4));
+    }
+
+    @Test
+    void removing_the_first_order_of_a_level_moves_to_the_next_level() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeFirst(Side.SELL);
+        assertThat(orderBook.getFirstOrder(Side.SELL)).isEqualTo(orders.get(6));
+        orderBook.removeByOrderId(Side.SELL, 7);
+        orderBook.removeByOrderId(Side.SELL, 8);
+        assertThat(orderBook.getFirstOrder(Side.SELL)).isEqualTo(orders.get(8));
+    }
+
+    @Test
+    void lowest_priority_price_follows_the_worst_level() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThat(orderBook.getLowestPriorityOrderPrice(Side.BUY)).isEqualTo(15400);
+        assertThat(orderBook.getLowestPriorityOrderPrice(Side.SELL)).isEqualTo(15820);
+        orderBook.removeByOrderId(Side.BUY, 5);
+        orderBook.removeByOrderId(Side.SELL, 9);
+        orderBook.removeByOrderId(Side.SELL, 10);
+        assertThat(orderBook.getLowestPriorityOrderPrice(Side.BUY)).isEqualTo(15450);
+        assertThat(orderBook.getLowestPriorityOrderPrice(Side.SELL)).isEqualTo(15810);
+    }
+
+    @Test
+    void removes_an_order_in_the_middle_of_a_level_by_id() {
+        OrderBook orderBook = security.getOrderBook();
+        Order removed = orderBook.removeByOrderId(Side.SELL, 7);
+        assertThat(removed).isEqualTo(orders.get(6));
+        assertThat(orderBook.findByOrderId(Side.SELL, 7)).isNull();
+        assertThat(orderBook.getSellQueue()).containsExactly(orders.get(5), orders.get(7), orders.get(8), orders.get(9));
+    }
+
+    @Test
+    void put_back_order_is_found_by_id_and_queues_first_in_its_level() {
+        OrderBook orderBook = security.getOrderBook();
+        Order snapshot = orders.get(3).snapshotWithQuantity(100);
+        orderBook.restoreBuyOrder(snapshot);
+        assertThat(orderBook.findByOrderId(Side.BUY, 4)).isSameAs(snapshot);
+        assertThat(orderBook.getBuyQueue()).containsExactly(orders.get(0), orders.get(1), snapshot,
+                orders.get(2), orders.get(4));
+    }
+
+    @Test
+    void order_views_walk_the_live_book_in_priority_order() {
+        OrderBook orderBook = security.getOrderBook();
+        Iterable<Order> buys = orderBook.getOrders(Side.BUY);
+        assertThat(buys).containsExactly(orders.get(0), orders.get(1), orders.get(2), orders.get(3), orders.get(4));
+        orderBook.removeByOrderId(Side.BUY, 3);
+        assertThat(buys).containsExactly(orders.get(0), orders.get(1), orders.get(3), orders.get(4));
+        assertThat(orderBook.getOrders(Side.SELL)).containsExactlyElementsOf(orderBook.getSellQueue());
+        assertThat(new OrderBook().getOrders(Side.SELL)).isEmpty();
+    }
+
+    @Test
+    void deep_book_keeps_index_and_queues_consistent_under_removals() {
+        OrderBook orderBook = new OrderBook();
+        Broker broker = Broker.builder().build();
+        Shareholder shareholder = Shareholder.builder().build();
+        LinkedList<Order> expected = new LinkedList<>();
+        for (int i = 1; i <= 10_000; i++) {
+            Order order = new Order(i, security, Side.SELL, 10, 15000 + (i % 50), broker, shareholder, 0);
+            orderBook.enqueue(order);
+        }
+        for (int i = 1; i <= 10_000; i++) {
+            if (i % 3 == 0)
+                orderBook.removeByOrderId(Side.SELL, i);
+        }
+        for (int price = 15000; price < 15050; price++) {
+            for (int i = 1; i <= 10_000; i++) {
+                if (i % 3 != 0 && 15000 + (i % 50) == price)
+                    expected.add(orderBook.findByOrderId(Side.SELL, i));
+            }
+        }
+        assertThat(expected).doesNotContainNull();
+        assertThat(orderBook.findByOrderId(Side.SELL, 3)).isNull();
+        assertThat(orderBook.getSellQueue()).isEqualTo(expected);
+    }
+
+    @Test
+    void reserved_sell_quantity_follows_enqueue_fill_cancel_and_restore() {
+        OrderBook orderBook = security.getOrderBook();
+        Broker broker = orders.get(0).getBroker();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        Shareholder other = Shareholder.builder().shareholderId(2).build();
+        IcebergOrder iceberg = new IcebergOrder(11, security, Side.SELL, 500, 15800, broker, other, 100, 0);
+        orderBook.enqueue(iceberg);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1840);
+        assertThat(orderBook.totalSellQuantityByShareholder(other)).isEqualTo(500);
+
+        Order sixth = orders.get(5);
+        Order snapshot = sixth.snapshot();
+        sixth.decreaseQuantity(50);
+        orderBook.syncQuantity(sixth);
+        iceberg.decreaseQuantity(100);
+        orderBook.syncQuantity(iceberg);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1790);
+        assertThat(orderBook.totalSellQuantityByShareholder(other)).isEqualTo(400);
+
+        orderBook.restoreSellOrder(snapshot);
+        orderBook.removeByOrderId(Side.SELL, 11);
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder)).isEqualTo(1840);
+        assertThat(orderBook.totalSellQuantityByShareholder(other)).isZero();
+        assertThat(orderBook.totalSellQuantityByShareholder(shareholder))
+                .isEqualTo(orderBook.scanSellQuantityByShareholder(shareholder));
+    }
+
+    @Test
+    void auction_equilibrium_follows_enqueue_fill_and_cancel() {
+        OrderBook orderBook = security.getOrderBook();
+        Broker broker = orders.get(0).getBroker();
+        Shareholder shareholder = orders.get(0).getShareholder();
+        Order crossingBuy = new Order(11, security, Side.BUY, 500, 15810, broker, shareholder, 0);
+        orderBook.enqueue(crossingBuy);
+        orderBook.enqueue(new Order(12, security, Side.SELL, 400, 15450, broker, shareholder, 0));
+        assertThat(orderBook.getAuctionEquilibrium(15805)).isEqualTo(new AuctionEquilibrium(15805, 500));
+
+        crossingBuy.decreaseQuantity(300);
+        orderBook.syncQuantity(crossingBuy);
+        assertThat(orderBook.getAuctionEquilibrium(15805)).isEqualTo(new AuctionEquilibrium(15700, 400));
+
+        orderBook.removeByOrderId(Side.SELL, 12);
+        assertThat(orderBook.getAuctionEquilibrium(15805)).isEqualTo(new AuctionEquilibrium(15805, 200));
+
+        orderBook.removeByOrderId(Side.BUY, 11);
+        assertThat(orderBook.getAuctionEquilibrium(15805)).isEqualTo(AuctionEquilibrium.NONE);
+        assertThat(orderBook.sweepAuctionEquilibrium(15805)).isEqualTo(AuctionEquilibrium.NONE);
+    }
+
+    @Test
+    void bulk_load_builds_the_same_queues_as_enqueue() {
+        OrderBook loaded = new OrderBook();
+        loaded.bulkLoad(Side.BUY, orders.subList(0, 5));
+        loaded.bulkLoad(Side.SELL, orders.subList(5, 10));
+        assertThat(loaded.getBuyQueue()).isEqualTo(security.getOrderBook().getBuyQueue());
+        assertThat(loaded.getSellQueue()).isEqualTo(security.getOrderBook().getSellQueue());
+        assertThat(loaded.findByOrderId(Side.SELL, 8)).isEqualTo(orders.get(7));
+        Shareholder shareholder = orders.get(0).getShareholder();
+        assertThat(loaded.totalSellQuantityByShareholder(shareholder)).isEqualTo(1840);
+    }
+
+    @Test
+    void bulk_load_keeps_arrival_order_of_unsorted_input_within_a_level() {
+        OrderBook loaded = new OrderBook();
+        loaded.bulkLoad(Side.BUY, List.of(orders.get(4), orders.get(2), orders.get(0), orders.get(3), orders.get(1)));
+        assertThat(loaded.getBuyQueue()).containsExactly(orders.get(0), orders.get(1), orders.get(2),
+                orders.get(3), orders.get(4));
+    }
+
+    @Test
+    void bulk_load_into_a_non_empty_side_is_rejected() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThatThrownBy(() -> orderBook.bulkLoad(Side.BUY, List.of()))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void released_orders_are_rebuilt_with_the_changes_made_before_the_release() {
+        OrderBook orderBook = security.getOrderBook();
+        IcebergOrder iceberg = new IcebergOrder(11, security, Side.SELL, 500, 15830, orders.get(0).getBroker(),
+                orders.get(0).getShareholder(), 200, 0);
+        orderBook.enqueue(iceberg);
+        Order order = orderBook.findByOrderId(Side.BUY, 3);
+        order.decreaseQuantity(45);
+        orderBook.syncQuantity(order);
+        iceberg.decreaseQuantity(150);
+        orderBook.syncQuantity(iceberg);
+        orderBook.releaseOrders();
+
+        Order rebuilt = orderBook.findByOrderId(Side.BUY, 3);
+        assertThat(rebuilt).isNotSameAs(order).isEqualTo(order);
+        assertThat(rebuilt.getQuantity()).isEqualTo(400);
+        assertThat(orderBook.findByOrderId(Side.SELL, 11)).isEqualTo(iceberg);
+        assertThat(orderBook.getBuyQueue()).containsExactly(orders.get(0), orders.get(1), order, orders.get(3),
+                orders.get(4));
+        assertThat(orderBook.totalSellQuantityByShareholder(order.getShareholder()))
+                .isEqualTo(orderBook.scanSellQuantityByShareholder(order.getShareholder()));
+    }
+}
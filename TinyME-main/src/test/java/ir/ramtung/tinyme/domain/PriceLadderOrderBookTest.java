@@ -0,0 +1,88 @@
+package ir.ramtung.tinyme.domain;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceLadderOrderBookTest {
+    private Security security;
+    private Broker broker;
+    private Shareholder shareholder;
+    private List<Order> orders;
+
+    @BeforeEach
+    void setupOrderBook() {
+        security = Security.builder()
+                .tickSize(10)
+                .orderBook(OrderBook.withPriceLadder(10, 64))
+                .build();
+        broker = Broker.builder().build();
+        shareholder = Shareholder.builder().build();
+        shareholder.incPosition(security, 100_000);
+        orders = Arrays.asList(
+                new Order(1, security, Side.BUY, 304, 15700, broker, shareholder, 0),
+                new Order(2, security, Side.BUY, 43, 15500, broker, shareholder, 0),
+                new Order(3, security, Side.BUY, 445, 15450, broker, shareholder, 0),
+                new Order(4, security, Side.BUY, 526, 15450, broker, shareholder, 0),
+                new Order(5, security, Side.BUY, 1000, 15400, broker, shareholder, 0),
+                new Order(6, security, Side.SELL, 350, 15800, broker, shareholder, 0),
+                new Order(7, security, Side.SELL, 285, 15810, broker, shareholder, 0),
+                new Order(8, security, Side.SELL, 800, 15810, broker, shareholder, 0),
+                new Order(9, security, Side.SELL, 340, 15820, broker, shareholder, 0),
+                new Order(10, security, Side.SELL, 65, 15820, broker, shareholder, 0)
+        );
+        orders.forEach(order -> security.getOrderBook().enqueue(order));
+    }
+
+    @Test
+    void queues_are_kept_in_price_time_priority() {
+        OrderBook orderBook = security.getOrderBook();
+        assertThat(orderBook.getBuyQueue()).isEqualTo(orders.subList(0, 5));
+        assertThat(orderBook.getSellQueue()).isEqualTo(orders.subList(5, 10));
+        assertThat(orderBook.isUsingPriceLadder(Side.BUY)).isTrue();
+        assertThat(orderBook.isUsingPriceLadder(Side.SELL)).isTrue();
+    }
+
+    @Test
+    void removing_the_best_level_moves_the_cursor_to_the_next_level() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeFirst(Side.BUY);
+        assertThat(orderBook.getFirstOrder(Side.BUY)).isEqualTo(orders.get(1));
+        orderBook.removeByOrderId(Side.BUY, 2);
+        assertThat(orderBook.getFirstOrder(Side.BUY)).isEqualTo(orders.get(2));
+        assertThat(orderBook.getLowestPriorityOrderPrice(Side.BUY)).isEqualTo(15400);
+    }
+
+    @Test
+    void window_moves_to_hold_a_price_within_the_ladder_span() {
+        OrderBook orderBook = security.getOrderBook();
+        orderBook.removeByOrderId(Side.BUY, 2);
+        orderBook.removeByOrderId(Side.BUY, 3);
+        orderBook.removeByOrderId(Side.BUY, 4);
+        orderBook.removeByOrderId(Side.BUY, 5);
+        Order order = new Order(11, security, Side.BUY, 100, 16200, broker, shareholder, 0);
+        orderBook.enqueue(order);
+        assertThat(orderBook.isUsingPriceLadder(Side.BUY)).isTrue();
+        assertThat(orderBook.getBuyQueue()).containsExactly(order, orders.get(0));
+        assertThat(orderBook.getLowestPriorityOrderPrice(Side.BUY)).isEqualTo(15700);
+    }
+
+    @Test
+    void falls_back_to_sorted_levels_when_prices_leave_the_window() {
+        OrderBook orderBook = security.getOrderBook();
+        Order farOrder = new Order(11, security, Side.SELL, 100, 25000, broker, shareholder, 0);
+        orderBook.enqueue(farOrder);
+        assertThat(orderBook.isUsingPriceLadder(Side.SELL)).isFalse();
+        assertThat(orderBook.isUsingPriceLadder(Side.BUY)).isTrue();
+        assertThat(orderBook.getSellQueue()).containsExactly(orders.get(5), orders.get(6), orders.get(7),
+                orders.get(8), orders.get(9), farOrder);
+        orderBook.removeByOrderId(Side.SELL, 8);
+        assertThat(orderBook.findByOrderId(Side.SELL, 8)).isNull();
+        assertThat(orderBook.getLowestPriorityOrderPrice(Side.SELL)).isEqualTo(25000);
+    }
+}
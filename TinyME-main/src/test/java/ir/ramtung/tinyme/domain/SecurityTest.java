@@ -55,6 +55,18 @@ class SecurityTest {
         orders.forEach(order -> security.getOrderBook().enqueue(order));
     }
 
+    @Test
+    void shareholders_are_indexed_on_the_securities_they_take_positions_in() {
+        Shareholder other = Shareholder.builder().shareholderId(1).build();
+        assertThat(security.getHolders()).containsExactly(shareholder);
+
+        other.incPosition(security, 0);
+        other.incPosition(security, 10);
+        shareholder.incPosition(security, 10);
+        assertThat(security.getHolders()).containsExactlyInAnyOrder(shareholder, other);
+        assertThat(Security.builder().build().getHolders()).isEmpty();
+    }
+
     @Test
     void reducing_quantity_does_not_change_priority() {
         EnterOrderRq updateOrderRq = EnterOrderRq.createUpdateOrderRq(1, security.getIsin(), 3,
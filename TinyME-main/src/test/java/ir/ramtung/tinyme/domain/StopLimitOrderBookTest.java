@@ -156,4 +156,47 @@ public class StopLimitOrderBookTest {
         assertIterableEquals(expectedBuyQueue, actualBuyQueue);
         assertIterableEquals(expectedSellQueue, actualSellQueue);
     }
+    @Test
+    void drains_every_triggered_sell_in_stop_price_order(){
+        StopLimitOrderbook stopLimitOrderBook = security.getStopLimitOrderBook();
+        List<StopLimitOrder> activated = stopLimitOrderBook.drainActivatedOrders(5600);
+        assertThat(activated).extracting(Order::getOrderId).containsExactly(10L, 7L, 6L);
+        assertThat(stopLimitOrderBook.getSellQueue()).extracting(Order::getOrderId).containsExactly(8L, 9L);
+        assertThat(stopLimitOrderBook.getBuyQueue()).hasSize(5);
+        assertThat(stopLimitOrderBook.findByOrderId(SELL, 7)).isNull();
+        assertThat(stopLimitOrderBook.getMaxSellStopPrice()).isEqualTo(5499);
+    }
+    @Test
+    void drains_every_triggered_buy_in_stop_price_order(){
+        StopLimitOrderbook stopLimitOrderBook = security.getStopLimitOrderBook();
+        List<StopLimitOrder> activated = stopLimitOrderBook.drainActivatedOrders(15555);
+        assertThat(activated).extracting(Order::getOrderId).containsExactly(5L, 2L, 3L);
+        assertThat(stopLimitOrderBook.getBuyQueue()).extracting(Order::getOrderId).containsExactly(1L, 4L);
+        assertThat(stopLimitOrderBook.getSellQueue()).hasSize(5);
+        assertThat(stopLimitOrderBook.drainActivatedOrders(15555)).isEmpty();
+    }
+    @Test
+    void drain_keeps_arrival_order_within_a_stop_level(){
+        StopLimitOrderbook stopLimitOrderBook = security.getStopLimitOrderBook();
+        for (long orderId = 11; orderId <= 1010; orderId++)
+            stopLimitOrderBook.enqueue(new StopLimitOrder(orderId, security, BUY, 10, 17000,
+                    broker, shareholder, mockedNow, OrderStatus.NEW, 16500, 0));
+        List<StopLimitOrder> activated = stopLimitOrderBook.drainActivatedOrders(16500);
+        assertThat(activated).hasSize(1005);
+        assertThat(activated.subList(5, 1005)).extracting(Order::getOrderId)
+                .isSorted()
+                .allMatch(orderId -> orderId > 10);
+        assertThat(stopLimitOrderBook.hasOrderOfType(BUY)).isFalse();
+    }
+    @Test
+    void bulk_loaded_stop_limit_orders_are_ordered_by_stop_price(){
+        StopLimitOrderbook stopLimitOrderBook = security.getStopLimitOrderBook();
+        StopLimitOrderbook loaded = new StopLimitOrderbook();
+        loaded.bulkLoad(BUY, stopLimitOrderBook.getBuyQueue());
+        loaded.bulkLoad(SELL, stopLimitOrderBook.getSellQueue());
+        assertIterableEquals(stopLimitOrderBook.getBuyQueue(), loaded.getBuyQueue());
+        assertIterableEquals(stopLimitOrderBook.getSellQueue(), loaded.getSellQueue());
+        assertThat(loaded.getMinBuyStopPrice()).isEqualTo(14000);
+        assertThat(loaded.getMaxSellStopPrice()).isEqualTo(8000);
+    }
 }
@@ -0,0 +1,193 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.repository.EventJournal;
+import jakarta.jms.JMSException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AsyncEventPublisherTest {
+    @TempDir
+    Path directory;
+    private final List<List<Event>> batches = new CopyOnWriteArrayList<>();
+    private final List<Long> deliveredSequences = new CopyOnWriteArrayList<>();
+    private final List<String> deliveringThreads = new CopyOnWriteArrayList<>();
+    private final CountDownLatch brokerAvailable = new CountDownLatch(1);
+    private final AtomicInteger failuresLeft = new AtomicInteger();
+    private EventPublisher publisher;
+    private EventJournal eventJournal;
+
+    private EventPublisher publisher(int capacity, EventPublisher.Overflow overflow) throws Exception {
+        publisher = new EventPublisher(null, eventJournal, "RS", capacity, 3, overflow, directory.resolve("spill.log").toString(), 0) {
+            @Override
+            protected void deliver(List<Event> batch, long[] sequences) throws JMSException {
+                try {
+                    brokerAvailable.await();
+                } catch (InterruptedException ex) {
+                    throw new JMSException("interrupted");
+                }
+                if (failuresLeft.getAndDecrement() > 0)
+                    throw new JMSException("broker is down");
+                batches.add(new ArrayList<>(batch));
+                for (int i = 0; i < batch.size(); i++)
+                    deliveredSequences.add(sequences[i]);
+                deliveringThreads.add(Thread.currentThread().getName());
+            }
+        };
+        publisher.start();
+        return publisher;
+    }
+
+    @AfterEach
+    void shutdownPublisher() throws Exception {
+        brokerAvailable.countDown();
+        if (publisher != null)
+            publisher.shutdown();
+        if (eventJournal != null)
+            eventJournal.close();
+    }
+
+    @Test
+    void events_are_delivered_in_order_in_bounded_batches_on_the_publisher_thread() throws Exception {
+        publisher(100, EventPublisher.Overflow.BLOCK);
+        List<Event> events = events(10);
+        events.forEach(publisher::publish);
+        brokerAvailable.countDown();
+        awaitDelivered(10);
+        assertThat(delivered()).isEqualTo(events);
+        assertThat(batches).allMatch(batch -> batch.size() <= 3);
+        assertThat(deliveringThreads).containsOnly("event-publisher");
+    }
+
+    @Test
+    void a_failed_batch_is_retried_without_reordering() throws Exception {
+        failuresLeft.set(2);
+        publisher(100, EventPublisher.Overflow.BLOCK);
+        List<Event> events = events(7);
+        events.forEach(publisher::publish);
+        brokerAvailable.countDown();
+        awaitDelivered(7);
+        assertThat(delivered()).isEqualTo(events);
+    }
+
+    @Test
+    void full_queue_blocks_the_publisher_until_the_broker_catches_up() throws Exception {
+        publisher(2, EventPublisher.Overflow.BLOCK);
+        List<Event> events = events(6);
+        Thread producer = new Thread(() -> events.forEach(publisher::publish));
+        producer.start();
+        producer.join(500);
+        assertThat(producer.isAlive()).isTrue();
+        brokerAvailable.countDown();
+        producer.join(5_000);
+        awaitDelivered(6);
+        assertThat(delivered()).isEqualTo(events);
+    }
+
+    @Test
+    void overflow_is_spilled_to_disk_and_replayed_in_order() throws Exception {
+        publisher(2, EventPublisher.Overflow.SPILL);
+        List<Event> events = events(9);
+        events.forEach(publisher::publish);
+        assertThat(publisher.isSpilling()).isTrue();
+        assertThat(Files.readAllLines(directory.resolve("spill.log"))).isNotEmpty();
+        brokerAvailable.countDown();
+        awaitDelivered(9);
+        assertThat(delivered()).isEqualTo(events);
+        assertThat(publisher.isSpilling()).isFalse();
+        assertThat(Files.size(directory.resolve("spill.log"))).isZero();
+    }
+
+    @Test
+    void events_spilled_before_a_restart_are_replayed_before_new_ones() throws Exception {
+        EventPublisher crashed = new EventPublisher(null, null, "RS", 1, 3, EventPublisher.Overflow.SPILL,
+                directory.resolve("spill.log").toString(), 0);
+        List<Event> events = events(5);
+        events.subList(0, 3).forEach(crashed::publish);
+
+        publisher(10, EventPublisher.Overflow.SPILL);
+        events.subList(3, 5).forEach(publisher::publish);
+        brokerAvailable.countDown();
+        awaitDelivered(4);
+        assertThat(delivered()).isEqualTo(events.subList(1, 5));
+    }
+
+    @Test
+    void delivered_events_are_journaled_once_in_delivery_order() throws Exception {
+        eventJournal = new EventJournal(directory.resolve("event.journal").toString(), 1, 0);
+        eventJournal.open();
+        failuresLeft.set(1);
+        publisher(2, EventPublisher.Overflow.SPILL);
+        List<Event> events = events(8);
+        events.forEach(publisher::publish);
+        brokerAvailable.countDown();
+        awaitDelivered(8);
+
+        List<Event> journaled = new ArrayList<>();
+        List<Long> sequences = new ArrayList<>();
+        eventJournal.replay(1, Long.MAX_VALUE, (event, sequence) -> {
+            journaled.add(event);
+            sequences.add(sequence);
+        });
+        assertThat(journaled).isEqualTo(events);
+        assertThat(sequences).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+        assertThat(deliveredSequences).isEqualTo(sequences);
+    }
+
+    @Test
+    void a_batch_whose_journaling_fails_part_way_is_delivered_with_the_sequences_it_was_journaled_at() throws Exception {
+        AtomicInteger appendsBeforeFailure = new AtomicInteger(4);
+        eventJournal = new EventJournal(directory.resolve("event.journal").toString(), 1, 0) {
+            @Override
+            public synchronized long append(Event event) {
+                if (appendsBeforeFailure.getAndDecrement() == 0)
+                    throw new IllegalStateException("disk is full");
+                return super.append(event);
+            }
+        };
+        eventJournal.open();
+        publisher(100, EventPublisher.Overflow.BLOCK);
+        List<Event> events = events(9);
+        events.forEach(publisher::publish);
+        brokerAvailable.countDown();
+        awaitDelivered(9);
+
+        List<Event> journaled = new ArrayList<>();
+        eventJournal.replay(1, Long.MAX_VALUE, (event, sequence) -> journaled.add(event));
+        assertThat(appendsBeforeFailure.get()).isNegative();
+        assertThat(delivered()).isEqualTo(events);
+        assertThat(journaled).isEqualTo(events);
+        assertThat(deliveredSequences).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L);
+    }
+
+    private List<Event> events(int count) {
+        List<Event> events = new ArrayList<>();
+        for (int i = 1; i <= count; i++)
+            events.add(i % 4 == 0 ? new OrderRejectedEvent(i, i, List.of("rejected")) : new OrderAcceptedEvent(i, i));
+        return events;
+    }
+
+    private List<Event> delivered() {
+        return batches.stream().flatMap(List::stream).toList();
+    }
+
+    private void awaitDelivered(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (delivered().size() < count && System.nanoTime() < deadline)
+            Thread.sleep(10);
+    }
+}
@@ -0,0 +1,37 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(properties = "eventSpillFile=target/embedded-event-spill.log")
+@ActiveProfiles("embedded")
+@DirtiesContext
+public class EmbeddedBrokerRoundTripTest {
+    @Autowired
+    JmsTemplate jmsTemplate;
+    @Value("${requestQueue}")
+    private String requestQueue;
+    @Value("${responseQueue}")
+    private String responseQueue;
+
+    @Test
+    void requests_and_events_travel_through_the_in_vm_broker() {
+        jmsTemplate.convertAndSend(requestQueue, new DeleteOrderRq(1, "NO-SUCH-ISIN", Side.BUY, 10));
+
+        jmsTemplate.setReceiveTimeout(10_000);
+        Object event = jmsTemplate.receiveAndConvert(responseQueue);
+        assertThat(event).isEqualTo(new OrderRejectedEvent(1, 10, List.of(Message.UNKNOWN_SECURITY_ISIN)));
+    }
+}
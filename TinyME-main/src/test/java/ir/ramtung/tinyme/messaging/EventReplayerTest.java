@@ -0,0 +1,79 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import ir.ramtung.tinyme.repository.EventJournal;
+import jakarta.jms.Message;
+import jakarta.jms.Queue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class EventReplayerTest {
+    @TempDir
+    Path directory;
+    private final List<String> sent = new ArrayList<>();
+    private EventJournal eventJournal;
+    private EventReplayer replayer;
+
+    @BeforeEach
+    void setup() throws Exception {
+        eventJournal = new EventJournal(directory.resolve("event.journal").toString(), 1, 0);
+        eventJournal.open();
+        for (int i = 1; i <= 600; i++)
+            eventJournal.append(new OrderAcceptedEvent(i, i));
+        PublishingChannel channel = new PublishingChannel(null, null) {
+            @Override
+            public void send(String destination, List<?> payloads, long[] sequences) {
+                for (int i = 0; i < payloads.size(); i++)
+                    sent.add(destination + " " + sequences[i] + " " + ((Event) payloads.get(i)));
+            }
+        };
+        replayer = new EventReplayer(eventJournal, channel);
+    }
+
+    @AfterEach
+    void teardown() throws Exception {
+        eventJournal.close();
+    }
+
+    @Test
+    void a_sequence_range_is_resent_in_batches_with_its_journal_numbers() throws Exception {
+        assertThat(replayer.replay("gap", 100, 450)).isEqualTo(350);
+
+        assertThat(sent).hasSize(350);
+        assertThat(sent.get(0)).isEqualTo("gap 100 " + new OrderAcceptedEvent(100, 100));
+        assertThat(sent.get(349)).isEqualTo("gap 449 " + new OrderAcceptedEvent(449, 449));
+        assertThat(replayer.replay("gap", 590, Long.MAX_VALUE)).isEqualTo(11);
+    }
+
+    @Test
+    void replay_requests_are_answered_on_their_reply_queue() throws Exception {
+        Queue replyTo = mock(Queue.class);
+        when(replyTo.getQueueName()).thenReturn("client-7");
+        Message request = mock(Message.class);
+        when(request.getJMSReplyTo()).thenReturn(replyTo);
+        when(request.propertyExists(EventReplayer.FROM_PROPERTY)).thenReturn(true);
+        when(request.propertyExists(EventReplayer.TO_PROPERTY)).thenReturn(false);
+        when(request.getLongProperty(EventReplayer.FROM_PROPERTY)).thenReturn(598L);
+
+        replayer.receiveReplayRequest(request);
+
+        assertThat(sent).containsExactly("client-7 598 " + new OrderAcceptedEvent(598, 598),
+                "client-7 599 " + new OrderAcceptedEvent(599, 599), "client-7 600 " + new OrderAcceptedEvent(600, 600));
+
+        Message withoutReplyQueue = mock(Message.class);
+        when(withoutReplyQueue.propertyExists(anyString())).thenReturn(true);
+        replayer.receiveReplayRequest(withoutReplyQueue);
+        assertThat(sent).hasSize(3);
+    }
+}
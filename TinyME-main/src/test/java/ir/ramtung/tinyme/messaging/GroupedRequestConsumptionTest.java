@@ -0,0 +1,150 @@
+package ir.ramtung.tinyme.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.IsinShardedExecutor;
+import ir.ramtung.tinyme.domain.service.MatcherStateHandler;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.domain.service.validation.Validation;
+import ir.ramtung.tinyme.messaging.codec.RequestMessageConverter;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.pipeline.RequestPipeline;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.RequestJournal;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class GroupedRequestConsumptionTest {
+    private static final int CONSUMERS = 4;
+    private static final int SECURITIES = 16;
+    private static final int REQUESTS_PER_SECURITY = 500;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, List<Long>> handledByIsin = new ConcurrentHashMap<>();
+    private IsinShardedExecutor shardedExecutor;
+    private RequestPipeline pipeline;
+    private RequestDispatcher dispatcher;
+
+    @BeforeEach
+    void setup() {
+        EventPublisher eventPublisher = new EventPublisher(null, null, "RS", 16, 16, EventPublisher.Overflow.BLOCK, "unused", 0) {
+            @Override
+            protected void send(Event event) {
+            }
+        };
+        OrderHandler orderHandler = mock(OrderHandler.class);
+        doAnswer(invocation -> {
+            EnterOrderRq rq = invocation.getArgument(0);
+            handled(rq.getSecurityIsin(), rq.getRequestId());
+            return null;
+        }).when(orderHandler).handleEnterOrder(any(EnterOrderRq.class), anyList());
+        doAnswer(invocation -> {
+            DeleteOrderRq rq = invocation.getArgument(0);
+            handled(rq.getSecurityIsin(), rq.getRequestId());
+            return null;
+        }).when(orderHandler).handleDeleteOrder(any(DeleteOrderRq.class));
+        shardedExecutor = new IsinShardedExecutor(4);
+        SecurityRepository securityRepository = new SecurityRepository();
+        RequestMessageConverter messageConverter = new MessagingConfig().jmsMessageConverter(securityRepository);
+        pipeline = new RequestPipeline(messageConverter, new Validation(), orderHandler, mock(MatcherStateHandler.class),
+                shardedExecutor, eventPublisher, new RequestJournal(messageConverter, "", RequestJournal.Sync.NONE, 0, 64),
+                securityRepository, 64, 0);
+        pipeline.start();
+        dispatcher = new RequestDispatcher(pipeline, CONSUMERS);
+    }
+
+    @AfterEach
+    void shutdown() throws InterruptedException {
+        pipeline.shutdown();
+        shardedExecutor.shutdown();
+    }
+
+    private void handled(String isin, long requestId) {
+        handledByIsin.computeIfAbsent(isin, key -> new CopyOnWriteArrayList<>()).add(requestId);
+    }
+
+    @Test
+    void concurrent_consumers_pinned_by_message_group_preserve_per_isin_order() throws Exception {
+        List<List<TextMessage>> groupsByConsumer = new ArrayList<>();
+        for (int consumer = 0; consumer < CONSUMERS; consumer++)
+            groupsByConsumer.add(new ArrayList<>());
+        for (int sequence = 1; sequence <= REQUESTS_PER_SECURITY; sequence++) {
+            for (int security = 0; security < SECURITIES; security++) {
+                String isin = "SEC" + security;
+                long requestId = (long) security * REQUESTS_PER_SECURITY + sequence;
+                Object rq = sequence % 7 == 0 ? new DeleteOrderRq(requestId, isin, Side.BUY, requestId)
+                        : EnterOrderRq.createNewOrderRq(requestId, isin, requestId, LocalDateTime.now(), Side.BUY,
+                        10, 1000, 1, 1, 0, 0, 0);
+                TextMessage message = message(rq);
+                groupsByConsumer.get(consumerOf(message.getStringProperty(RequestMessageConverter.GROUP_PROPERTY)))
+                        .add(message);
+            }
+        }
+
+        List<Thread> consumers = new ArrayList<>();
+        for (List<TextMessage> messages : groupsByConsumer) {
+            Thread consumer = new Thread(() -> {
+                try {
+                    for (TextMessage message : messages)
+                        dispatcher.receiveRequest(message);
+                } catch (JMSException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            });
+            consumers.add(consumer);
+            consumer.start();
+        }
+        for (Thread consumer : consumers)
+            consumer.join();
+        pipeline.awaitPublished(TimeUnit.SECONDS.toNanos(30));
+
+        assertThat(handledByIsin).hasSize(SECURITIES);
+        for (int security = 0; security < SECURITIES; security++) {
+            List<Long> handled = handledByIsin.get("SEC" + security);
+            assertThat(handled).hasSize(REQUESTS_PER_SECURITY).isSorted();
+        }
+    }
+
+    @Test
+    void requests_sent_through_the_engine_converter_carry_their_isin_as_message_group() throws JMSException {
+        Session session = mock(Session.class);
+        TextMessage message = mock(TextMessage.class);
+        when(session.createTextMessage(anyString())).thenReturn(message);
+
+        new MessagingConfig().jmsMessageConverter(new SecurityRepository())
+                .toMessage(new DeleteOrderRq(1, "SEC7", Side.SELL, 1), session);
+
+        verify(message).setStringProperty("JMSXGroupID", "SEC7");
+    }
+
+    private static int consumerOf(String group) {
+        return Math.floorMod(group.hashCode(), CONSUMERS);
+    }
+
+    private TextMessage message(Object request) throws Exception {
+        TextMessage message = mock(TextMessage.class);
+        when(message.getStringProperty(RequestMessageConverter.TYPE_PROPERTY)).thenReturn(request.getClass().getName());
+        when(message.getStringProperty(RequestMessageConverter.GROUP_PROPERTY)).thenReturn(RequestMessageConverter.groupOf(request));
+        when(message.getText()).thenReturn(objectMapper.writeValueAsString(request));
+        return message;
+    }
+}
@@ -0,0 +1,152 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderDeletedEvent;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.Connection;
+import jakarta.jms.ConnectionFactory;
+import jakarta.jms.ExceptionListener;
+import jakarta.jms.JMSException;
+import jakarta.jms.MessageProducer;
+import jakarta.jms.Queue;
+import jakarta.jms.Session;
+import jakarta.jms.TextMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jms.support.converter.MessageConverter;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class PublishingChannelTest {
+    private ConnectionFactory connectionFactory;
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+    private PublishingChannel channel;
+
+    @BeforeEach
+    void setup() throws JMSException {
+        connectionFactory = mock(ConnectionFactory.class);
+        connection = mock(Connection.class);
+        session = mock(Session.class);
+        producer = mock(MessageProducer.class);
+        when(connectionFactory.createConnection()).thenReturn(connection);
+        when(connection.createSession(anyBoolean(), anyInt())).thenReturn(session);
+        when(session.createQueue(anyString())).thenReturn(mock(Queue.class));
+        when(session.createTextMessage(anyString())).thenReturn(mock(TextMessage.class));
+        when(session.createProducer(any())).thenReturn(producer);
+        channel = new PublishingChannel(connectionFactory, new MessagingConfig().jacksonJmsMessageConverter());
+    }
+
+    @Test
+    void connection_session_and_producer_are_reused_across_batches() throws JMSException {
+        channel.send("RS", List.of(new OrderAcceptedEvent(1, 1), new OrderAcceptedEvent(2, 2)));
+        channel.send("RS", List.of(new OrderDeletedEvent(3, 1)));
+
+        verify(connectionFactory, times(1)).createConnection();
+        verify(connection, times(1)).createSession(true, Session.SESSION_TRANSACTED);
+        verify(session, times(1)).createProducer(any());
+        verify(producer, times(3)).send(any());
+        verify(session, times(2)).commit();
+        assertThat(channel.isHealthy()).isTrue();
+    }
+
+    @Test
+    void journal_sequences_are_stamped_on_the_messages_they_number() throws JMSException {
+        TextMessage first = mock(TextMessage.class);
+        TextMessage unjournaled = mock(TextMessage.class);
+        when(session.createTextMessage(anyString())).thenReturn(first, unjournaled);
+
+        channel.send("RS", List.of(new OrderAcceptedEvent(1, 1), new OrderAcceptedEvent(2, 2)), new long[]{41, 0});
+
+        verify(first).setLongProperty(PublishingChannel.SEQUENCE_PROPERTY, 41);
+        verify(unjournaled, never()).setLongProperty(anyString(), anyLong());
+    }
+
+    @Test
+    void each_destination_gets_its_own_long_lived_producer() throws JMSException {
+        channel.send("RS", List.of(new OrderAcceptedEvent(1, 1)));
+        channel.send("audit", List.of(new OrderAcceptedEvent(2, 2)));
+        channel.send("RS", List.of(new OrderAcceptedEvent(3, 3)));
+
+        verify(session).createQueue("RS");
+        verify(session).createQueue("audit");
+        verify(session, times(2)).createProducer(any());
+    }
+
+    @Test
+    void destinations_can_opt_into_their_own_encoding() throws JMSException {
+        MessageConverter binary = mock(MessageConverter.class);
+        when(binary.toMessage(any(), any())).thenReturn(mock(BytesMessage.class));
+        channel = new PublishingChannel(connectionFactory, new MessagingConfig().jacksonJmsMessageConverter(),
+                Map.of("binary", binary));
+
+        channel.send("binary", List.of(new OrderAcceptedEvent(1, 1)));
+        channel.send("RS", List.of(new OrderAcceptedEvent(2, 2)));
+
+        verify(binary, times(1)).toMessage(any(), any());
+        verify(session, times(1)).createTextMessage(anyString());
+    }
+
+    @Test
+    void failed_commit_drops_the_connection_and_the_next_batch_reconnects() throws JMSException {
+        doThrow(new JMSException("broker restarted")).doNothing().when(session).commit();
+
+        assertThatThrownBy(() -> channel.send("RS", List.of(new OrderAcceptedEvent(1, 1))))
+                .isInstanceOf(JMSException.class);
+        assertThat(channel.isHealthy()).isFalse();
+        verify(connection).close();
+
+        channel.send("RS", List.of(new OrderAcceptedEvent(1, 1)));
+        verify(connectionFactory, times(2)).createConnection();
+        assertThat(channel.getStatistics().connections()).isEqualTo(2);
+    }
+
+    @Test
+    void connection_reported_broken_by_the_broker_client_is_replaced() throws JMSException {
+        channel.send("RS", List.of(new OrderAcceptedEvent(1, 1)));
+        ArgumentCaptor<ExceptionListener> listener = ArgumentCaptor.forClass(ExceptionListener.class);
+        verify(connection).setExceptionListener(listener.capture());
+
+        listener.getValue().onException(new JMSException("connection lost"));
+        assertThat(channel.isHealthy()).isFalse();
+        channel.send("RS", List.of(new OrderAcceptedEvent(2, 2)));
+
+        verify(connection).close();
+        verify(connectionFactory, times(2)).createConnection();
+    }
+
+    @Test
+    void reconnect_attempts_back_off_while_the_broker_is_unreachable() throws JMSException {
+        when(connectionFactory.createConnection()).thenThrow(new JMSException("connection refused"));
+
+        assertThatThrownBy(() -> channel.send("RS", List.of(new OrderAcceptedEvent(1, 1))))
+                .hasMessage("connection refused");
+        assertThatThrownBy(() -> channel.send("RS", List.of(new OrderAcceptedEvent(1, 1))))
+                .hasMessageStartingWith("Broker is unreachable");
+        verify(connectionFactory, times(1)).createConnection();
+    }
+
+    @Test
+    void statistics_count_sent_messages_and_batches() throws JMSException {
+        channel.send("RS", List.of(new OrderAcceptedEvent(1, 1), new OrderAcceptedEvent(2, 2)));
+        channel.send("RS", List.of(new OrderAcceptedEvent(3, 3)));
+
+        PublishingStatistics statistics = channel.getStatistics();
+        assertThat(statistics.sentMessages()).isEqualTo(3);
+        assertThat(statistics.committedBatches()).isEqualTo(2);
+        assertThat(statistics.sendsPerSecond()).isPositive();
+        assertThat(channel.getStatistics().sendsPerSecond()).isZero();
+    }
+}
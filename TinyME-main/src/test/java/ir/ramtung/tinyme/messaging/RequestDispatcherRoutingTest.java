@@ -0,0 +1,67 @@
+package ir.ramtung.tinyme.messaging;
+
+import ir.ramtung.tinyme.messaging.pipeline.RequestPipeline;
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import jakarta.jms.JMSException;
+import jakarta.jms.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RequestDispatcherRoutingTest {
+    private RequestPipeline requestPipeline;
+    private RequestDispatcher dispatcher;
+
+    @BeforeEach
+    void setup() {
+        requestPipeline = mock(RequestPipeline.class);
+        dispatcher = new RequestDispatcher(requestPipeline, 1);
+    }
+
+    private Message messageOfType(String type) throws JMSException {
+        Message message = mock(Message.class);
+        when(message.getStringProperty("_type")).thenReturn(type);
+        return message;
+    }
+
+    @Test
+    void every_request_type_is_taken_by_the_single_listener() throws JMSException {
+        for (Class<?> type : new Class<?>[] {EnterOrderRq.class, DeleteOrderRq.class, ChangingMatchingStateRq.class}) {
+            Message message = messageOfType(type.getName());
+            dispatcher.receiveRequest(message);
+            verify(requestPipeline).submit(message);
+        }
+        assertThat(dispatcher.getRejectedRequests()).isZero();
+    }
+
+    @Test
+    void unknown_and_untyped_requests_are_rejected_before_the_pipeline() throws JMSException {
+        dispatcher.receiveRequest(messageOfType("ir.ramtung.tinyme.messaging.request.CancelAllRq"));
+        dispatcher.receiveRequest(messageOfType(null));
+
+        verify(requestPipeline, never()).submit(any());
+        assertThat(dispatcher.getRejectedRequests()).isEqualTo(2);
+    }
+
+    @Test
+    void concurrent_consumers_reject_requests_without_a_message_group() throws JMSException {
+        RequestDispatcher concurrentDispatcher = new RequestDispatcher(requestPipeline, 4);
+        Message grouped = messageOfType(DeleteOrderRq.class.getName());
+        when(grouped.getStringProperty("JMSXGroupID")).thenReturn("SEC1");
+        Message ungrouped = messageOfType(DeleteOrderRq.class.getName());
+
+        concurrentDispatcher.receiveRequest(grouped);
+        concurrentDispatcher.receiveRequest(ungrouped);
+        dispatcher.receiveRequest(ungrouped);
+
+        verify(requestPipeline).submit(grouped);
+        verify(requestPipeline, times(1)).submit(ungrouped);
+        assertThat(concurrentDispatcher.getRejectedRequests()).isEqualTo(1);
+        assertThat(dispatcher.getRejectedRequests()).isZero();
+    }
+}
@@ -0,0 +1,243 @@
+package ir.ramtung.tinyme.messaging;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.IsinShardedExecutor;
+import ir.ramtung.tinyme.domain.service.MatcherStateHandler;
+import ir.ramtung.tinyme.domain.service.OrderHandler;
+import ir.ramtung.tinyme.domain.service.validation.Validation;
+import ir.ramtung.tinyme.messaging.codec.RequestMessageConverter;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderAcceptedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderDeletedEvent;
+import ir.ramtung.tinyme.messaging.event.OrderRejectedEvent;
+import ir.ramtung.tinyme.messaging.pipeline.RequestPipeline;
+import ir.ramtung.tinyme.messaging.pipeline.StageStatistics;
+import ir.ramtung.tinyme.messaging.event.SecurityStateChangedEvent;
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import ir.ramtung.tinyme.repository.RequestJournal;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import jakarta.jms.JMSException;
+import jakarta.jms.TextMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class RequestPipelineTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<Event> sent = new CopyOnWriteArrayList<>();
+    private final List<String> sendingThreads = new CopyOnWriteArrayList<>();
+    private OrderHandler orderHandler;
+    private MatcherStateHandler matcherStateHandler;
+    private final SecurityRepository securityRepository = new SecurityRepository();
+    private final RequestMessageConverter messageConverter = new MessagingConfig().jmsMessageConverter(securityRepository);
+    private EventPublisher eventPublisher;
+    private IsinShardedExecutor shardedExecutor;
+    private RequestPipeline pipeline;
+
+    @BeforeEach
+    void setupPipeline() {
+        eventPublisher = new EventPublisher(null, null, "RS", 16, 16, EventPublisher.Overflow.BLOCK, "unused", 0) {
+            @Override
+            protected void send(Event event) {
+                sent.add(event);
+                sendingThreads.add(Thread.currentThread().getName());
+            }
+        };
+        orderHandler = mock(OrderHandler.class);
+        doAnswer(invocation -> {
+            EnterOrderRq rq = invocation.getArgument(0);
+            eventPublisher.publish(new OrderAcceptedEvent(rq.getRequestId(), rq.getOrderId()));
+            return null;
+        }).when(orderHandler).handleEnterOrder(any(EnterOrderRq.class), anyList());
+        doAnswer(invocation -> {
+            DeleteOrderRq rq = invocation.getArgument(0);
+            eventPublisher.publish(new OrderDeletedEvent(rq.getRequestId(), rq.getOrderId()));
+            return null;
+        }).when(orderHandler).handleDeleteOrder(any(DeleteOrderRq.class));
+        matcherStateHandler = mock(MatcherStateHandler.class);
+        doAnswer(invocation -> {
+            ChangingMatchingStateRq rq = invocation.getArgument(0);
+            eventPublisher.publish(new SecurityStateChangedEvent(rq.getSecurityIsin(), rq.getTargetState()));
+            return null;
+        }).when(matcherStateHandler).handleChangingMatchingStateRq(any(ChangingMatchingStateRq.class));
+        shardedExecutor = new IsinShardedExecutor(4);
+        startPipeline(new RequestJournal(messageConverter, "", RequestJournal.Sync.NONE, 0, 64));
+    }
+
+    private void startPipeline(RequestJournal requestJournal) {
+        pipeline = new RequestPipeline(messageConverter, new Validation(), orderHandler, matcherStateHandler,
+                shardedExecutor, eventPublisher, requestJournal, securityRepository, 16, 0);
+        pipeline.start();
+    }
+
+    @AfterEach
+    void shutdownPipeline() throws InterruptedException {
+        pipeline.shutdown();
+        shardedExecutor.shutdown();
+    }
+
+    @Test
+    void events_are_published_in_request_order_per_security_off_the_matching_threads() throws Exception {
+        for (int requestId = 1; requestId <= 200; requestId++) {
+            String isin = "SEC" + requestId % 5;
+            if (requestId % 10 == 0)
+                pipeline.submit(message(new DeleteOrderRq(requestId, isin, Side.BUY, requestId)));
+            else
+                pipeline.submit(message(EnterOrderRq.createNewOrderRq(requestId, isin, requestId, LocalDateTime.now(),
+                        Side.BUY, 10, 1000, 1, 1, 0, 0, 0)));
+        }
+        pipeline.awaitPublished(TimeUnit.SECONDS.toNanos(10));
+
+        assertThat(sent).hasSize(200);
+        long[] lastRequestIds = new long[5];
+        for (Event event : sent) {
+            long requestId = event instanceof OrderAcceptedEvent accepted ? accepted.getRequestId()
+                    : ((OrderDeletedEvent) event).getRequestId();
+            assertThat(requestId).isGreaterThan(lastRequestIds[(int) requestId % 5]);
+            lastRequestIds[(int) requestId % 5] = requestId;
+        }
+        assertThat(sendingThreads).containsOnly("request-publish");
+        assertThat(pipeline.getStatistics()).extracting(StageStatistics::processed).containsOnly(200L);
+        assertThat(pipeline.getStatistics()).extracting(StageStatistics::backlog).containsOnly(0L);
+    }
+
+    @Test
+    void a_slow_security_does_not_hold_back_the_events_of_other_shards() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(matcherStateHandler).handleChangingMatchingStateRq(any(ChangingMatchingStateRq.class));
+        String slow = "SEC1";
+        String fast = "SEC2";
+        while (shardedExecutor.shardOf(fast) == shardedExecutor.shardOf(slow))
+            fast = fast + "X";
+        pipeline.submit(message(new ChangingMatchingStateRq(slow, MatchingState.AUCTION)));
+        pipeline.submit(message(new DeleteOrderRq(2, slow, Side.BUY, 2)));
+        pipeline.submit(message(new DeleteOrderRq(3, fast, Side.BUY, 3)));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (sent.isEmpty() && System.nanoTime() < deadline)
+            Thread.sleep(1);
+        assertThat(sent).containsExactly(new OrderDeletedEvent(3, 3));
+
+        release.countDown();
+        pipeline.awaitPublished(TimeUnit.SECONDS.toNanos(10));
+        assertThat(sent).containsExactly(new OrderDeletedEvent(3, 3), new OrderDeletedEvent(2, 2));
+    }
+
+    @Test
+    void requests_that_cannot_be_journaled_are_rejected_unless_their_security_is_unknown(@TempDir Path directory)
+            throws Exception {
+        pipeline.shutdown();
+        securityRepository.addSecurity(Security.builder().isin("KNOWN-BUT-TOO-LONG").build());
+        RequestJournal journal = new RequestJournal(messageConverter, directory.resolve("request.journal").toString(),
+                RequestJournal.Sync.GROUP, 200, 1);
+        journal.open();
+        startPipeline(journal);
+
+        pipeline.submit(message(new DeleteOrderRq(1, "UNKNOWN-AND-TOO-LONG", Side.BUY, 1)));
+        pipeline.submit(message(new DeleteOrderRq(2, "KNOWN-BUT-TOO-LONG", Side.BUY, 2)));
+        pipeline.submit(message(new DeleteOrderRq(3, "SEC1", Side.BUY, 3)));
+        pipeline.awaitPublished(TimeUnit.SECONDS.toNanos(10));
+        journal.close();
+
+        assertThat(sent).containsExactlyInAnyOrder(new OrderDeletedEvent(1, 1),
+                new OrderRejectedEvent(2, 2, List.of(Message.REQUEST_NOT_JOURNALED)), new OrderDeletedEvent(3, 3));
+        verify(orderHandler, times(2)).handleDeleteOrder(any(DeleteOrderRq.class));
+        assertThat(journal.isDurable(journal.getPosition())).isTrue();
+    }
+
+    @Test
+    void a_message_is_not_released_to_its_listener_before_its_request_is_journaled() throws Exception {
+        pipeline.shutdown();
+        CountDownLatch appending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        startPipeline(new RequestJournal(messageConverter, "", RequestJournal.Sync.NONE, 0, 64) {
+            @Override
+            public long appendRecord(Object request, RecordDispatch dispatch) {
+                appending.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.appendRecord(request, dispatch);
+            }
+        });
+        TextMessage request = message(new DeleteOrderRq(1, "SEC1", Side.BUY, 1));
+        Thread listener = new Thread(() -> pipeline.submit(request));
+        listener.start();
+
+        assertThat(appending.await(10, TimeUnit.SECONDS)).isTrue();
+        listener.join(100);
+        assertThat(listener.isAlive()).isTrue();
+
+        release.countDown();
+        listener.join(TimeUnit.SECONDS.toMillis(10));
+        assertThat(listener.isAlive()).isFalse();
+        pipeline.awaitPublished(TimeUnit.SECONDS.toNanos(10));
+        assertThat(sent).containsExactly(new OrderDeletedEvent(1, 1));
+    }
+
+    @Test
+    void request_field_errors_are_found_before_matching() throws Exception {
+        EnterOrderRq rq = EnterOrderRq.createNewOrderRq(1, "SEC1", 1, LocalDateTime.now(), Side.SELL,
+                10, -5, 1, 1, 0, 20, 0);
+        pipeline.submit(message(rq));
+        pipeline.awaitPublished(TimeUnit.SECONDS.toNanos(10));
+        verify(orderHandler).handleEnterOrder(any(EnterOrderRq.class), eq(List.of(
+                Message.ORDER_PRICE_NOT_POSITIVE, Message.ORDER_MIN_EXE_QUANTITY_MORE_THAN_TOTAL_QUANTITY)));
+    }
+
+    @Test
+    void undecodable_requests_are_skipped() throws Exception {
+        TextMessage broken = mock(TextMessage.class);
+        when(broken.getStringProperty("_type")).thenReturn(EnterOrderRq.class.getName());
+        when(broken.getText()).thenThrow(new JMSException("broken"));
+        pipeline.submit(broken);
+        pipeline.submit(message(new DeleteOrderRq(2, "SEC1", Side.BUY, 2)));
+        pipeline.awaitPublished(TimeUnit.SECONDS.toNanos(10));
+        assertThat(sent).containsExactly(new OrderDeletedEvent(2, 2));
+        verify(orderHandler, never()).handleEnterOrder(any(EnterOrderRq.class), anyList());
+        assertThat(pipeline.getStatistics()).extracting(StageStatistics::processed).containsOnly(2L);
+    }
+
+    @Test
+    void matching_state_changes_are_ordered_with_the_orders_of_their_security() throws Exception {
+        pipeline.submit(message(EnterOrderRq.createNewOrderRq(1, "SEC1", 1, LocalDateTime.now(),
+                Side.BUY, 10, 1000, 1, 1, 0, 0, 0)));
+        pipeline.submit(message(new ChangingMatchingStateRq("SEC1", MatchingState.AUCTION)));
+        pipeline.submit(message(new DeleteOrderRq(3, "SEC1", Side.BUY, 1)));
+        pipeline.awaitPublished(TimeUnit.SECONDS.toNanos(10));
+
+        assertThat(sent).containsExactly(new OrderAcceptedEvent(1, 1),
+                new SecurityStateChangedEvent("SEC1", MatchingState.AUCTION), new OrderDeletedEvent(3, 1));
+    }
+
+    private TextMessage message(Object request) throws Exception {
+        TextMessage message = mock(TextMessage.class);
+        when(message.getStringProperty("_type")).thenReturn(request.getClass().getName());
+        when(message.getText()).thenReturn(objectMapper.writeValueAsString(request));
+        return message;
+    }
+}
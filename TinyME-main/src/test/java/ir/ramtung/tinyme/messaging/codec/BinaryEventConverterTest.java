@@ -0,0 +1,101 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+class BinaryEventConverterTest {
+    private final EventEncoder encoder = new EventEncoder();
+    private final EventDecoder decoder = new EventDecoder();
+
+    private Event roundTrip(Event event) {
+        return decoder.decode(encoder.encode(event));
+    }
+
+    @Test
+    void every_event_type_survives_a_round_trip() {
+        List<Event> events = List.of(
+                new OrderAcceptedEvent(1, 10),
+                new OrderActivatedEvent(2, 11),
+                new OrderDeletedEvent(3, 12),
+                new OrderUpdatedEvent(4, 13),
+                new OrderRejectedEvent(5, 14, List.of("Invalid price", "Buyer has not enough credit")),
+                new OrderExecutedEvent(6, 15, List.of(new TradeDTO("ABC", 15_700, 300, 15, 7),
+                        new TradeDTO("ABC", 15_650, 50, 15, 8))),
+                new OpeningPriceEvent("ABC", 15_700, 350),
+                new TradeEvent("ABC", 15_700, 300, 15, 7),
+                new SecurityStateChangedEvent("ABC", MatchingState.AUCTION),
+                new MatchingStateRqRejectedEvent("ABC", List.of("Unknown security ISIN"))
+        );
+        for (Event event : events)
+            assertThat(roundTrip(event)).isEqualTo(event);
+    }
+
+    @Test
+    void event_time_is_preserved() {
+        LocalDateTime time = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_456_789);
+        OrderAcceptedEvent event = new OrderAcceptedEvent(1, 10);
+        event.setTime(time);
+
+        assertThat(roundTrip(event).getTime()).isEqualTo(time);
+    }
+
+    @Test
+    void null_fields_and_non_ascii_text_are_preserved() {
+        assertThat(roundTrip(new OrderRejectedEvent(5, 14, null))).isEqualTo(new OrderRejectedEvent(5, 14, null));
+        assertThat(roundTrip(new SecurityStateChangedEvent(null, null))).isEqualTo(new SecurityStateChangedEvent(null, null));
+        OrderRejectedEvent persian = new OrderRejectedEvent(5, 14, List.of("اعتبار کافی نیست"));
+        assertThat(roundTrip(persian)).isEqualTo(persian);
+    }
+
+    @Test
+    void encoder_reuses_its_buffer_and_grows_for_large_executions() {
+        ByteBuffer first = encoder.encode(new OrderAcceptedEvent(1, 10));
+        ByteBuffer second = encoder.encode(new OrderDeletedEvent(2, 11));
+        assertThat(second.array()).isSameAs(first.array());
+
+        List<TradeDTO> trades = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++)
+            trades.add(new TradeDTO("ABC", 15_000 + i, 10, 1, 1_000 + i));
+        OrderExecutedEvent large = new OrderExecutedEvent(3, 1, trades);
+        assertThat(roundTrip(large)).isEqualTo(large);
+        assertThat(roundTrip(new OrderAcceptedEvent(4, 12))).isEqualTo(new OrderAcceptedEvent(4, 12));
+    }
+
+    @Test
+    void converter_writes_bytes_messages_tagged_with_the_event_type() throws JMSException {
+        Session session = mock(Session.class);
+        BytesMessage message = mock(BytesMessage.class);
+        when(session.createBytesMessage()).thenReturn(message);
+        OpeningPriceEvent event = new OpeningPriceEvent("ABC", 15_700, 350);
+
+        assertThat(new BinaryEventConverter().toMessage(event, session)).isSameAs(message);
+        verify(message).writeBytes(any(byte[].class), eq(0), anyInt());
+        verify(message).setStringProperty("_type", OpeningPriceEvent.class.getName());
+    }
+
+    @Test
+    void malformed_events_are_rejected() {
+        ByteBuffer encoded = encoder.encode(new OrderExecutedEvent(6, 15, List.of(new TradeDTO("ABC", 1, 1, 1, 1))));
+        ByteBuffer truncated = ByteBuffer.wrap(encoded.array(), 0, encoded.limit() - 4).slice();
+        assertThatThrownBy(() -> decoder.decode(truncated)).isInstanceOf(MessageConversionException.class);
+        assertThatThrownBy(() -> decoder.decode(ByteBuffer.wrap(new byte[] {99, 1})))
+                .isInstanceOf(MessageConversionException.class);
+    }
+}
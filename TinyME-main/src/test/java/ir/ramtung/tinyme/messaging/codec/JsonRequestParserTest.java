@@ -0,0 +1,138 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.MessagingConfig;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import jakarta.jms.JMSException;
+import jakarta.jms.TextMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JsonRequestParserTest {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SecurityRepository securityRepository;
+    private JsonRequestParser parser;
+
+    @BeforeEach
+    void setup() {
+        securityRepository = new SecurityRepository();
+        securityRepository.addSecurity(Security.builder().isin("IRO1FOLD0001").build());
+        securityRepository.addSecurity(Security.builder().isin("ABC").build());
+        parser = new JsonRequestParser(securityRepository);
+    }
+
+    @Test
+    void gateway_json_parses_the_same_as_jackson() throws Exception {
+        for (LocalDateTime entryTime : new LocalDateTime[] {
+                LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_456_789),
+                LocalDateTime.of(2024, 3, 1, 9, 30, 15),
+                LocalDateTime.of(2024, 3, 1, 9, 30),
+                LocalDateTime.of(2024, 2, 29, 23, 59, 59, 1),
+                LocalDateTime.of(1969, 12, 31, 12, 0),
+                null}) {
+            EnterOrderRq sent = EnterOrderRq.createUpdateOrderRq(11, "IRO1FOLD0001", 200, entryTime, Side.SELL,
+                    350, 15_700, 3, 4, 100, 50, 15_000);
+            String json = objectMapper.writeValueAsString(sent);
+            EnterOrderRq parsed = new EnterOrderRq();
+
+            assertThat(parser.parseEnterOrderRq(json, parsed)).isTrue();
+            assertThat(parsed).isEqualTo(objectMapper.readValue(json, EnterOrderRq.class)).isEqualTo(sent);
+        }
+        DeleteOrderRq delete = new DeleteOrderRq(7, "ABC", Side.BUY, 99, LocalDateTime.of(2024, 3, 1, 9, 30, 15));
+        DeleteOrderRq parsed = new DeleteOrderRq();
+        assertThat(parser.parseDeleteOrderRq(objectMapper.writeValueAsString(delete), parsed)).isTrue();
+        assertThat(parsed).isEqualTo(delete);
+    }
+
+    @Test
+    void iso_times_whitespace_nulls_and_unknown_fields_are_accepted() {
+        String json = """
+                { "requestType" : "NEW_ORDER", "requestId": 5, "securityIsin": "ABC",
+                  "extra": {"nested": [1, 2, {"deep": "x"}]}, "orderId": -1,
+                  "entryTime": "2024-03-01T09:30:15.5", "side": null, "quantity": 10, "flag": true }
+                """;
+        EnterOrderRq rq = new EnterOrderRq();
+
+        assertThat(parser.parseEnterOrderRq(json, rq)).isTrue();
+        assertThat(rq.getEntryTime()).isEqualTo(LocalDateTime.of(2024, 3, 1, 9, 30, 15, 500_000_000));
+        assertThat(rq.getOrderId()).isEqualTo(-1);
+        assertThat(rq.getSide()).isNull();
+        assertThat(rq.getQuantity()).isEqualTo(10);
+    }
+
+    @Test
+    void known_isins_are_interned_and_unknown_ones_are_kept() {
+        EnterOrderRq rq = new EnterOrderRq();
+        parser.parseEnterOrderRq("{\"securityIsin\":\"IRO1FOLD0001\"}", rq);
+        assertThat(rq.getSecurityIsin()).isSameAs(securityRepository.findSecurityByIsin("IRO1FOLD0001").getIsin());
+
+        parser.parseEnterOrderRq("{\"securityIsin\":\"XYZ\"}", rq);
+        assertThat(rq.getSecurityIsin()).isEqualTo("XYZ");
+    }
+
+    @Test
+    void pooled_requests_do_not_keep_fields_from_the_previous_message() {
+        EnterOrderRq rq = new EnterOrderRq();
+        parser.parseEnterOrderRq("{\"requestId\":1,\"price\":100,\"peakSize\":10,\"side\":\"BUY\"}", rq);
+        parser.parseEnterOrderRq("{\"requestId\":2}", rq);
+
+        assertThat(rq.getRequestId()).isEqualTo(2);
+        assertThat(rq.getPrice()).isZero();
+        assertThat(rq.getPeakSize()).isZero();
+        assertThat(rq.getSide()).isNull();
+    }
+
+    @Test
+    void inputs_outside_the_fast_path_are_left_to_jackson() throws JMSException {
+        EnterOrderRq rq = new EnterOrderRq();
+        assertThat(parser.parseEnterOrderRq("{\"securityIsin\":\"A\\u0042C\"}", rq)).isFalse();
+        assertThat(parser.parseEnterOrderRq("{\"price\":15700.0}", rq)).isFalse();
+        assertThat(parser.parseEnterOrderRq("{\"side\":\"buy\"}", rq)).isFalse();
+        assertThat(parser.parseEnterOrderRq("{\"price\":1", rq)).isFalse();
+        assertThat(parser.parseEnterOrderRq("{\"price\":1} trailing", rq)).isFalse();
+        assertThat(parser.parseEnterOrderRq("{\"entryTime\":\"2023-02-29T09:00\"}", rq)).isFalse();
+
+        TextMessage message = mock(TextMessage.class);
+        when(message.getStringProperty("_type")).thenReturn(EnterOrderRq.class.getName());
+        when(message.getText()).thenReturn("{\"securityIsin\":\"A\\u0042C\",\"price\":15700.0}");
+        Object decoded = new MessagingConfig().jmsMessageConverter(securityRepository).fromMessage(message, rq, null);
+        assertThat(decoded).isNotSameAs(rq).isInstanceOf(EnterOrderRq.class);
+        assertThat(((EnterOrderRq) decoded).getSecurityIsin()).isEqualTo("ABC");
+        assertThat(((EnterOrderRq) decoded).getPrice()).isEqualTo(15_700);
+    }
+
+    @Test
+    void parsing_a_gateway_message_into_a_pooled_request_allocates_next_to_nothing() throws Exception {
+        LocalDateTime start = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_456_789);
+        String[] messages = new String[1024];
+        for (int i = 0; i < messages.length; i++)
+            messages[i] = objectMapper.writeValueAsString(EnterOrderRq.createNewOrderRq(11, "IRO1FOLD0001", 200 + i,
+                    start.plusSeconds(i).plusNanos(i * 1_001L), Side.BUY, 350, 15_700, 3, 4, 0, 0, 0));
+        EnterOrderRq rq = new EnterOrderRq();
+        int count = 100_000;
+        for (int i = 0; i < count; i++)
+            parser.parseEnterOrderRq(messages[i % messages.length], rq);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < count; i++)
+            parser.parseEnterOrderRq(messages[i % messages.length], rq);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        int last = (count - 1) % messages.length;
+        assertThat(rq.getOrderId()).isEqualTo(200 + last);
+        assertThat(rq.getEntryTime()).isEqualTo(start.plusSeconds(last).plusNanos(last * 1_001L));
+        assertThat((double) allocated / count).isLessThan(8);
+    }
+}
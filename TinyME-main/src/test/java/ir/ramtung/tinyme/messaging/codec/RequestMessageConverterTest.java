@@ -0,0 +1,133 @@
+package ir.ramtung.tinyme.messaging.codec;
+
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.MessagingConfig;
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import jakarta.jms.BytesMessage;
+import jakarta.jms.JMSException;
+import jakarta.jms.TextMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RequestMessageConverterTest {
+    private final RequestMessageConverter converter =
+            new MessagingConfig().jmsMessageConverter(new SecurityRepository());
+    private final LocalDateTime entryTime = LocalDateTime.of(2024, 3, 1, 9, 30, 15, 123_456_789);
+
+    @Test
+    void new_and_update_order_requests_survive_a_binary_round_trip() {
+        EnterOrderRq newOrder = EnterOrderRq.createNewOrderRq(11, "IRO1FOLD0001", 200, entryTime, Side.SELL,
+                350, 15_700, 3, 4, 100, 50, 0);
+        EnterOrderRq updateOrder = EnterOrderRq.createUpdateOrderRq(12, "ABC", 200, entryTime, Side.BUY,
+                300, 15_600, 3, 4, 0, 0, 15_000);
+
+        assertThat(converter.decode(ByteBuffer.wrap(RequestMessageConverter.encode(newOrder)))).isEqualTo(newOrder);
+        assertThat(converter.decode(ByteBuffer.wrap(RequestMessageConverter.encode(updateOrder)))).isEqualTo(updateOrder);
+    }
+
+    @Test
+    void delete_and_matching_state_requests_survive_a_binary_round_trip() {
+        DeleteOrderRq deleteOrder = new DeleteOrderRq(7, "ABC", Side.BUY, 99, entryTime);
+        ChangingMatchingStateRq changeState = new ChangingMatchingStateRq("ABC", MatchingState.AUCTION);
+
+        assertThat(converter.decode(ByteBuffer.wrap(RequestMessageConverter.encode(deleteOrder)))).isEqualTo(deleteOrder);
+        assertThat(converter.decode(ByteBuffer.wrap(RequestMessageConverter.encode(changeState)))).isEqualTo(changeState);
+    }
+
+    @Test
+    void flyweight_reads_fields_in_place() {
+        EnterOrderRq rq = EnterOrderRq.createNewOrderRq(11, "ABC", 200, null, Side.BUY,
+                350, 15_700, 3, 4, 0, 0, 0);
+        EnterOrderRqDecoder decoder = new EnterOrderRqDecoder().wrap(ByteBuffer.wrap(RequestMessageConverter.encode(rq)), 0);
+
+        assertThat(decoder.orderId()).isEqualTo(200);
+        assertThat(decoder.price()).isEqualTo(15_700);
+        assertThat(decoder.side()).isEqualTo(Side.BUY);
+        assertThat(decoder.entryTime()).isNull();
+        assertThat(decoder.securityIsinEquals("ABC")).isTrue();
+        assertThat(decoder.securityIsinEquals("ABD")).isFalse();
+    }
+
+    @Test
+    void binary_requests_fill_the_pooled_request_with_interned_isins_without_allocating() {
+        SecurityRepository securityRepository = new SecurityRepository();
+        securityRepository.addSecurity(Security.builder().isin("IRO1FOLD0001").build());
+        RequestMessageConverter interning = new MessagingConfig().jmsMessageConverter(securityRepository);
+        ByteBuffer[] messages = new ByteBuffer[1024];
+        for (int i = 0; i < messages.length; i++)
+            messages[i] = ByteBuffer.wrap(RequestMessageConverter.encode(EnterOrderRq.createNewOrderRq(i, "IRO1FOLD0001",
+                    200 + i, entryTime.plusSeconds(i).plusNanos(i), Side.BUY, 350, 15_700, 3, 4, 0, 0, 0)));
+        EnterOrderRq pooled = new EnterOrderRq();
+        int count = 100_000;
+        for (int i = 0; i < count; i++)
+            interning.decode(messages[i % messages.length], pooled, null);
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < count; i++)
+            interning.decode(messages[i % messages.length], pooled, null);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        int last = (count - 1) % messages.length;
+        assertThat(interning.decode(messages[last], pooled, null)).isSameAs(pooled);
+        assertThat(pooled.getSecurityIsin()).isSameAs(securityRepository.findSecurityByIsin("IRO1FOLD0001").getIsin());
+        assertThat(pooled.getEntryTime()).isEqualTo(entryTime.plusSeconds(last).plusNanos(last));
+        assertThat((double) allocated / count).isLessThan(8);
+
+        EnterOrderRq unknown = EnterOrderRq.createNewOrderRq(1, "XYZ", 1, null, Side.SELL, 1, 1, 1, 1, 0, 0, 0);
+        assertThat(interning.decode(ByteBuffer.wrap(RequestMessageConverter.encode(unknown)), pooled, null)).isEqualTo(unknown);
+    }
+
+    @Test
+    void bytes_messages_are_decoded_as_binary() throws JMSException {
+        DeleteOrderRq deleteOrder = new DeleteOrderRq(7, "ABC", Side.SELL, 99, entryTime);
+        byte[] payload = RequestMessageConverter.encode(deleteOrder);
+        BytesMessage message = mock(BytesMessage.class);
+        when(message.getBodyLength()).thenReturn((long) payload.length);
+        when(message.readBytes(any(byte[].class), anyInt())).thenAnswer(invocation -> {
+            System.arraycopy(payload, 0, invocation.getArgument(0), 0, payload.length);
+            return payload.length;
+        });
+
+        assertThat(converter.fromMessage(message)).isEqualTo(deleteOrder);
+    }
+
+    @Test
+    void text_messages_are_still_decoded_as_json() throws JMSException {
+        TextMessage message = mock(TextMessage.class);
+        when(message.getStringProperty("_type")).thenReturn(ChangingMatchingStateRq.class.getName());
+        when(message.getText()).thenReturn("{\"securityIsin\":\"ABC\",\"targetState\":\"CONTINUOUS\"}");
+
+        assertThat(converter.fromMessage(message)).isEqualTo(new ChangingMatchingStateRq("ABC", MatchingState.CONTINUOUS));
+    }
+
+    @Test
+    void malformed_binary_requests_are_rejected() {
+        byte[] payload = RequestMessageConverter.encode(new ChangingMatchingStateRq("ABC", MatchingState.AUCTION));
+        byte[] unknown = payload.clone();
+        unknown[0] = 42;
+
+        assertThatThrownBy(() -> converter.decode(ByteBuffer.wrap(unknown)))
+                .isInstanceOf(MessageConversionException.class).hasMessageContaining("template 42");
+        assertThatThrownBy(() -> converter.decode(ByteBuffer.wrap(payload, 0, 5).slice()))
+                .isInstanceOf(MessageConversionException.class).hasMessageContaining("Truncated");
+        assertThatThrownBy(() -> RequestMessageConverter.encode(new ChangingMatchingStateRq("TOO-LONG-ISIN-CODE", MatchingState.AUCTION)))
+                .isInstanceOf(MessageConversionException.class);
+    }
+}
@@ -0,0 +1,222 @@
+package ir.ramtung.tinyme.messaging.gateway;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import ir.ramtung.tinyme.domain.entity.Broker;
+import ir.ramtung.tinyme.domain.entity.Security;
+import ir.ramtung.tinyme.domain.entity.Shareholder;
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.domain.service.*;
+import ir.ramtung.tinyme.domain.service.validation.Validation;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.Message;
+import ir.ramtung.tinyme.messaging.MessagingConfig;
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.codec.EventDecoder;
+import ir.ramtung.tinyme.messaging.codec.RequestMessageConverter;
+import ir.ramtung.tinyme.messaging.event.*;
+import ir.ramtung.tinyme.messaging.pipeline.RequestPipeline;
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import ir.ramtung.tinyme.repository.BrokerRepository;
+import ir.ramtung.tinyme.repository.RequestJournal;
+import ir.ramtung.tinyme.repository.SecurityRepository;
+import ir.ramtung.tinyme.repository.ShareholderRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+@Timeout(10)
+class OrderEntryGatewayTest {
+    private record Report(long sequence, Event event) {}
+
+    @Autowired
+    SecurityRepository securityRepository;
+    @Autowired
+    BrokerRepository brokerRepository;
+    @Autowired
+    ShareholderRepository shareholderRepository;
+    @Autowired
+    ContinuousMatcher continuousMatcher;
+    @Autowired
+    AuctionMatcher auctionMatcher;
+    @Autowired
+    StopLimitOrderActivator stopLimitOrderActivator;
+    @Autowired
+    Validation validation;
+    private final List<Event> published = new CopyOnWriteArrayList<>();
+    private final List<SocketChannel> clients = new CopyOnWriteArrayList<>();
+    private IsinShardedExecutor shardedExecutor;
+    private RequestPipeline pipeline;
+    private OrderEntryGateway gateway;
+
+    @BeforeEach
+    void startGateway() throws IOException {
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        Security security = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(security);
+        Shareholder shareholder = Shareholder.builder().shareholderId(1).build();
+        shareholder.incPosition(security, 100_000);
+        shareholderRepository.addShareholder(shareholder);
+        brokerRepository.addBroker(Broker.builder().brokerId(1).credit(100_000_000L).build());
+
+        EventPublisher eventPublisher = new EventPublisher(null, null, "RS", 16, 16, EventPublisher.Overflow.BLOCK, "unused", 0) {
+            @Override
+            protected void send(Event event) {
+                published.add(event);
+            }
+        };
+        OrderHandler orderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository,
+                new OrderEventPublisher(eventPublisher), continuousMatcher, auctionMatcher, stopLimitOrderActivator,
+                validation, eventPublisher);
+        shardedExecutor = new IsinShardedExecutor(2);
+        RequestMessageConverter messageConverter = new MessagingConfig().jmsMessageConverter(securityRepository);
+        pipeline = new RequestPipeline(messageConverter, validation, orderHandler, mock(MatcherStateHandler.class),
+                shardedExecutor, eventPublisher, new RequestJournal(messageConverter, "", RequestJournal.Sync.NONE, 0, 64),
+                securityRepository, 16, 0);
+        pipeline.start();
+        gateway = new OrderEntryGateway(pipeline, 0);
+        gateway.start(new InetSocketAddress("127.0.0.1", 0));
+    }
+
+    @AfterEach
+    void stopGateway() throws Exception {
+        for (SocketChannel client : clients)
+            client.close();
+        gateway.shutdown();
+        pipeline.shutdown();
+        shardedExecutor.shutdown();
+    }
+
+    @Test
+    void execution_reports_come_back_on_the_session_in_sequence() throws IOException {
+        SocketChannel client = connect();
+        send(client, 1, newOrder(1, 100, Side.BUY, 300));
+        send(client, 2, newOrder(2, 200, Side.SELL, 100));
+
+        assertThat(receive(client)).isEqualTo(new Report(1, new OrderAcceptedEvent(1, 100)));
+        assertThat(receive(client)).isEqualTo(new Report(2, new OrderAcceptedEvent(2, 200)));
+        assertThat(receive(client)).isEqualTo(new Report(3, new OrderExecutedEvent(2, 200,
+                List.of(new TradeDTO("ABC", 15000, 100, 100, 200)))));
+        assertThat(published).containsExactly(new OrderAcceptedEvent(1, 100), new OrderAcceptedEvent(2, 200),
+                new OrderExecutedEvent(2, 200, List.of(new TradeDTO("ABC", 15000, 100, 100, 200))));
+    }
+
+    @Test
+    void cancels_are_reported_and_sessions_are_sequenced_independently() throws IOException {
+        SocketChannel first = connect();
+        SocketChannel second = connect();
+        send(first, 1, newOrder(1, 100, Side.BUY, 300));
+        assertThat(receive(first)).isEqualTo(new Report(1, new OrderAcceptedEvent(1, 100)));
+
+        send(second, 1, new DeleteOrderRq(2, "ABC", Side.BUY, 100));
+        assertThat(receive(second)).isEqualTo(new Report(1, new OrderDeletedEvent(2, 100)));
+        assertThat(receive(first)).isEqualTo(new Report(2, new OrderDeletedEvent(2, 100)));
+        assertThat(gateway.getSessionCount()).isEqualTo(2);
+    }
+
+    @Test
+    void owners_of_resting_orders_are_told_about_fills_from_other_sessions() throws IOException {
+        SocketChannel maker = connect();
+        SocketChannel taker = connect();
+        send(maker, 1, newOrder(1, 100, Side.BUY, 300));
+        assertThat(receive(maker)).isEqualTo(new Report(1, new OrderAcceptedEvent(1, 100)));
+
+        send(taker, 1, newOrder(2, 200, Side.SELL, 100));
+        send(taker, 2, newOrder(3, 300, Side.SELL, 200));
+
+        assertThat(receive(taker)).isEqualTo(new Report(1, new OrderAcceptedEvent(2, 200)));
+        assertThat(receive(taker)).isEqualTo(new Report(2, new OrderExecutedEvent(2, 200,
+                List.of(new TradeDTO("ABC", 15000, 100, 100, 200)))));
+        assertThat(receive(maker)).isEqualTo(new Report(2, new TradeEvent("ABC", 15000, 100, 100, 200)));
+        assertThat(receive(maker)).isEqualTo(new Report(3, new TradeEvent("ABC", 15000, 200, 100, 300)));
+
+        send(taker, 3, new DeleteOrderRq(4, "ABC", Side.BUY, 100));
+        assertThat(receive(taker).event()).isInstanceOf(OrderAcceptedEvent.class);
+        assertThat(receive(taker).event()).isInstanceOf(OrderExecutedEvent.class);
+        assertThat(receive(taker)).isEqualTo(new Report(5, new OrderRejectedEvent(4, 100,
+                List.of(Message.ORDER_ID_NOT_FOUND))));
+    }
+
+    @Test
+    void retransmitted_frames_are_ignored() throws IOException {
+        SocketChannel client = connect();
+        send(client, 1, newOrder(1, 100, Side.BUY, 300));
+        send(client, 1, newOrder(1, 100, Side.BUY, 300));
+        send(client, 2, new DeleteOrderRq(2, "ABC", Side.BUY, 100));
+
+        assertThat(receive(client)).isEqualTo(new Report(1, new OrderAcceptedEvent(1, 100)));
+        assertThat(receive(client)).isEqualTo(new Report(2, new OrderDeletedEvent(2, 100)));
+    }
+
+    @Test
+    void sequence_gaps_close_the_session() throws IOException {
+        SocketChannel client = connect();
+        send(client, 2, newOrder(1, 100, Side.BUY, 300));
+        assertThat(client.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+    }
+
+    @Test
+    void matching_state_changes_are_not_accepted() throws IOException {
+        SocketChannel client = connect();
+        send(client, 1, new ChangingMatchingStateRq("ABC", MatchingState.AUCTION));
+        assertThat(client.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+    }
+
+    private EnterOrderRq newOrder(long requestId, long orderId, Side side, int quantity) {
+        return EnterOrderRq.createNewOrderRq(requestId, "ABC", orderId, LocalDateTime.now(), side, quantity, 15000,
+                1, 1, 0, 0, 0);
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel client = SocketChannel.open(new InetSocketAddress("127.0.0.1", gateway.getLocalPort()));
+        clients.add(client);
+        return client;
+    }
+
+    private void send(SocketChannel client, long sequence, Object request) throws IOException {
+        byte[] payload = RequestMessageConverter.encode(request);
+        ByteBuffer frame = ByteBuffer.allocate(OrderEntryGateway.FRAME_HEADER_LENGTH + payload.length);
+        frame.putInt(payload.length).putLong(sequence).put(payload).flip();
+        while (frame.hasRemaining())
+            client.write(frame);
+    }
+
+    private Report receive(SocketChannel client) throws IOException {
+        ByteBuffer header = readFully(client, OrderEntryGateway.FRAME_HEADER_LENGTH);
+        int length = header.getInt();
+        long sequence = header.getLong();
+        return new Report(sequence, new EventDecoder().decode(readFully(client, length)));
+    }
+
+    private ByteBuffer readFully(SocketChannel client, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (client.read(buffer) < 0)
+                throw new IOException("Gateway closed the session");
+        }
+        return buffer.flip();
+    }
+}
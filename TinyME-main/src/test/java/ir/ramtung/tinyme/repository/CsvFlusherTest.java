@@ -0,0 +1,129 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.IsinShardedExecutor;
+import ir.ramtung.tinyme.messaging.MessagingConfig;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvFlusherTest {
+    @TempDir
+    Path directory;
+    private final LocalDateTime time = LocalDateTime.of(2024, 1, 1, 9, 0);
+    private final SecurityRepository securityRepository = new SecurityRepository();
+    private final BrokerRepository brokerRepository = new BrokerRepository();
+    private final ShareholderRepository shareholderRepository = new ShareholderRepository();
+    private IsinShardedExecutor shardedExecutor;
+    private RequestJournal journal;
+    private CsvFlusher flusher;
+    private Security sec1;
+    private Security sec2;
+    private Broker broker;
+    private Shareholder shareholder;
+
+    @BeforeEach
+    void setup() throws Exception {
+        sec1 = Security.builder().isin("SEC1").build();
+        sec2 = Security.builder().isin("SEC2").tickSize(10).orderBook(OrderBook.withPriceLadder(10, 64)).build();
+        securityRepository.addSecurities(List.of(sec1, sec2));
+        broker = Broker.builder().brokerId(1).name("broker1").credit(1_000_000L).build();
+        brokerRepository.addBroker(broker);
+        shareholder = Shareholder.builder().shareholderId(1).name("shareholder1").build();
+        shareholder.incPosition(sec1, 100);
+        shareholder.incPosition(sec2, 200);
+        shareholderRepository.addShareholder(shareholder);
+        sec1.getOrderBook().enqueue(new Order(1, sec1, Side.BUY, 10, 15000, broker, shareholder, time, 0));
+
+        shardedExecutor = new IsinShardedExecutor(2);
+        journal = new RequestJournal(new MessagingConfig().jmsMessageConverter(securityRepository),
+                directory.resolve("request.journal").toString(), RequestJournal.Sync.NONE, 200, 1);
+        journal.open();
+        flusher = new CsvFlusher(securityRepository, brokerRepository, shareholderRepository, shardedExecutor,
+                journal, directory, 0, 2);
+        flusher.start();
+    }
+
+    @AfterEach
+    void teardown() throws Exception {
+        flusher.shutdown(5_000);
+        shardedExecutor.shutdown();
+        journal.close();
+    }
+
+    @Test
+    void only_changed_securities_are_rewritten() throws Exception {
+        flusher.markAllDirty();
+        assertThat(flusher.flush(false)).isEqualTo(7);
+        Path sec1Book = directory.resolve("orderbook/SEC1.csv");
+        Path sec1Positions = directory.resolve("position/SEC1.csv");
+        Files.setLastModifiedTime(sec1Book, FileTime.fromMillis(0));
+        Files.setLastModifiedTime(sec1Positions, FileTime.fromMillis(0));
+        assertThat(flusher.flush(false)).isEqualTo(-1);
+
+        journal.append(new DeleteOrderRq(1, "SEC2", Side.SELL, 2), position -> shardedExecutor.execute("SEC2", () -> {
+            sec2.getOrderBook().enqueue(new Order(2, sec2, Side.SELL, 20, 15010, broker, shareholder, time, 0));
+            shareholder.decPosition(sec2, 20);
+            broker.increaseCreditBy(300_200);
+        }));
+        int generation = journal.getGeneration();
+        assertThat(flusher.flush(false)).isEqualTo(3);
+
+        assertThat(Files.getLastModifiedTime(sec1Book).toMillis()).isZero();
+        assertThat(Files.getLastModifiedTime(sec1Positions).toMillis()).isZero();
+        assertThat(directory.resolve("request.journal." + generation)).doesNotExist();
+        assertThat(Files.readString(directory.resolve(CsvFlusher.COMMIT_FILE))).isEqualTo(Integer.toString(journal.getGeneration()));
+
+        SecurityRepository loadedSecurities = new SecurityRepository();
+        BrokerRepository loadedBrokers = new BrokerRepository();
+        ShareholderRepository loadedShareholders = new ShareholderRepository();
+        assertThat(new ParallelCsvLoader(loadedBrokers, loadedShareholders, loadedSecurities, 2).loadAll(directory)).isEqualTo(2);
+        Security loadedSec2 = loadedSecurities.findSecurityByIsin("SEC2");
+        assertThat(loadedSec2.getOrderBook().getPriceLadderTicks()).isEqualTo(64);
+        assertThat(loadedSec2.getOrderBook().findByOrderId(Side.SELL, 2).getEntryTime()).isEqualTo(time);
+        assertThat(loadedSecurities.findSecurityByIsin("SEC1").getOrderBook().findByOrderId(Side.BUY, 1)).isNotNull();
+        assertThat(loadedBrokers.findBrokerById(1).getCredit()).isEqualTo(1_300_200L);
+        assertThat(loadedShareholders.findShareholderById(1).getPositions())
+                .containsEntry(loadedSecurities.findSecurityByIsin("SEC1"), 100)
+                .containsEntry(loadedSec2, 180);
+    }
+
+    @Test
+    void shutdown_flushes_the_remaining_changes() throws Exception {
+        journal.append(new DeleteOrderRq(1, "SEC1", Side.BUY, 1), position -> shardedExecutor.execute("SEC1",
+                () -> sec1.getOrderBook().removeByOrderId(Side.BUY, 1)));
+        shardedExecutor.shutdown();
+
+        assertThat(flusher.shutdown(5_000)).isTrue();
+
+        assertThat(Files.readAllLines(directory.resolve("orderbook/SEC1.csv"))).hasSize(1);
+        assertThat(directory.resolve("orderbook/SEC2.csv")).doesNotExist();
+        assertThat(directory.resolve("broker.csv")).exists();
+    }
+
+    @Test
+    void pending_files_are_kept_only_when_their_flush_committed() throws Exception {
+        Path books = Files.createDirectory(directory.resolve(ParallelCsvLoader.ORDER_BOOK_DIRECTORY));
+        Files.writeString(books.resolve("SEC1.csv"), "old");
+        Files.writeString(books.resolve("SEC1.csv.pending-3"), "committed");
+        Files.writeString(books.resolve("SEC2.csv.pending-4"), "torn");
+        Files.writeString(directory.resolve(CsvFlusher.COMMIT_FILE), "3");
+
+        assertThat(CsvFlusher.recoverCommitted(directory)).isEqualTo(3);
+
+        assertThat(Files.readString(books.resolve("SEC1.csv"))).isEqualTo("committed");
+        try (var files = Files.list(books)) {
+            assertThat(files.map(file -> file.getFileName().toString())).containsExactly("SEC1.csv");
+        }
+    }
+}
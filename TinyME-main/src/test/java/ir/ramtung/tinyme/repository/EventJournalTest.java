@@ -0,0 +1,97 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.messaging.TradeDTO;
+import ir.ramtung.tinyme.messaging.event.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventJournalTest {
+    @TempDir
+    Path directory;
+    private final LocalDateTime time = LocalDateTime.of(2024, 1, 1, 9, 0);
+    private EventJournal journal;
+
+    @AfterEach
+    void teardown() throws Exception {
+        if (journal != null)
+            journal.close();
+    }
+
+    @Test
+    void sequence_ranges_replay_across_segments_and_restarts() throws Exception {
+        journal = open();
+        List<Event> events = new ArrayList<>();
+        for (int i = 1; i <= 30_000; i++) {
+            Event event = i % 3 == 0
+                    ? new OrderExecutedEvent(i, i, List.of(new TradeDTO("ABC", 15000, 10, i, i + 1)))
+                    : new OrderAcceptedEvent(i, i);
+            event.setTime(time.plusNanos(i));
+            events.add(event);
+            assertThat(journal.append(event)).isEqualTo(i);
+        }
+        assertThat(directory.resolve("event.journal").toFile().length()).isGreaterThan(1 << 20);
+
+        assertThat(replay(1, 4)).containsExactlyElementsOf(numbered(events, 1, 4));
+        assertThat(replay(2047, 2051)).containsExactlyElementsOf(numbered(events, 2047, 2051));
+        assertThat(replay(29_990, 40_000)).containsExactlyElementsOf(numbered(events, 29_990, 30_001));
+        assertThat(replay(40_000, 50_000)).isEmpty();
+
+        journal.close();
+        journal = open();
+        assertThat(journal.getLastSequence()).isEqualTo(30_000);
+        Event next = new TradeEvent("ABC", 15000, 5, 1, 2);
+        assertThat(journal.append(next)).isEqualTo(30_001);
+        assertThat(replay(30_000, 30_002)).containsExactly("30000 " + events.get(29_999), "30001 " + next);
+        assertThat(replay(12_345, 12_346)).containsExactly("12345 " + events.get(12_344));
+    }
+
+    @Test
+    void a_torn_tail_is_dropped_on_reopen() throws Exception {
+        journal = open();
+        for (int i = 1; i <= 3; i++)
+            journal.append(new OrderAcceptedEvent(i, i));
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("event.journal").toFile(), "rw")) {
+            long lastPayload = 2 * (16 + 30) + 16 + 20;
+            file.seek(lastPayload);
+            int original = file.read();
+            file.seek(lastPayload);
+            file.write(original ^ 0x01);
+        }
+
+        journal = open();
+
+        assertThat(journal.getLastSequence()).isEqualTo(2);
+        assertThat(journal.append(new OrderAcceptedEvent(9, 9))).isEqualTo(3);
+        assertThat(replay(1, 10)).containsExactly("1 " + new OrderAcceptedEvent(1, 1),
+                "2 " + new OrderAcceptedEvent(2, 2), "3 " + new OrderAcceptedEvent(9, 9));
+    }
+
+    private EventJournal open() throws Exception {
+        EventJournal opened = new EventJournal(directory.resolve("event.journal").toString(), 1, 0);
+        opened.open();
+        return opened;
+    }
+
+    private List<String> replay(long from, long to) throws Exception {
+        List<String> replayed = new ArrayList<>();
+        journal.replay(from, to, (event, sequence) -> replayed.add(sequence + " " + event));
+        return replayed;
+    }
+
+    private static List<String> numbered(List<Event> events, int from, int to) {
+        List<String> numbered = new ArrayList<>();
+        for (int sequence = from; sequence < to; sequence++)
+            numbered.add(sequence + " " + events.get(sequence - 1));
+        return numbered;
+    }
+}
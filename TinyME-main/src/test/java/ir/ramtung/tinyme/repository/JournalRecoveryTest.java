@@ -0,0 +1,204 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.*;
+import ir.ramtung.tinyme.domain.service.validation.Validation;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.MessagingConfig;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.event.OrderActivatedEvent;
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+class JournalRecoveryTest {
+    @Autowired
+    SecurityRepository securityRepository;
+    @Autowired
+    BrokerRepository brokerRepository;
+    @Autowired
+    ShareholderRepository shareholderRepository;
+    @Autowired
+    ContinuousMatcher continuousMatcher;
+    @Autowired
+    AuctionMatcher auctionMatcher;
+    @Autowired
+    StopLimitOrderActivator stopLimitOrderActivator;
+    @Autowired
+    Validation validation;
+    @TempDir
+    Path directory;
+    private final List<Event> published = new ArrayList<>();
+    private EventPublisher eventPublisher;
+    private OrderHandler orderHandler;
+    private MatcherStateHandler matcherStateHandler;
+    private RequestJournal journal;
+
+    @BeforeEach
+    void setup() {
+        eventPublisher = new EventPublisher(null, null, "RS", 16, 16, EventPublisher.Overflow.BLOCK, "unused", 0) {
+            @Override
+            protected void send(Event event) {
+                published.add(event);
+            }
+        };
+        orderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository,
+                new OrderEventPublisher(eventPublisher), continuousMatcher, auctionMatcher, stopLimitOrderActivator,
+                validation, eventPublisher);
+        matcherStateHandler = new MatcherStateHandler(securityRepository, eventPublisher, continuousMatcher,
+                auctionMatcher, stopLimitOrderActivator);
+        loadInitialState();
+    }
+
+    @AfterEach
+    void closeJournal() throws Exception {
+        journal.close();
+    }
+
+    @Test
+    void replaying_the_journal_rebuilds_books_credits_and_positions() throws Exception {
+        journal = openJournal();
+        LocalDateTime time = LocalDateTime.of(2024, 1, 1, 9, 0);
+        List<Object> requests = List.of(
+                EnterOrderRq.createNewOrderRq(1, "ABC", 1, time, Side.BUY, 300, 15000, 1, 1, 0, 0, 0),
+                EnterOrderRq.createNewOrderRq(2, "ABC", 2, time.plusSeconds(1), Side.BUY, 200, 15800, 1, 1, 0, 0, 15500),
+                EnterOrderRq.createNewOrderRq(3, "ABC", 3, time.plusSeconds(2), Side.SELL, 500, 15600, 2, 2, 100, 0, 0),
+                EnterOrderRq.createNewOrderRq(4, "ABC", 4, time.plusSeconds(3), Side.BUY, 100, 15600, 1, 1, 0, 0, 0),
+                EnterOrderRq.createNewOrderRq(5, "ABC", 5, time.plusSeconds(4), Side.SELL, 100, 14900, 2, 2, 0, 0, 0),
+                new DeleteOrderRq(6, "ABC", Side.BUY, 1),
+                new ChangingMatchingStateRq("ABC", MatchingState.AUCTION),
+                EnterOrderRq.createNewOrderRq(7, "ABC", 7, time.plusSeconds(5), Side.BUY, 50, 15700, 1, 1, 0, 0, 0),
+                EnterOrderRq.createNewOrderRq(8, "ABC", 8, time.plusSeconds(6), Side.SELL, 20, 15650, 2, 2, 0, 0, 0));
+        for (Object request : requests)
+            journal.append(request, position -> handle(request));
+        List<String> live = describeState();
+        assertThat(published).hasAtLeastOneElementOfType(OrderActivatedEvent.class);
+        journal.close();
+
+        loadInitialState();
+        journal = openJournal();
+        int replayed = new JournalRecovery(journal, orderHandler, matcherStateHandler, eventPublisher).recover();
+
+        assertThat(replayed).isEqualTo(requests.size());
+        assertThat(describeState()).isEqualTo(live);
+    }
+
+    @Test
+    void replayed_events_are_not_published_again() throws Exception {
+        journal = openJournal();
+        Object request = EnterOrderRq.createNewOrderRq(1, "ABC", 1, LocalDateTime.now(), Side.BUY, 300, 15000, 1, 1, 0, 0, 0);
+        journal.append(request, position -> handle(request));
+        journal.close();
+        published.clear();
+
+        loadInitialState();
+        journal = openJournal();
+        new JournalRecovery(journal, orderHandler, matcherStateHandler, eventPublisher).recover();
+
+        assertThat(published).isEmpty();
+        assertThat(securityRepository.findSecurityByIsin("ABC").getOrderBook().findByOrderId(Side.BUY, 1)).isNotNull();
+    }
+
+    @Test
+    void replay_imposes_the_credit_decisions_recorded_in_the_journal() throws Exception {
+        journal = openJournal();
+        Object accepted = EnterOrderRq.createNewOrderRq(1, "ABC", 1, LocalDateTime.now(), Side.BUY, 300, 15000, 1, 1, 0, 0, 0);
+        Object unrecorded = EnterOrderRq.createNewOrderRq(2, "ABC", 2, LocalDateTime.now(), Side.BUY, 300, 15000, 1, 1, 0, 0, 0);
+        CreditDecisions decisions = CreditDecisions.recording();
+        long[] record = new long[1];
+        journal.appendRecord(accepted, (position, journalRecord) -> record[0] = journalRecord);
+        decisions.during(() -> handle(accepted));
+        journal.appendOutcome(record[0], decisions);
+        journal.append(unrecorded, position -> handle(unrecorded));
+        assertThat(decisions.size()).isPositive();
+        journal.close();
+
+        loadInitialState(1_000_000L);
+        journal = openJournal();
+        int replayed = new JournalRecovery(journal, orderHandler, matcherStateHandler, eventPublisher).recover();
+
+        assertThat(replayed).isEqualTo(2);
+        OrderBook book = securityRepository.findSecurityByIsin("ABC").getOrderBook();
+        assertThat(book.findByOrderId(Side.BUY, 1)).isNotNull();
+        assertThat(book.findByOrderId(Side.BUY, 2)).isNull();
+    }
+
+    private void handle(Object request) {
+        if (request instanceof EnterOrderRq enterOrderRq)
+            orderHandler.handleEnterOrder(enterOrderRq);
+        else if (request instanceof DeleteOrderRq deleteOrderRq)
+            orderHandler.handleDeleteOrder(deleteOrderRq);
+        else
+            matcherStateHandler.handleChangingMatchingStateRq((ChangingMatchingStateRq) request);
+    }
+
+    private RequestJournal openJournal() throws Exception {
+        RequestJournal opened = new RequestJournal(new MessagingConfig().jmsMessageConverter(securityRepository),
+                directory.resolve("request.journal").toString(), RequestJournal.Sync.GROUP, 200, 1);
+        opened.open();
+        return opened;
+    }
+
+    private void loadInitialState() {
+        loadInitialState(100_000_000L);
+    }
+
+    private void loadInitialState(long credit) {
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        Security security = Security.builder().isin("ABC").build();
+        securityRepository.addSecurity(security);
+        for (long id = 1; id <= 2; id++) {
+            brokerRepository.addBroker(Broker.builder().brokerId(id).credit(credit).build());
+            Shareholder shareholder = Shareholder.builder().shareholderId(id).build();
+            shareholder.incPosition(security, 10_000);
+            shareholderRepository.addShareholder(shareholder);
+        }
+    }
+
+    private List<String> describeState() {
+        List<String> lines = new ArrayList<>();
+        for (Security security : securityRepository.allSecurities()) {
+            lines.add("security " + security.getIsin() + " " + security.getMatchingState() + " "
+                    + security.getLastTradedPrice() + " " + security.getOpeningPrice());
+            for (OrderBook book : List.of(security.getOrderBook(), security.getStopLimitOrderBook())) {
+                for (Order order : book.getBuyQueue())
+                    lines.add(describe(order));
+                for (Order order : book.getSellQueue())
+                    lines.add(describe(order));
+            }
+        }
+        for (Broker broker : brokerRepository.allBrokers())
+            lines.add("broker " + broker.getBrokerId() + " " + broker.getCredit());
+        for (Shareholder shareholder : shareholderRepository.allShareholders())
+            shareholder.getPositions().forEach((security, position) ->
+                    lines.add("position " + shareholder.getShareholderId() + " " + security.getIsin() + " " + position));
+        return lines;
+    }
+
+    private static String describe(Order order) {
+        return "order " + order.getOrderId() + " " + order.getClass().getSimpleName() + " " + order.getSide() + " "
+                + order.getQuantity() + "@" + order.getPrice() + " " + order.getEntryTime();
+    }
+}
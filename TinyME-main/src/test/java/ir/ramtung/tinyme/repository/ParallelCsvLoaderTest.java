@@ -0,0 +1,112 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelCsvLoaderTest {
+    private static final String ORDER_HEADER = "orderId,isin,side,quantity,price,brokerId,shareholderId,entryTime,peakSize,displayedQuantity,minimumExecutionQuantity,stopPrice,stopLimitRequestId";
+    @TempDir
+    Path directory;
+    private final BrokerRepository brokerRepository = new BrokerRepository();
+    private final ShareholderRepository shareholderRepository = new ShareholderRepository();
+    private final SecurityRepository securityRepository = new SecurityRepository();
+    private ParallelCsvLoader loader;
+
+    @BeforeEach
+    void setup() throws IOException {
+        loader = new ParallelCsvLoader(brokerRepository, shareholderRepository, securityRepository, 4);
+        Files.write(directory.resolve("broker.csv"), List.of("brokerId,name,credit", "1,broker1,100000000", "2,broker2,250"));
+        Files.write(directory.resolve("shareholder.csv"), List.of("shareholderId,name", "1,shareholder1", "2,shareholder2"));
+        Files.write(directory.resolve("security.csv"), List.of("isin,tickSize,lotSize,priceLadderTicks",
+                "SEC1,1,1,4096", "SEC2,10,5,0", "SEC3,1,1"));
+        Files.write(directory.resolve("position.csv"), List.of("shareholderId,isin,positions",
+                "1,SEC1,1000", "1,SEC2,800", "2,SEC1,100"));
+        Files.createDirectory(directory.resolve(ParallelCsvLoader.ORDER_BOOK_DIRECTORY));
+    }
+
+    @Test
+    void reference_data_and_per_isin_books_are_loaded() throws Exception {
+        writeOrderBook("SEC1", List.of(
+                "1,SEC1,BUY,304,15700,1,1,2024-02-23T10:59:54.970,0,0,0,0,0",
+                "2,SEC1,BUY,43,15500,1,2,2024-02-23T10:59:55,0,0,10,0,0",
+                "3,SEC1,SELL,500,15800,2,2,2024-02-23T11:00,100,40,0,0,0",
+                "4,SEC1,BUY,200,15900,1,1,2024-02-23T11:01:02.123456789,0,0,0,15850,7"));
+        writeOrderBook("SEC2", List.of("5,SEC2,SELL,50,15000,2,1,2024-02-23T11:02:03.5,0,0,0,0,0"));
+
+        int loaded = loader.loadAll(directory);
+
+        assertThat(loaded).isEqualTo(5);
+        assertThat(brokerRepository.findBrokerById(2).getCredit()).isEqualTo(250);
+        assertThat(shareholderRepository.findShareholderById(2).getName()).isEqualTo("shareholder2");
+        Security sec1 = securityRepository.findSecurityByIsin("SEC1");
+        Security sec2 = securityRepository.findSecurityByIsin("SEC2");
+        assertThat(sec1.getOrderBook().getPriceLadderTicks()).isEqualTo(4096);
+        assertThat(sec2.getTickSize()).isEqualTo(10);
+        assertThat(sec2.getLotSize()).isEqualTo(5);
+        assertThat(securityRepository.findSecurityByIsin("SEC3").getOrderBook().getPriceLadderTicks()).isZero();
+        assertThat(shareholderRepository.findShareholderById(1).getPositions()).containsEntry(sec1, 1000).containsEntry(sec2, 800);
+
+        assertThat(sec1.getOrderBook().getBuyQueue()).extracting(Order::getOrderId).containsExactly(1L, 2L);
+        assertThat(sec1.getOrderBook().findByOrderId(Side.BUY, 2).getMinimumExecutionQuantity()).isEqualTo(10);
+        assertThat(sec1.getOrderBook().findByOrderId(Side.BUY, 2).getEntryTime())
+                .isEqualTo(LocalDateTime.of(2024, 2, 23, 10, 59, 55));
+        IcebergOrder iceberg = (IcebergOrder) sec1.getOrderBook().findByOrderId(Side.SELL, 3);
+        assertThat(iceberg.getTotalQuantity()).isEqualTo(500);
+        assertThat(iceberg.getDisplayedQuantity()).isEqualTo(40);
+        StopLimitOrder stopLimitOrder = (StopLimitOrder) sec1.getStopLimitOrderBook().findByOrderId(Side.BUY, 4);
+        assertThat(stopLimitOrder.getStopPrice()).isEqualTo(15850);
+        assertThat(stopLimitOrder.getStopLimitRequestID()).isEqualTo(7);
+        assertThat(stopLimitOrder.getEntryTime()).isEqualTo(LocalDateTime.of(2024, 2, 23, 11, 1, 2, 123_456_789));
+        assertThat(sec2.getOrderBook().findByOrderId(Side.SELL, 5).getEntryTime())
+                .isEqualTo(LocalDateTime.of(2024, 2, 23, 11, 2, 3, 500_000_000));
+    }
+
+    @Test
+    void a_legacy_order_book_larger_than_a_chunk_keeps_its_order() throws Exception {
+        int count = 150_000;
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(directory.resolve(ParallelCsvLoader.LEGACY_ORDER_BOOK_FILE)))) {
+            writer.println(ORDER_HEADER);
+            for (int i = 1; i <= count; i++)
+                writer.println(i + "," + (i % 2 == 0 ? "SEC1" : "SEC2") + ",SELL,10," + (20000 + i % 7 * 10)
+                        + ",1,1,2024-02-23T10:00:00.000000001,0,0,0,0,0");
+        }
+        assertThat(Files.size(directory.resolve(ParallelCsvLoader.LEGACY_ORDER_BOOK_FILE))).isGreaterThan(MappedCsv.CHUNK_BYTES);
+
+        assertThat(loader.loadAll(directory)).isEqualTo(count);
+        List<Order> sellQueue = securityRepository.findSecurityByIsin("SEC2").getOrderBook().getSellQueue();
+        assertThat(sellQueue).hasSize(count / 2);
+        for (int i = 1; i < sellQueue.size(); i++) {
+            Order previous = sellQueue.get(i - 1);
+            Order current = sellQueue.get(i);
+            assertThat(previous.getPrice() < current.getPrice()
+                    || previous.getPrice() == current.getPrice() && previous.getOrderId() < current.getOrderId()).isTrue();
+        }
+    }
+
+    @Test
+    void a_malformed_line_names_its_file() throws Exception {
+        writeOrderBook("SEC1", List.of("1,SEC1,BUY,3x4,15700,1,1,2024-02-23T10:59:54.970,0,0,0,0,0"));
+
+        assertThatThrownBy(() -> loader.loadAll(directory))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("SEC1.csv")
+                .hasMessageContaining("malformed number");
+    }
+
+    private void writeOrderBook(String isin, List<String> lines) throws IOException {
+        Path file = directory.resolve(ParallelCsvLoader.ORDER_BOOK_DIRECTORY).resolve(isin + ".csv");
+        Files.writeString(file, ORDER_HEADER + "\n" + String.join("\n", lines) + "\n");
+    }
+}
@@ -0,0 +1,154 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.domain.entity.Side;
+import ir.ramtung.tinyme.messaging.MessagingConfig;
+import ir.ramtung.tinyme.messaging.codec.RequestMessageConverter;
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestJournalTest {
+    @TempDir
+    Path directory;
+    private final RequestMessageConverter messageConverter = new MessagingConfig().jmsMessageConverter(new SecurityRepository());
+    private final List<RequestJournal> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeJournals() throws Exception {
+        for (RequestJournal journal : opened)
+            journal.close();
+    }
+
+    @Test
+    void requests_are_replayed_in_append_order_after_reopening() throws Exception {
+        List<Object> requests = List.of(
+                EnterOrderRq.createNewOrderRq(1, "ABC", 10, LocalDateTime.of(2024, 1, 1, 9, 0), Side.BUY,
+                        300, 15000, 1, 2, 0, 0, 0),
+                new ChangingMatchingStateRq("ABC", MatchingState.AUCTION),
+                new DeleteOrderRq(2, "ABC", Side.BUY, 10));
+        RequestJournal journal = open(RequestJournal.Sync.GROUP, 64);
+        List<Long> positions = new ArrayList<>();
+        for (Object request : requests)
+            journal.append(request, positions::add);
+        journal.awaitDurable(positions.get(2));
+        assertThat(journal.isDurable(positions.get(2))).isTrue();
+        assertThat(journal.isDurable(positions.get(2) + 1)).isFalse();
+        journal.close();
+
+        assertThat(positions).isSorted().doesNotHaveDuplicates();
+        assertThat(replay(open(RequestJournal.Sync.GROUP, 64))).isEqualTo(requests);
+    }
+
+    @Test
+    void appends_continue_after_the_last_replayed_request() throws Exception {
+        RequestJournal journal = open(RequestJournal.Sync.NONE, 64);
+        journal.append(new DeleteOrderRq(1, "ABC", Side.BUY, 10), position -> {});
+        journal.close();
+        journal = open(RequestJournal.Sync.NONE, 64);
+        journal.append(new DeleteOrderRq(2, "ABC", Side.SELL, 20), position -> {});
+        journal.close();
+
+        assertThat(replay(open(RequestJournal.Sync.NONE, 64))).extracting("requestId").containsExactly(1L, 2L);
+    }
+
+    @Test
+    void a_torn_tail_is_dropped_and_overwritten() throws Exception {
+        RequestJournal journal = open(RequestJournal.Sync.PERIODIC, 64);
+        journal.append(new DeleteOrderRq(1, "ABC", Side.BUY, 10), position -> {});
+        long tornAt = journal.append(new DeleteOrderRq(2, "ABC", Side.BUY, 20), position -> {}) - 1;
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("request.journal.1").toFile(), "rw")) {
+            file.seek(tornAt);
+            file.write(0x55);
+        }
+
+        journal = open(RequestJournal.Sync.PERIODIC, 64);
+        assertThat(replay(journal)).extracting("requestId").containsExactly(1L);
+        journal.append(new DeleteOrderRq(3, "ABC", Side.BUY, 30), position -> {});
+        journal.close();
+        assertThat(replay(open(RequestJournal.Sync.PERIODIC, 64))).extracting("requestId").containsExactly(1L, 3L);
+    }
+
+    @Test
+    void records_roll_over_into_new_segments() throws Exception {
+        RequestJournal journal = open(RequestJournal.Sync.GROUP, 1);
+        int count = 30_000;
+        long last = 0;
+        for (int i = 1; i <= count; i++)
+            last = journal.append(EnterOrderRq.createNewOrderRq(i, "ABC", i, LocalDateTime.now(), Side.SELL,
+                    10, 15000, 1, 1, 0, 0, 0), position -> {});
+        journal.awaitDurable(last);
+        journal.close();
+
+        assertThat(Files.size(directory.resolve("request.journal.1"))).isGreaterThan(2L << 20);
+        List<Object> replayed = replay(open(RequestJournal.Sync.GROUP, 1));
+        assertThat(replayed).hasSize(count);
+        assertThat(replayed.get(count - 1)).extracting("requestId").isEqualTo((long) count);
+    }
+
+    @Test
+    void rotation_starts_a_generation_that_replays_on_its_own() throws Exception {
+        RequestJournal journal = open(RequestJournal.Sync.GROUP, 1);
+        long before = journal.append(new DeleteOrderRq(1, "ABC", Side.BUY, 10), position -> {});
+        List<Long> positions = new ArrayList<>();
+        int generation = journal.rotate(() -> positions.add(journal.getPosition()));
+        long after = journal.append(new DeleteOrderRq(2, "ABC", Side.BUY, 20), position -> {});
+        journal.awaitDurable(after);
+
+        assertThat(generation).isEqualTo(2);
+        assertThat(positions).containsExactly(before);
+        assertThat(after).isGreaterThan(before);
+        assertThat(replay(journal)).extracting("requestId").containsExactly(1L, 2L);
+        List<Object> tail = new ArrayList<>();
+        journal.replay(generation, tail::add);
+        assertThat(tail).extracting("requestId").containsExactly(2L);
+
+        journal.deleteGenerationsBefore(generation);
+        journal.close();
+        assertThat(directory.resolve("request.journal.1")).doesNotExist();
+        RequestJournal reopened = open(RequestJournal.Sync.GROUP, 1);
+        assertThat(reopened.getGeneration()).isEqualTo(generation);
+        assertThat(replay(reopened)).extracting("requestId").containsExactly(2L);
+    }
+
+    @Test
+    void a_disabled_journal_dispatches_without_writing() throws Exception {
+        RequestJournal journal = new RequestJournal(messageConverter, "", RequestJournal.Sync.GROUP, 200, 64);
+        journal.open();
+        List<Long> positions = new ArrayList<>();
+        journal.append(new DeleteOrderRq(1, "ABC", Side.BUY, 10), positions::add);
+        journal.awaitDurable(positions.get(0));
+
+        assertThat(positions).containsExactly(0L);
+        assertThat(journal.isDurable(0)).isTrue();
+        assertThat(journal.replay(request -> {})).isZero();
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    private RequestJournal open(RequestJournal.Sync sync, int segmentMegabytes) throws Exception {
+        RequestJournal journal = new RequestJournal(messageConverter, directory.resolve("request.journal").toString(),
+                sync, 200, segmentMegabytes);
+        journal.open();
+        opened.add(journal);
+        return journal;
+    }
+
+    private List<Object> replay(RequestJournal journal) throws Exception {
+        List<Object> replayed = new ArrayList<>();
+        journal.replay(replayed::add);
+        return replayed;
+    }
+}
@@ -0,0 +1,263 @@
+package ir.ramtung.tinyme.repository;
+
+import ir.ramtung.tinyme.config.MockedJMSTestConfig;
+import ir.ramtung.tinyme.domain.entity.*;
+import ir.ramtung.tinyme.domain.service.*;
+import ir.ramtung.tinyme.domain.service.validation.Validation;
+import ir.ramtung.tinyme.messaging.EventPublisher;
+import ir.ramtung.tinyme.messaging.MessagingConfig;
+import ir.ramtung.tinyme.messaging.codec.RequestMessageConverter;
+import ir.ramtung.tinyme.messaging.event.Event;
+import ir.ramtung.tinyme.messaging.request.ChangingMatchingStateRq;
+import ir.ramtung.tinyme.messaging.request.DeleteOrderRq;
+import ir.ramtung.tinyme.messaging.request.EnterOrderRq;
+import ir.ramtung.tinyme.messaging.request.MatchingState;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+@Import(MockedJMSTestConfig.class)
+@DirtiesContext
+class SnapshotStoreTest {
+    @Autowired
+    SecurityRepository securityRepository;
+    @Autowired
+    BrokerRepository brokerRepository;
+    @Autowired
+    ShareholderRepository shareholderRepository;
+    @Autowired
+    ContinuousMatcher continuousMatcher;
+    @Autowired
+    AuctionMatcher auctionMatcher;
+    @Autowired
+    StopLimitOrderActivator stopLimitOrderActivator;
+    @Autowired
+    Validation validation;
+    @TempDir
+    Path directory;
+    private final LocalDateTime time = LocalDateTime.of(2024, 1, 1, 9, 0);
+    private EventPublisher eventPublisher;
+    private OrderHandler orderHandler;
+    private MatcherStateHandler matcherStateHandler;
+    private IsinShardedExecutor shardedExecutor;
+    private RequestJournal journal;
+
+    @BeforeEach
+    void setup() {
+        eventPublisher = new EventPublisher(null, null, "RS", 16, 16, EventPublisher.Overflow.BLOCK, "unused", 0) {
+            @Override
+            protected void send(Event event) {
+            }
+        };
+        orderHandler = new OrderHandler(securityRepository, brokerRepository, shareholderRepository,
+                new OrderEventPublisher(eventPublisher), continuousMatcher, auctionMatcher, stopLimitOrderActivator,
+                validation, eventPublisher);
+        matcherStateHandler = new MatcherStateHandler(securityRepository, eventPublisher, continuousMatcher,
+                auctionMatcher, stopLimitOrderActivator);
+        shardedExecutor = new IsinShardedExecutor(3);
+        loadInitialState();
+    }
+
+    @AfterEach
+    void teardown() throws Exception {
+        shardedExecutor.shutdown();
+        journal.close();
+    }
+
+    @Test
+    void snapshot_and_journal_tail_rebuild_books_credits_and_positions() throws Exception {
+        journal = openJournal();
+        List<Object> beforeSnapshot = List.of(
+                EnterOrderRq.createNewOrderRq(1, "ABC", 1, time, Side.BUY, 300, 15000, 1, 1, 0, 0, 0),
+                EnterOrderRq.createNewOrderRq(2, "ABC", 2, time.plusSeconds(1), Side.BUY, 200, 15800, 1, 1, 0, 0, 15500),
+                EnterOrderRq.createNewOrderRq(3, "ABC", 3, time.plusSeconds(2), Side.SELL, 500, 15400, 2, 2, 100, 0, 0),
+                EnterOrderRq.createNewOrderRq(4, "ABC", 4, time.plusSeconds(3), Side.BUY, 30, 15400, 1, 1, 0, 0, 0),
+                EnterOrderRq.createNewOrderRq(5, "XYZ", 5, time.plusSeconds(4), Side.BUY, 100, 15000, 1, 1, 0, 0, 0),
+                EnterOrderRq.createNewOrderRq(6, "XYZ", 6, time.plusSeconds(5), Side.SELL, 40, 15000, 2, 2, 0, 0, 0));
+        List<Object> afterSnapshot = List.of(
+                EnterOrderRq.createNewOrderRq(7, "ABC", 7, time.plusSeconds(6), Side.SELL, 10, 15550, 2, 2, 0, 0, 0),
+                EnterOrderRq.createNewOrderRq(8, "ABC", 8, time.plusSeconds(7), Side.BUY, 10, 15550, 1, 1, 0, 0, 0),
+                new DeleteOrderRq(9, "ABC", Side.BUY, 1),
+                new ChangingMatchingStateRq("XYZ", MatchingState.AUCTION),
+                EnterOrderRq.createNewOrderRq(10, "XYZ", 10, time.plusSeconds(8), Side.SELL, 20, 14900, 2, 2, 0, 0, 0));
+        submit(beforeSnapshot);
+        SnapshotStore snapshotStore = snapshotStore();
+        int generation = snapshotStore.take();
+        List<String> atSnapshot = describeState();
+        submit(afterSnapshot);
+        shardedExecutor.flush();
+        List<String> live = describeState();
+        journal.close();
+
+        assertThat(atSnapshot).contains("order 3 IcebergOrder SELL 100/470@15400 " + time.plusSeconds(2),
+                "order 2 StopLimitOrder BUY 200/200@15800 " + time.plusSeconds(1));
+        assertThat(directory.resolve("request.journal.1")).doesNotExist();
+        loadInitialState();
+        SnapshotStore.Restored restored = snapshotStore().load();
+        assertThat(restored.journalGeneration()).isEqualTo(generation);
+        assertThat(describeState()).isEqualTo(atSnapshot);
+
+        journal = openJournal();
+        int replayed = new JournalRecovery(journal, orderHandler, matcherStateHandler, eventPublisher)
+                .recover(restored.journalGeneration());
+        assertThat(replayed).isEqualTo(afterSnapshot.size());
+        assertThat(describeState()).isEqualTo(live);
+    }
+
+    @Test
+    void shards_resume_matching_as_soon_as_their_own_state_is_captured() throws Exception {
+        journal = openJournal();
+        assertThat(shardedExecutor.shardOf("ABC")).isNotEqualTo(shardedExecutor.shardOf("XYZ"));
+        submit(List.of(EnterOrderRq.createNewOrderRq(1, "XYZ", 1, time, Side.BUY, 100, 15000, 1, 1, 0, 0, 0)));
+        CountDownLatch abcBlocked = new CountDownLatch(1);
+        shardedExecutor.execute("ABC", () -> {
+            try {
+                abcBlocked.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        SnapshotStore snapshotStore = snapshotStore();
+        int generation = journal.getGeneration();
+        CompletableFuture<Integer> taken = CompletableFuture.supplyAsync(() -> {
+            try {
+                return snapshotStore.take();
+            } catch (Exception ex) {
+                throw new CompletionException(ex);
+            }
+        });
+        while (journal.getGeneration() == generation)
+            Thread.sleep(1);
+        List<String> atSnapshot = describeState();
+
+        submit(List.of(EnterOrderRq.createNewOrderRq(2, "XYZ", 2, time.plusSeconds(1), Side.BUY, 50, 15000, 1, 1, 0, 0, 0)));
+        CountDownLatch xyzMatched = new CountDownLatch(1);
+        shardedExecutor.execute("XYZ", xyzMatched::countDown);
+        assertThat(xyzMatched.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(taken).isNotDone();
+        abcBlocked.countDown();
+        assertThat(taken.get(5, TimeUnit.SECONDS)).isEqualTo(generation + 1);
+        List<String> live = describeState();
+        journal.close();
+
+        assertThat(live).isNotEqualTo(atSnapshot);
+        loadInitialState();
+        snapshotStore().load();
+        assertThat(describeState()).isEqualTo(atSnapshot);
+        journal = openJournal();
+        new JournalRecovery(journal, orderHandler, matcherStateHandler, eventPublisher).recover(generation + 1);
+        assertThat(describeState()).isEqualTo(live);
+    }
+
+    @Test
+    void a_corrupted_snapshot_is_rejected() throws Exception {
+        journal = openJournal();
+        submit(List.of(EnterOrderRq.createNewOrderRq(1, "ABC", 1, time, Side.BUY, 300, 15000, 1, 1, 0, 0, 0)));
+        SnapshotStore snapshotStore = snapshotStore();
+        snapshotStore.take();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve("state.snapshot").toFile(), "rw")) {
+            file.seek(file.length() / 2);
+            int original = file.read();
+            file.seek(file.length() / 2);
+            file.write(original ^ 0x01);
+        }
+
+        assertThatThrownBy(snapshotStore::load).isInstanceOf(IOException.class).hasMessageContaining("checksum");
+    }
+
+    private void submit(List<Object> requests) {
+        for (Object request : requests)
+            journal.append(request, position -> shardedExecutor.execute(RequestMessageConverter.groupOf(request), () -> handle(request)));
+    }
+
+    private void handle(Object request) {
+        if (request instanceof EnterOrderRq enterOrderRq)
+            orderHandler.handleEnterOrder(enterOrderRq);
+        else if (request instanceof DeleteOrderRq deleteOrderRq)
+            orderHandler.handleDeleteOrder(deleteOrderRq);
+        else
+            matcherStateHandler.handleChangingMatchingStateRq((ChangingMatchingStateRq) request);
+    }
+
+    private RequestJournal openJournal() throws Exception {
+        RequestJournal opened = new RequestJournal(new MessagingConfig().jmsMessageConverter(securityRepository),
+                directory.resolve("request.journal").toString(), RequestJournal.Sync.GROUP, 200, 1);
+        opened.open();
+        return opened;
+    }
+
+    private SnapshotStore snapshotStore() {
+        return new SnapshotStore(securityRepository, brokerRepository, shareholderRepository, shardedExecutor, journal,
+                directory.resolve("state.snapshot").toString(), 0);
+    }
+
+    private void loadInitialState() {
+        securityRepository.clear();
+        brokerRepository.clear();
+        shareholderRepository.clear();
+        List<Security> securities = List.of(Security.builder().isin("ABC").build(),
+                Security.builder().isin("XYZ").tickSize(10).orderBook(OrderBook.withPriceLadder(10, 64)).build());
+        securities.forEach(securityRepository::addSecurity);
+        for (long id = 1; id <= 2; id++) {
+            brokerRepository.addBroker(Broker.builder().brokerId(id).name("broker" + id).credit(100_000_000L).build());
+            Shareholder shareholder = Shareholder.builder().shareholderId(id).build();
+            for (Security security : securities)
+                shareholder.incPosition(security, 10_000);
+            shareholderRepository.addShareholder(shareholder);
+        }
+    }
+
+    private List<String> describeState() {
+        List<String> lines = new ArrayList<>();
+        List<Security> securities = new ArrayList<>();
+        securityRepository.allSecurities().forEach(securities::add);
+        securities.sort(Comparator.comparing(Security::getIsin));
+        for (Security security : securities) {
+            lines.add("security " + security.getIsin() + " " + security.getTickSize() + " " + security.getLotSize() + " "
+                    + security.getOrderBook().getPriceLadderTicks() + " " + security.getMatchingState() + " "
+                    + security.getLastTradedPrice() + " " + security.getOpeningPrice());
+            for (OrderBook book : List.of(security.getOrderBook(), security.getStopLimitOrderBook())) {
+                for (Order order : book.getBuyQueue())
+                    lines.add(describe(order));
+                for (Order order : book.getSellQueue())
+                    lines.add(describe(order));
+            }
+        }
+        for (Broker broker : brokerRepository.allBrokers())
+            lines.add("broker " + broker.getBrokerId() + " " + broker.getName() + " " + broker.getCredit());
+        List<String> positions = new ArrayList<>();
+        for (Shareholder shareholder : shareholderRepository.allShareholders())
+            shareholder.getPositions().forEach((security, position) ->
+                    positions.add("position " + shareholder.getShareholderId() + " " + security.getIsin() + " " + position));
+        positions.sort(null);
+        lines.addAll(positions);
+        return lines;
+    }
+
+    private static String describe(Order order) {
+        return "order " + order.getOrderId() + " " + order.getClass().getSimpleName() + " " + order.getSide() + " "
+                + order.getQuantity() + "/" + order.getTotalQuantity() + "@" + order.getPrice() + " "
+                + order.getEntryTime();
+    }
+}